@@ -0,0 +1,108 @@
+package org.example.benchmarks;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.example.ChatStorageApplication;
+import org.example.dto.ChatMessageRequest;
+import org.example.dto.ChatSessionRequest;
+import org.example.dto.MessageCursor;
+import org.example.dto.MessagePage;
+import org.example.model.ChatMessage;
+import org.example.model.ChatSession;
+import org.example.service.ChatMessageService;
+import org.example.service.ChatSessionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of ChatMessageService against a real Postgres, started in-process from
+ * embedded binaries (no Docker needed). The application runs with its production configuration
+ * and Flyway migrations; each trial starts from a session with 'history' messages.
+ * 'addMessage' is a single insert transaction; 'offsetPage' reads page 10 with OFFSET;
+ * 'olderPage' reads the same position by keyset; 'newestPage' is normally served by the tail cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChatMessageServiceBenchmark {
+    private static final int PAGE_SIZE = 20;
+    private static final int IMPORT_BATCH = 500;
+
+    @Param({"1000", "100000"})
+    private int history;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private ChatMessageService chatMessageService;
+    private ChatSession session;
+    private MessageCursor olderCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        context = new SpringApplicationBuilder(ChatStorageApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--server.port=0",
+                        "--api.key=benchmark",
+                        "--messages.tail-cache.enabled=true",
+                        "--logging.level.root=WARN");
+        chatMessageService = context.getBean(ChatMessageService.class);
+        session = context.getBean(ChatSessionService.class)
+                .createSession(new ChatSessionRequest(null, "benchmark-user", "Benchmark", false));
+
+        for (int i = 0; i < history; i += IMPORT_BATCH) {
+            List<ChatMessageRequest> batch = new ArrayList<>(IMPORT_BATCH);
+            for (int j = i; j < Math.min(history, i + IMPORT_BATCH); j++) {
+                batch.add(request(j));
+            }
+            chatMessageService.addMessages(batch);
+        }
+        Page<ChatMessage> page = chatMessageService.getMessages(session, 10, PAGE_SIZE);
+        olderCursor = MessageCursor.of(page.getContent().get(page.getNumberOfElements() - 1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public ChatMessage addMessage() {
+        return chatMessageService.addMessage(request(history));
+    }
+
+    @Benchmark
+    public Page<ChatMessage> offsetPage() {
+        return chatMessageService.getMessages(session, 10, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MessagePage olderPage() {
+        return chatMessageService.getMessages(session.getId(), null, olderCursor, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MessagePage newestPage() {
+        return chatMessageService.getMessages(session.getId(), null, null, PAGE_SIZE);
+    }
+
+    private ChatMessageRequest request(int i) {
+        return new ChatMessageRequest(null, session, i % 2 == 0 ? "user" : "assistant",
+                "Message " + i + ": how do I configure keyset pagination with a composite index?",
+                i % 2 == 0 ? null : "{\"documents\":[\"doc-" + i + "\"],\"score\":0.87}", null);
+    }
+}
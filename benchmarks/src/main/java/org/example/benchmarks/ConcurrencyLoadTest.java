@@ -0,0 +1,186 @@
+package org.example.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load test against a running instance, for comparing the platform-thread
+ * and virtual-thread ('vthreads' profile) request modes under many concurrent clients.
+ * Each client owns one session and alternates between appending a message and reading the
+ * newest page, recording the latency of every request. Prints throughput, error count and
+ * latency percentiles per operation.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar org.example.benchmarks.ConcurrencyLoadTest
+ * --url=http://localhost:8080 --api-key=... --clients=1000 --duration=60s --warmup=10s}
+ */
+public class ConcurrencyLoadTest {
+    private static final Pattern SESSION_ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private final String baseUrl;
+    private final String apiKey;
+    private final HttpClient client;
+    private final AtomicLong errors = new AtomicLong();
+
+    ConcurrencyLoadTest(String baseUrl, String apiKey) {
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int clients = Integer.parseInt(options.getOrDefault("clients", "1000"));
+        Duration duration = Duration.parse("PT" + options.getOrDefault("duration", "60s"));
+        Duration warmup = Duration.parse("PT" + options.getOrDefault("warmup", "10s"));
+        ConcurrencyLoadTest test = new ConcurrencyLoadTest(
+                options.getOrDefault("url", "http://localhost:8080"),
+                options.getOrDefault("api-key", ""));
+        test.run(clients, warmup, duration);
+    }
+
+    void run(int clients, Duration warmup, Duration duration) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+        List<Future<Recorder>> futures = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            String userId = "load-" + i;
+            futures.add(pool.submit(() -> runClient(userId, measureFrom, stopAt)));
+        }
+        LatencyList appends = new LatencyList();
+        LatencyList reads = new LatencyList();
+        for (Future<Recorder> future : futures) {
+            Recorder recorder = future.get();
+            appends.addAll(recorder.appends);
+            reads.addAll(recorder.reads);
+        }
+        pool.shutdown();
+
+        double seconds = duration.toNanos() / 1e9;
+        System.out.printf("clients=%d duration=%.0fs errors=%d%n", clients, seconds, errors.get());
+        appends.report("append", seconds);
+        reads.report("read", seconds);
+    }
+
+    private Recorder runClient(String userId, long measureFrom, long stopAt) {
+        Recorder recorder = new Recorder();
+        String sessionId;
+        try {
+            HttpResponse<String> created = send(HttpRequest.newBuilder(URI.create(baseUrl + "/sessions"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"userId\":\"" + userId + "\",\"name\":\"load\"}")));
+            Matcher matcher = SESSION_ID.matcher(created.body());
+            if (created.statusCode() != 200 || !matcher.find()) {
+                errors.incrementAndGet();
+                return recorder;
+            }
+            sessionId = matcher.group(1);
+        } catch (Exception ex) {
+            errors.incrementAndGet();
+            return recorder;
+        }
+        URI messages = URI.create(baseUrl + "/sessions/" + sessionId + "/messages");
+        URI newest = URI.create(baseUrl + "/sessions/" + sessionId + "/messages?limit=20");
+        String body = "{\"sender\":\"user\",\"content\":\"How many concurrent requests can the service handle?\"}";
+        for (long n = 0; System.nanoTime() < stopAt; n++) {
+            boolean append = n % 2 == 0;
+            HttpRequest.Builder request = append
+                    ? HttpRequest.newBuilder(messages).POST(HttpRequest.BodyPublishers.ofString(body))
+                    : HttpRequest.newBuilder(newest).GET();
+            long sent = System.nanoTime();
+            try {
+                int status = send(request).statusCode();
+                if (status >= 300) {
+                    errors.incrementAndGet();
+                    continue;
+                }
+            } catch (Exception ex) {
+                errors.incrementAndGet();
+                continue;
+            }
+            if (sent >= measureFrom) {
+                (append ? recorder.appends : recorder.reads).add(System.nanoTime() - sent);
+            }
+        }
+        return recorder;
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return client.send(request
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .header("X-API-KEY", apiKey)
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Latencies of one client, in nanoseconds; merged once the run ends.
+     */
+    private static final class Recorder {
+        private final LatencyList appends = new LatencyList();
+        private final LatencyList reads = new LatencyList();
+    }
+
+    private static final class LatencyList {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(LatencyList other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        void report(String operation, double seconds) {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            System.out.printf("%-6s ops=%d throughput=%.1f/s p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms%n",
+                    operation, size, size / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                    percentile(sorted, 1.0));
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
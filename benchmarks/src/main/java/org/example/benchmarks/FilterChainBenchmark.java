@@ -0,0 +1,176 @@
+package org.example.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.config.RateLimitFilter;
+import org.example.ratelimit.GcraRateLimiter;
+import org.example.ratelimit.RateLimitDecision;
+import org.example.ratelimit.RateLimitKey;
+import org.example.ratelimit.RateLimiter;
+import org.example.security.ApiKeyAuthFilter;
+import org.example.security.ApiKeyResolver;
+import org.example.security.PublicPaths;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request overhead of the rate-limit and API-key filters with the shared precompiled
+ * public-path matcher (see PublicPaths) versus the previous filters, which each matched the
+ * path against every public pattern with AntPathMatcher and compared keys with String.equals.
+ * 'filterChain' and 'legacyFilterChain' run both filters over mock requests (whose allocation
+ * both pay); 'sharedMatch' and 'legacyMatch' isolate the path matching of one request.
+ * The limiter never rejects, so protected requests run the whole chain.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterChainBenchmark {
+    private static final String API_KEY = "3f8a1c9e0b7d4e52a6c1f0d9b8e7a6c5";
+    private static final String[] LEGACY_PUBLIC_PATHS = {
+            "/health",
+            "/v3/api-docs/**",
+            "/swagger-ui/**"
+    };
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+    private static final HttpServlet SERVLET = new HttpServlet() {
+        @Override
+        protected void service(HttpServletRequest request, HttpServletResponse response) {
+        }
+    };
+
+    @Param({"/health", "/sessions/42/messages"})
+    private String path;
+
+    private PublicPaths publicPaths;
+    private RateLimitFilter rateLimitFilter;
+    private ApiKeyAuthFilter apiKeyAuthFilter;
+    private LegacyRateLimitFilter legacyRateLimitFilter;
+    private LegacyApiKeyAuthFilter legacyApiKeyAuthFilter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        publicPaths = new PublicPaths();
+        RateLimiter rateLimiter = new GcraRateLimiter(1_000_000_000, Duration.ofSeconds(1), 1_000);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ApiKeyResolver apiKeyResolver = new ApiKeyResolver();
+        ReflectionTestUtils.setField(apiKeyResolver, "apiKey", API_KEY);
+        apiKeyResolver.init();
+
+        rateLimitFilter = new RateLimitFilter();
+        ReflectionTestUtils.setField(rateLimitFilter, "keyType", "ip");
+        ReflectionTestUtils.setField(rateLimitFilter, "rateLimiter", rateLimiter);
+        ReflectionTestUtils.setField(rateLimitFilter, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(rateLimitFilter, "publicPaths", publicPaths);
+        ReflectionTestUtils.setField(rateLimitFilter, "apiKeyResolver", apiKeyResolver);
+        rateLimitFilter.initKey();
+
+        apiKeyAuthFilter = new ApiKeyAuthFilter();
+        ReflectionTestUtils.setField(apiKeyAuthFilter, "apiKeyResolver", apiKeyResolver);
+        ReflectionTestUtils.setField(apiKeyAuthFilter, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(apiKeyAuthFilter, "publicPaths", publicPaths);
+        apiKeyAuthFilter.initMetrics();
+
+        legacyRateLimitFilter = new LegacyRateLimitFilter(rateLimiter);
+        legacyApiKeyAuthFilter = new LegacyApiKeyAuthFilter();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse filterChain() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new MockFilterChain(SERVLET, rateLimitFilter, apiKeyAuthFilter).doFilter(request(), response);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse legacyFilterChain() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new MockFilterChain(SERVLET, legacyRateLimitFilter, legacyApiKeyAuthFilter).doFilter(request(), response);
+        return response;
+    }
+
+    @Benchmark
+    public boolean sharedMatch() {
+        return publicPaths.matches(path);
+    }
+
+    @Benchmark
+    public boolean legacyMatch() {
+        return legacyIsPublic(path) & legacyIsPublic(path);
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.addHeader("X-API-KEY", API_KEY);
+        return request;
+    }
+
+    private static boolean legacyIsPublic(String path) {
+        for (String pattern : LEGACY_PUBLIC_PATHS) {
+            if (PATH_MATCHER.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The previous RateLimitFilter, matching public paths itself.
+     */
+    private static final class LegacyRateLimitFilter extends OncePerRequestFilter {
+        private final RateLimiter rateLimiter;
+
+        LegacyRateLimitFilter(RateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+                throws ServletException, IOException {
+            if (legacyIsPublic(request.getRequestURI())) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            RateLimitDecision decision = rateLimiter.tryAcquire(RateLimitKey.IP.resolve(request, Optional.empty()));
+            response.setHeader("X-RateLimit-Limit", Long.toString(decision.limit()));
+            response.setHeader("X-RateLimit-Remaining", Long.toString(decision.remaining()));
+            response.setHeader("X-RateLimit-Reset", Long.toString(decision.resetSeconds()));
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * The previous ApiKeyAuthFilter, matching public paths itself and comparing keys with String.equals.
+     */
+    private static final class LegacyApiKeyAuthFilter extends OncePerRequestFilter {
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+                throws ServletException, IOException {
+            if (legacyIsPublic(request.getRequestURI())) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            if (!API_KEY.equals(request.getHeader("X-API-KEY"))) {
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                return;
+            }
+            filterChain.doFilter(request, response);
+        }
+    }
+}
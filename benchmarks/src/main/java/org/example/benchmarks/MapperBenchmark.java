@@ -0,0 +1,73 @@
+package org.example.benchmarks;
+
+import org.example.dto.ChatMessageRequest;
+import org.example.dto.ChatMessageResponse;
+import org.example.dto.ChatSessionRequest;
+import org.example.dto.ChatSessionResponse;
+import org.example.mapper.ChatMessageMapper;
+import org.example.mapper.ChatMessageMapperImpl;
+import org.example.mapper.ChatSessionMapper;
+import org.example.mapper.ChatSessionMapperImpl;
+import org.example.model.ChatMessage;
+import org.example.model.ChatSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the MapStruct mappers between entities and DTOs, per object, on the request
+ * (DTO to entity) and response (entity to DTO) side.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MapperBenchmark {
+    private final ChatMessageMapper chatMessageMapper = new ChatMessageMapperImpl();
+    private final ChatSessionMapper chatSessionMapper = new ChatSessionMapperImpl();
+
+    private ChatMessage message;
+    private ChatMessageRequest messageRequest;
+    private ChatSession session;
+    private ChatSessionRequest sessionRequest;
+
+    @Setup
+    public void setUp() {
+        Instant now = Instant.parse("2024-05-01T10:00:00.000001Z");
+        session = ChatSession.builder()
+                .id(42L)
+                .userId("user-42")
+                .name("Keyset pagination")
+                .isFavorite(true)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        sessionRequest = new ChatSessionRequest(null, "user-42", "Keyset pagination", true);
+        message = MessagePageSerializationBenchmark.sampleMessages(2).get(1);
+        messageRequest = new ChatMessageRequest(null, session, message.getSender(), message.getContent(),
+                message.getContext(), null);
+    }
+
+    @Benchmark
+    public ChatMessageResponse messageToDto() {
+        return chatMessageMapper.toDto(message);
+    }
+
+    @Benchmark
+    public ChatMessage messageToEntity() {
+        return chatMessageMapper.toEntity(messageRequest);
+    }
+
+    @Benchmark
+    public ChatSessionResponse sessionToDto() {
+        return chatSessionMapper.toDto(session);
+    }
+
+    @Benchmark
+    public ChatSession sessionToEntity() {
+        return chatSessionMapper.toEntity(sessionRequest);
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.benchmarks;
+
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.runner.IterationType;
+
+/**
+ * Base for @AuxCounters states that report measured values, such as sizes, rather than event counts.
+ * JMH sums EVENTS counters over threads and measurement iterations, so an iteration teardown in each
+ * subclass keeps its fields only when {@link #reporting} returns true and zeroes them otherwise; each
+ * value is then reported once, as seen by the first thread at the end of the last measurement iteration.
+ */
+public abstract class MeasuredValues {
+    private int measurementIterations;
+
+    /**
+     * Tells an iteration teardown whether to record its values.
+     * @param iteration the iteration that just ended
+     * @param thread the calling benchmark thread
+     * @return true only for the first thread after the last measurement iteration
+     */
+    protected boolean reporting(IterationParams iteration, ThreadParams thread) {
+        if (iteration.getType() != IterationType.MEASUREMENT) {
+            return false;
+        }
+        return ++measurementIterations == iteration.getCount() && thread.getThreadIndex() == 0;
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.dto.ChatMessageResponse;
+import org.example.dto.EncodedMessage;
+import org.example.dto.MessageCursor;
+import org.example.dto.MessagePage;
+import org.example.mapper.ChatMessageJsonWriter;
+import org.example.mapper.ChatMessageMapper;
+import org.example.mapper.ChatMessageMapperImpl;
+import org.example.model.ChatMessage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON encodings of one page of messages:
+ * the offset endpoint (MapStruct DTOs in a Spring Data Page, serialized reflectively by Jackson),
+ * the cursor endpoint streaming entities, and the cursor endpoint copying tail-cache bytes.
+ * Run with '-prof gc' to compare allocations per page; each encoding's size is reported as the
+ * 'pageBytes' secondary result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MessagePageSerializationBenchmark {
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final ChatMessageMapper chatMessageMapper = new ChatMessageMapperImpl();
+    private final ChatMessageJsonWriter chatMessageJsonWriter = new ChatMessageJsonWriter();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+
+    private List<ChatMessage> entities;
+    private MessagePage entityPage;
+    private MessagePage encodedPage;
+
+    @Setup
+    public void setUp() throws IOException {
+        entities = sampleMessages(pageSize);
+        String cursor = MessageCursor.of(entities.get(0)).encode();
+        entityPage = MessagePage.ofEntities(entities, cursor, true);
+        List<EncodedMessage> encoded = new ArrayList<>(pageSize);
+        for (ChatMessage message : entities) {
+            encoded.add(chatMessageJsonWriter.encode(message));
+        }
+        encodedPage = MessagePage.ofEncoded(encoded, cursor, true);
+    }
+
+    /**
+     * Size of the page written by the last invocation of the running benchmark.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class EncodedSize extends MeasuredValues {
+        public long pageBytes;
+
+        @TearDown(Level.Iteration)
+        public void record(IterationParams iteration, ThreadParams thread) {
+            if (!reporting(iteration, thread)) {
+                pageBytes = 0;
+            }
+        }
+    }
+
+    @Benchmark
+    public int jacksonPage(EncodedSize encodedSize) throws IOException {
+        out.reset();
+        Page<ChatMessageResponse> page = new PageImpl<>(entities, PageRequest.of(3, pageSize), 10_000)
+                .map(chatMessageMapper::toDto);
+        objectMapper.writeValue(out, page);
+        encodedSize.pageBytes = out.size();
+        return out.size();
+    }
+
+    @Benchmark
+    public int streamedEntities(EncodedSize encodedSize) throws IOException {
+        out.reset();
+        chatMessageJsonWriter.writePage(out, entityPage);
+        encodedSize.pageBytes = out.size();
+        return out.size();
+    }
+
+    @Benchmark
+    public int preEncoded(EncodedSize encodedSize) throws IOException {
+        out.reset();
+        chatMessageJsonWriter.writePage(out, encodedPage);
+        encodedSize.pageBytes = out.size();
+        return out.size();
+    }
+
+    static List<ChatMessage> sampleMessages(int count) {
+        List<ChatMessage> messages = new ArrayList<>(count);
+        Instant start = Instant.parse("2024-05-01T10:00:00.000001Z");
+        for (int i = 0; i < count; i++) {
+            messages.add(ChatMessage.builder()
+                    .id(1_000L + i)
+                    .sender(i % 2 == 0 ? "user" : "assistant")
+                    .content("Message " + i + ": how do I configure keyset pagination with a composite index?")
+                    .context(i % 2 == 0 ? null : "{\"documents\":[\"doc-" + i + "\"],\"score\":0.87}")
+                    .createdAt(start.plusMillis(i * 750L))
+                    .build());
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.benchmarks;
+
+import org.example.storage.PayloadCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of compressing message context (see PayloadCodec) against the storage it saves.
+ * Contexts are synthetic LLM prompts: a system prompt, retrieved documents and earlier turns.
+ * 'encode' also reports the stored sizes, and those of a session resending the same context with
+ * each of its messages with and without deduplication, as secondary results (see {@link Sizes}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PayloadCodecBenchmark {
+    private static final int THRESHOLD = 512;
+    private static final int MESSAGES_PER_SESSION = 50;
+    private static final int HASH_REFERENCE_BYTES = 32;
+    private static final String[] WORDS = {
+            "the", "message", "session", "index", "query", "partition", "replica", "cursor", "latency",
+            "throughput", "commit", "transaction", "user", "assistant", "context", "document", "return",
+            "configure", "request", "response", "cache", "table", "column", "value", "error", "retry"};
+
+    @Param({"1024", "16384", "131072"})
+    private int contextBytes;
+
+    private byte[] context;
+    private byte[] frame;
+
+    @Setup
+    public void setUp() {
+        context = sampleContext(contextBytes).getBytes(StandardCharsets.UTF_8);
+        frame = PayloadCodec.encode(context, THRESHOLD);
+    }
+
+    /**
+     * Bytes per context, and per session of MESSAGES_PER_SESSION messages sharing one context.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Sizes extends MeasuredValues {
+        public long rawContextBytes;
+        public long storedContextBytes;
+        public long rawSessionBytes;
+        public long compressedSessionBytes;
+        public long deduplicatedSessionBytes;
+
+        @TearDown(Level.Iteration)
+        public void record(IterationParams iteration, ThreadParams thread) {
+            if (!reporting(iteration, thread)) {
+                rawContextBytes = 0;
+                storedContextBytes = 0;
+            }
+            rawSessionBytes = rawContextBytes * MESSAGES_PER_SESSION;
+            compressedSessionBytes = storedContextBytes * MESSAGES_PER_SESSION;
+            deduplicatedSessionBytes = storedContextBytes == 0
+                    ? 0
+                    : storedContextBytes + (long) HASH_REFERENCE_BYTES * MESSAGES_PER_SESSION;
+        }
+    }
+
+    @Benchmark
+    public byte[] encode(Sizes sizes) {
+        byte[] stored = PayloadCodec.encode(context, THRESHOLD);
+        sizes.rawContextBytes = context.length;
+        sizes.storedContextBytes = stored.length;
+        return stored;
+    }
+
+    @Benchmark
+    public String decode() {
+        return PayloadCodec.decode(frame);
+    }
+
+    static String sampleContext(int bytes) {
+        Random random = new Random(42);
+        StringBuilder context = new StringBuilder(bytes + 64)
+                .append("{\"system\":\"You are a helpful assistant for a chat storage service.\",\"documents\":[");
+        int document = 0;
+        while (context.length() < bytes / 2) {
+            context.append(document == 0 ? "" : ",").append("{\"id\":\"doc-").append(document++).append("\",\"text\":\"");
+            appendSentence(context, random, 40);
+            context.append("\"}");
+        }
+        context.append("],\"turns\":[");
+        int turn = 0;
+        while (context.length() < bytes) {
+            context.append(turn == 0 ? "" : ",").append("{\"role\":\"").append(turn++ % 2 == 0 ? "user" : "assistant")
+                    .append("\",\"content\":\"");
+            appendSentence(context, random, 25);
+            context.append("\"}");
+        }
+        return context.append("]}").toString();
+    }
+
+    private static void appendSentence(StringBuilder out, Random random, int words) {
+        for (int i = 0; i < words; i++) {
+            out.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        out.append('.');
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.benchmarks;
+
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import org.example.ratelimit.GcraRateLimiter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-request cost and retained memory of the GCRA limiter versus the previous
+ * per-IP map of Resilience4j limiters.
+ * 'hot' draws keys from a small set of active clients; 'churn' gives every request a new
+ * client (cycling through three million), as under scans or NAT churn. The number of tracked clients and
+ * the heap retained after GC are reported as secondary results (see {@link Retained}); the Resilience4j
+ * map grows with every distinct client while the GCRA table stays at 'rate.limit.max-keys'.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Threads(4)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+    private static final int HOT_CLIENTS = 10_000;
+    /**
+     * Distinct clients cycled through by 'churn'; bounded so the baseline finishes without running out of heap.
+     */
+    private static final long CHURN_CLIENTS = 3_000_000;
+    private static final long MAX_KEYS = 1_000_000;
+
+    @Param({"hot", "churn"})
+    private String keys;
+
+    private final AtomicLong nextClient = new AtomicLong();
+    private GcraRateLimiter gcra;
+    private RateLimiterRegistry registry;
+    private Map<String, RateLimiter> resilience4j;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        gcra = new GcraRateLimiter(100, Duration.ofMinutes(1), MAX_KEYS);
+        registry = RateLimiterRegistry.of(RateLimiterConfig.custom()
+                .limitForPeriod(100)
+                .limitRefreshPeriod(Duration.ofMinutes(1))
+                .timeoutDuration(Duration.ZERO)
+                .build());
+        resilience4j = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Clients tracked by each limiter and heap retained after GC at the end of the trial.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Retained extends MeasuredValues {
+        public long gcraKeys;
+        public long resilience4jKeys;
+        public long heapAfterGcMb;
+
+        @TearDown(Level.Iteration)
+        public void record(RateLimiterBenchmark benchmark, IterationParams iteration, ThreadParams thread) {
+            if (!reporting(iteration, thread)) {
+                gcraKeys = 0;
+                resilience4jKeys = 0;
+                heapAfterGcMb = 0;
+                return;
+            }
+            System.gc();
+            Runtime runtime = Runtime.getRuntime();
+            gcraKeys = benchmark.gcra.trackedKeys();
+            resilience4jKeys = benchmark.resilience4j.size();
+            heapAfterGcMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+        }
+    }
+
+    private String nextKey() {
+        long client = "hot".equals(keys)
+                ? ThreadLocalRandom.current().nextInt(HOT_CLIENTS)
+                : nextClient.incrementAndGet() % CHURN_CLIENTS;
+        return "ip:10." + (client >>> 16 & 0xff) + '.' + (client >>> 8 & 0xff) + '.' + (client & 0xff) + '#' + client;
+    }
+
+    @Benchmark
+    public boolean gcra(Retained retained) {
+        return gcra.tryAcquire(nextKey()).allowed();
+    }
+
+    @Benchmark
+    public boolean resilience4jPerKey(Retained retained) {
+        String key = nextKey();
+        RateLimiter limiter = resilience4j.computeIfAbsent(key, registry::rateLimiter);
+        return limiter.acquirePermission();
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.benchmarks;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import org.example.logging.AccessLog;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request logging throughput of the access log (see AccessLog) versus the previous
+ * interceptor, which wrote one line per request through a synchronous appender.
+ * Both write to a temporary file with Spring Boot's console pattern; the access log samples
+ * successful requests at 1% and hands records to a bounded asynchronous appender that drops
+ * them when full, so request threads never wait for the file. 'errorPercent' of the requests
+ * fail with a 401, which is always logged. The bytes written by each over the trial are reported
+ * as the 'bytesLogged' secondary result.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class RequestLoggingBenchmark {
+    private static final String PATTERN = "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n";
+    private static final double SAMPLE_RATE = 0.01;
+    private static final int QUEUE_SIZE = 8192;
+
+    @Param({"0", "5"})
+    private int errorPercent;
+
+    private LoggerContext context;
+    private Path interceptorFile;
+    private Path accessLogFile;
+    private org.slf4j.Logger interceptorLogger;
+    private AccessLog accessLog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+        context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).setLevel(ch.qos.logback.classic.Level.OFF);
+
+        interceptorFile = Files.createTempFile("interceptor", ".log");
+        Logger interceptor = context.getLogger("org.example.config.LoggingInterceptor");
+        interceptor.setLevel(ch.qos.logback.classic.Level.INFO);
+        interceptor.setAdditive(false);
+        interceptor.addAppender(fileAppender("interceptor", interceptorFile));
+        interceptorLogger = interceptor;
+
+        accessLogFile = Files.createTempFile("access", ".log");
+        AsyncAppender async = new AsyncAppender();
+        async.setContext(context);
+        async.setName("async");
+        async.setQueueSize(QUEUE_SIZE);
+        async.setNeverBlock(true);
+        async.addAppender(fileAppender("access", accessLogFile));
+        async.start();
+        Logger access = context.getLogger("access");
+        access.setLevel(ch.qos.logback.classic.Level.INFO);
+        access.setAdditive(false);
+        access.addAppender(async);
+        accessLog = new AccessLog(SAMPLE_RATE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.stop();
+        Files.deleteIfExists(interceptorFile);
+        Files.deleteIfExists(accessLogFile);
+    }
+
+    /**
+     * Bytes in the log file written by the running benchmark. Records still queued in the
+     * asynchronous appender when the trial ends are not counted.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class LogSize extends MeasuredValues {
+        public long bytesLogged;
+
+        @TearDown(Level.Iteration)
+        public void record(RequestLoggingBenchmark benchmark, IterationParams iteration, ThreadParams thread)
+                throws IOException {
+            bytesLogged = reporting(iteration, thread)
+                    ? Files.size(benchmark.interceptorFile) + Files.size(benchmark.accessLogFile)
+                    : 0;
+        }
+    }
+
+    @Benchmark
+    public void interceptor(LogSize logSize) {
+        interceptorLogger.info("Request: {} {} from {}", "GET", "/sessions/42/messages", "10.0.0.7");
+    }
+
+    @Benchmark
+    public void accessLog(LogSize logSize) {
+        int status = ThreadLocalRandom.current().nextInt(100) < errorPercent ? 401 : 200;
+        accessLog.record("GET", "/sessions/42/messages", status, 1_250_000, "10.0.0.7");
+    }
+
+    private Appender<ILoggingEvent> fileAppender(String name, Path file) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+        FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setName(name);
+        appender.setFile(file.toString());
+        appender.setEncoder(encoder);
+        appender.start();
+        return appender;
+    }
+}
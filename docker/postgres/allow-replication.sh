@@ -0,0 +1,4 @@
+#!/bin/sh
+# Lets the db-replica service stream WAL from this server (docker compose --profile replica).
+set -e
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
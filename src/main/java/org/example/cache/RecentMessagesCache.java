@@ -0,0 +1,248 @@
+package org.example.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.example.dto.EncodedMessage;
+import org.example.event.ChatMessageCreatedEvent;
+import org.example.event.ChatSessionDeletedEvent;
+import org.example.mapper.ChatMessageJsonWriter;
+import org.example.model.ChatMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the newest messages of recently active sessions in memory.
+ * Each session gets a small ring buffer of its last N messages, updated when an append commits,
+ * so the newest page of an active session can be served without touching the database.
+ * Messages are held pre-encoded as JSON, so serving a page is a byte copy and the memory
+ * accounting is exact.
+ * Buffers share a global memory budget and idle sessions are evicted first.
+ * Appends are only seen on the replica that committed them, so with several replicas a buffer
+ * can miss newer messages; each buffer is therefore dropped a fixed time after it was loaded,
+ * regardless of local appends or reads. Disabled by default; enable it for a single replica or
+ * where serving a page up to 'max-age' old is acceptable.
+ */
+@Component
+public class RecentMessagesCache {
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final int BUFFER_OVERHEAD_BYTES = 128;
+
+    /**
+     * Whether the tail cache is used at all.
+     */
+    @Value("${messages.tail-cache.enabled:false}")
+    private boolean enabled;
+    /**
+     * Number of newest messages kept per session.
+     */
+    @Value("${messages.tail-cache.messages-per-session:50}")
+    private int capacity;
+    /**
+     * Approximate memory budget shared by all session buffers.
+     */
+    @Value("${messages.tail-cache.max-bytes:67108864}")
+    private long maxBytes;
+    /**
+     * How long a buffer is served after it was loaded from the database; appends do not extend it.
+     */
+    @Value("${messages.tail-cache.max-age:30s}")
+    private Duration maxAge;
+
+    @Autowired
+    private ChatMessageJsonWriter chatMessageJsonWriter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<Long, SessionTail> tails;
+    /**
+     * Time of the latest committed append per session, used to detect appends racing a buffer load.
+     */
+    private Cache<Long, Long> recentAppends;
+
+    /**
+     * The newest messages of a session, oldest first.
+     * @param messages the messages, oldest first
+     * @param hasOlder whether older messages exist beyond this slice
+     */
+    public record Slice(List<EncodedMessage> messages, boolean hasOlder) {
+    }
+
+    @PostConstruct
+    public void init() {
+        tails = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long sessionId, SessionTail tail) -> tail.weight())
+                .expireAfter(new Expiry<Long, SessionTail>() {
+                    @Override
+                    public long expireAfterCreate(Long sessionId, SessionTail tail, long currentTime) {
+                        return maxAge.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long sessionId, SessionTail tail, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long sessionId, SessionTail tail, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tails, "messageTails");
+        recentAppends = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    /**
+     * Returns the newest messages of a session, loading and caching the buffer on a miss.
+     * @param sessionId the session ID
+     * @param limit the number of newest messages wanted
+     * @param loader loads the newest messages of the session from the database, newest first,
+     *               up to {@link #capacity()} rows
+     * @return the slice, or empty if the cache is disabled or the limit exceeds the buffer size
+     */
+    public Optional<Slice> latest(Long sessionId, int limit, Supplier<List<ChatMessage>> loader) {
+        if (!enabled || limit > capacity) {
+            return Optional.empty();
+        }
+        SessionTail tail = tails.getIfPresent(sessionId);
+        if (tail == null) {
+            long loadStarted = System.nanoTime();
+            List<EncodedMessage> newestFirst = loader.get().stream().map(chatMessageJsonWriter::encode).toList();
+            SessionTail loaded = new SessionTail(capacity, newestFirst);
+            Long lastAppend = recentAppends.getIfPresent(sessionId);
+            if (lastAppend == null || lastAppend - loadStarted < 0) {
+                SessionTail existing = tails.asMap().putIfAbsent(sessionId, loaded);
+                tail = existing != null ? existing : loaded;
+            } else {
+                tail = loaded;
+            }
+        }
+        return Optional.of(tail.latest(limit));
+    }
+
+    /**
+     * Number of messages kept per session.
+     * @return the per-session buffer capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Appends a committed message to its session's buffer, if that session is cached.
+     * @param event the message creation event
+     */
+    @TransactionalEventListener
+    public void onMessageCreated(ChatMessageCreatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        recentAppends.put(event.sessionId(), System.nanoTime());
+        if (tails.getIfPresent(event.sessionId()) == null) {
+            return;
+        }
+        EncodedMessage encoded = chatMessageJsonWriter.encode(event.message());
+        tails.asMap().computeIfPresent(event.sessionId(), (id, tail) -> tail.append(encoded));
+    }
+
+    /**
+     * Drops the buffer of a deleted session.
+     * @param event the session deletion event
+     */
+    @TransactionalEventListener
+    public void onSessionDeleted(ChatSessionDeletedEvent event) {
+        tails.invalidate(event.sessionId());
+    }
+
+    /**
+     * Bounded, ordered buffer of a session's newest messages.
+     * Mutated only inside {@code compute} calls on the owning map entry.
+     */
+    private static final class SessionTail {
+        private final int capacity;
+        private final ArrayDeque<EncodedMessage> messages;
+        private boolean complete;
+        private int weight = BUFFER_OVERHEAD_BYTES;
+
+        SessionTail(int capacity, List<EncodedMessage> newestFirst) {
+            this.capacity = capacity;
+            this.messages = new ArrayDeque<>(capacity);
+            this.complete = newestFirst.size() < capacity;
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                messages.addLast(newestFirst.get(i));
+                weight += weigh(newestFirst.get(i));
+            }
+        }
+
+        synchronized SessionTail append(EncodedMessage message) {
+            for (EncodedMessage existing : messages) {
+                if (existing.id().equals(message.id())) {
+                    return this;
+                }
+            }
+            // Appends usually arrive in order; walk back from the newest entry otherwise.
+            List<EncodedMessage> newer = new ArrayList<>();
+            while (!messages.isEmpty() && isAfter(messages.peekLast(), message)) {
+                newer.add(messages.pollLast());
+            }
+            messages.addLast(message);
+            for (int i = newer.size() - 1; i >= 0; i--) {
+                messages.addLast(newer.get(i));
+            }
+            weight += weigh(message);
+            while (messages.size() > capacity) {
+                weight -= weigh(messages.pollFirst());
+                complete = false;
+            }
+            return this;
+        }
+
+        synchronized Slice latest(int limit) {
+            int skip = Math.max(0, messages.size() - limit);
+            List<EncodedMessage> page = new ArrayList<>(Math.min(limit, messages.size()));
+            Iterator<EncodedMessage> it = messages.iterator();
+            for (int i = 0; it.hasNext(); i++) {
+                EncodedMessage message = it.next();
+                if (i >= skip) {
+                    page.add(message);
+                }
+            }
+            return new Slice(page, skip > 0 || !complete);
+        }
+
+        synchronized int weight() {
+            return weight;
+        }
+
+        private static boolean isAfter(EncodedMessage a, EncodedMessage b) {
+            int byTime = a.createdAt().compareTo(b.createdAt());
+            return byTime > 0 || (byTime == 0 && a.id() > b.id());
+        }
+
+        private static int weigh(EncodedMessage message) {
+            return ENTRY_OVERHEAD_BYTES + message.json().length;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.cli;
+
+import org.example.security.ApiKeyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Command-line mode: issues or revokes a per-tenant API key and exits.
+ * Issue a key with
+ * {@code java -jar app.jar --spring.main.web-application-type=none --api.keys.command=create --api.keys.tenant=acme}
+ * and optionally '--api.keys.user-ids=alice,bob' and '--api.keys.rate-limit=1000'; the key is
+ * printed once and only its hash is stored. Revoke one with '--api.keys.command=revoke --api.keys.id=42'.
+ */
+@Component
+@ConditionalOnProperty(name = "api.keys.command")
+public class ApiKeyRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(ApiKeyRunner.class);
+
+    /**
+     * 'create' or 'revoke'.
+     */
+    @Value("${api.keys.command}")
+    private String command;
+    /**
+     * Tenant of a created key.
+     */
+    @Value("${api.keys.tenant:}")
+    private String tenant;
+    /**
+     * Comma-separated users a created key may act for; empty for all.
+     */
+    @Value("${api.keys.user-ids:}")
+    private String userIds;
+    /**
+     * Requests per 'rate.limit.period' for a created key; 0 for 'rate.limit'.
+     */
+    @Value("${api.keys.rate-limit:0}")
+    private long rateLimit;
+    /**
+     * ID of the key to revoke.
+     */
+    @Value("${api.keys.id:0}")
+    private long id;
+
+    @Autowired
+    private ApiKeyStore apiKeyStore;
+
+    @Autowired
+    private ConfigurableApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        switch (command) {
+            case "create" -> {
+                if (tenant.isBlank()) {
+                    throw new IllegalArgumentException("api.keys.tenant is required");
+                }
+                List<String> users = Arrays.stream(userIds.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+                ApiKeyStore.IssuedKey issued = apiKeyStore.create(tenant, users, rateLimit > 0 ? rateLimit : null);
+                logger.info("Issued API key {} for tenant {}", issued.id(), tenant);
+                System.out.println(issued.key());
+            }
+            case "revoke" -> logger.info(apiKeyStore.revoke(id) ? "Revoked API key {}" : "API key {} not found or already revoked", id);
+            default -> throw new IllegalArgumentException("Unknown api.keys.command: " + command);
+        }
+        System.exit(SpringApplication.exit(applicationContext, () -> 0));
+    }
+}
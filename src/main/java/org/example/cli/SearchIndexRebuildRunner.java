@@ -0,0 +1,39 @@
+package org.example.cli;
+
+import org.example.search.LuceneMessageSearchEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Command-line mode: rebuilds the embedded search index from the database and exits.
+ * Enabled with 'messages.search.rebuild=true' together with 'messages.search.engine=lucene', e.g.
+ * {@code java -jar app.jar --spring.main.web-application-type=none --messages.search.engine=lucene --messages.search.rebuild=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "messages.search.rebuild", havingValue = "true")
+public class SearchIndexRebuildRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexRebuildRunner.class);
+
+    @Autowired(required = false)
+    private LuceneMessageSearchEngine searchEngine;
+
+    @Autowired
+    private ConfigurableApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (searchEngine == null) {
+            throw new IllegalStateException("Rebuilding the search index requires messages.search.engine=lucene");
+        }
+        long indexed = searchEngine.rebuild();
+        logger.info("Rebuilt the search index with {} messages", indexed);
+        System.exit(SpringApplication.exit(applicationContext, () -> 0));
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.cli;
+
+import org.example.shard.ShardRebalancer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Command-line mode: moves buckets until every shard holds an even share, then exits.
+ * Enabled with 'sharding.rebalance=true', e.g. after adding a shard to 'sharding.urls':
+ * {@code java -jar app.jar --spring.main.web-application-type=none --sharding.rebalance=true}.
+ * Replicas serving traffic keep running throughout; writes to a bucket pause for a few seconds
+ * while it switches shards.
+ */
+@Component
+@ConditionalOnProperty(name = "sharding.rebalance", havingValue = "true")
+public class ShardRebalanceRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalanceRunner.class);
+
+    @Autowired(required = false)
+    private ShardRebalancer shardRebalancer;
+
+    @Autowired
+    private ConfigurableApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (shardRebalancer == null) {
+            throw new IllegalStateException("Rebalancing requires sharding.urls to be set");
+        }
+        int moved = shardRebalancer.rebalance();
+        logger.info("Moved {} buckets", moved);
+        System.exit(SpringApplication.exit(applicationContext, () -> 0));
+    }
+}
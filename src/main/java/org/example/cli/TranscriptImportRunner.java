@@ -0,0 +1,72 @@
+package org.example.cli;
+
+import org.example.dto.TranscriptImportResult;
+import org.example.service.TranscriptImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Command-line mode: imports an NDJSON transcript file and exits.
+ * Enabled by setting 'messages.import.file', e.g.
+ * {@code java -jar app.jar --spring.main.web-application-type=none --messages.import.file=dump.ndjson.gz}.
+ * Re-running the same command resumes a failed import.
+ */
+@Component
+@ConditionalOnProperty(name = "messages.import.file")
+public class TranscriptImportRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(TranscriptImportRunner.class);
+
+    /**
+     * Path of the NDJSON file to import; files ending in '.gz' are decompressed.
+     */
+    @Value("${messages.import.file}")
+    private String file;
+    /**
+     * Import ID used for checkpointing; defaults to the file name.
+     */
+    @Value("${messages.import.id:}")
+    private String importId;
+    /**
+     * User ID for records that do not carry one.
+     */
+    @Value("${messages.import.user-id:}")
+    private String userId;
+
+    @Autowired
+    private TranscriptImportService transcriptImportService;
+
+    @Autowired
+    private ConfigurableApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Path path = Path.of(file);
+        String id = importId.isBlank() ? path.getFileName().toString() : importId;
+        TranscriptImportResult result;
+        try (InputStream in = open(path)) {
+            result = transcriptImportService.importTranscripts(id, userId.isBlank() ? null : userId, in);
+        }
+        logger.info("Imported {} records from {} ({} committed in total)",
+                result.getRecordsImported(), path, result.getRecordsCommitted());
+        System.exit(SpringApplication.exit(applicationContext, () -> 0));
+    }
+
+    private static InputStream open(Path path) throws Exception {
+        InputStream in = new BufferedInputStream(Files.newInputStream(path), 64 * 1024);
+        return path.toString().endsWith(".gz") ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.logging.AccessLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Filter writing one access-log record per request (see {@link AccessLog}).
+ * Runs first in the security filter chain, so requests rejected for their API key or rate
+ * limit are logged too. A request failing with an exception is logged as a 500. Asynchronous
+ * requests (streams, exports) are logged when they complete, with their final status and full duration.
+ */
+@Component
+public class AccessLogFilter extends OncePerRequestFilter {
+    /**
+     * Fraction of successful requests that are logged; errors are always logged.
+     */
+    @Value("${logging.access.sample-rate:0.01}")
+    private double sampleRate;
+
+    private AccessLog accessLog;
+
+    @PostConstruct
+    public void init() {
+        accessLog = new AccessLog(sampleRate);
+    }
+
+    /**
+     * Times the request and records it once the rest of the chain has finished, or once
+     * the asynchronous processing it started has.
+     * @param request the incoming HTTP request
+     * @param response the HTTP response
+     * @param filterChain the filter chain
+     * @throws ServletException if a servlet error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long started = System.nanoTime();
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            status = response.getStatus();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncRecorder(request, response, started));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                record(request, status, started);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, int status, long started) {
+        accessLog.record(request.getMethod(), request.getRequestURI(), status, System.nanoTime() - started,
+                request.getRemoteAddr());
+    }
+
+    /**
+     * Records an asynchronous request once, when it completes or fails.
+     */
+    private final class AsyncRecorder implements AsyncListener {
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final long started;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        AsyncRecorder(HttpServletRequest request, HttpServletResponse response, long started) {
+            this.request = request;
+            this.response = response;
+            this.started = started;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (recorded.compareAndSet(false, true)) {
+                record(request, response.getStatus(), started);
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            if (recorded.compareAndSet(false, true)) {
+                record(request, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, started);
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // Answered by the application on the timeout dispatch; recorded on completion.
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
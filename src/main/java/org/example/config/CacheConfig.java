@@ -0,0 +1,85 @@
+package org.example.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration class for in-process caches.
+ * Registers bounded Caffeine caches with per-cache size and TTL limits.
+ */
+@Configuration
+public class CacheConfig {
+    /**
+     * Cache of non-deleted session IDs, mapped to their owning user ID.
+     */
+    public static final String LIVE_SESSIONS = "liveSessions";
+    /**
+     * Cache of non-deleted sessions by ID, as immutable ChatSessionView snapshots.
+     */
+    public static final String SESSIONS = "sessions";
+    /**
+     * Cache of per-user session lists of ChatSessionView snapshots, keyed by user ID and favorite filter.
+     */
+    public static final String SESSION_LISTS = "sessionLists";
+
+    /**
+     * How long a session is trusted to be live without re-checking the database.
+     */
+    @Value("${cache.live-sessions.ttl:30s}")
+    private Duration liveSessionsTtl;
+    /**
+     * Maximum number of session IDs kept in the live-session cache.
+     */
+    @Value("${cache.live-sessions.max-size:100000}")
+    private long liveSessionsMaxSize;
+    /**
+     * How long a looked-up session may be served from cache.
+     */
+    @Value("${cache.sessions.ttl:60s}")
+    private Duration sessionsTtl;
+    /**
+     * Maximum number of sessions kept in the session cache.
+     */
+    @Value("${cache.sessions.max-size:50000}")
+    private long sessionsMaxSize;
+    /**
+     * How long a user's session list may be served from cache.
+     * Writes through this instance evict it immediately; the TTL bounds staleness from other replicas.
+     */
+    @Value("${cache.session-lists.ttl:30s}")
+    private Duration sessionListsTtl;
+    /**
+     * Maximum number of session lists kept in the session-list cache.
+     */
+    @Value("${cache.session-lists.max-size:20000}")
+    private long sessionListsMaxSize;
+
+    /**
+     * Creates the cache manager with all application caches registered.
+     * Statistics are recorded so hit/miss counts are published as 'cache.gets' metrics.
+     * @return configured CacheManager
+     */
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(LIVE_SESSIONS, boundedCache(liveSessionsTtl, liveSessionsMaxSize));
+        cacheManager.registerCustomCache(SESSIONS, boundedCache(sessionsTtl, sessionsMaxSize));
+        cacheManager.registerCustomCache(SESSION_LISTS, boundedCache(sessionListsTtl, sessionListsMaxSize));
+        return cacheManager;
+    }
+
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> boundedCache(Duration ttl, long maxSize) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+}
@@ -1,8 +1,13 @@
 package org.example.config;
 
+import org.example.service.IngestRejectedException;
+import org.example.service.InvalidRequestException;
+import org.example.shard.ShardUnavailableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
@@ -72,6 +77,34 @@ public class GlobalExceptionHandler {
         return body;
     }
 
+    /**
+     * Handles invalid parameters, cursors and request records rejected by the application.
+     * Other IllegalArgumentExceptions are bugs and fall through to the generic handler.
+     * @param ex the rejection
+     * @return the error message with HTTP 400 status
+     */
+    @ExceptionHandler(InvalidRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, Object> handleInvalidRequest(InvalidRequestException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", ex.getMessage());
+        return body;
+    }
+
+    /**
+     * Handles backpressure from the async ingest pipeline and writes to sessions that are moving between shards.
+     * @param ex the rejection thrown by the pipeline or the shard router
+     * @return HTTP 503 with a Retry-After hint
+     */
+    @ExceptionHandler({IngestRejectedException.class, ShardUnavailableException.class})
+    public ResponseEntity<Map<String, Object>> handleIngestRejected(RuntimeException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(body);
+    }
+
     @ExceptionHandler(AccessDeniedException.class)
     @ResponseStatus(HttpStatus.FORBIDDEN)
     public Map<String, Object> handleAccessDenied(AccessDeniedException ex) {
@@ -1,31 +0,0 @@
-package org.example.config;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Component;
-import org.springframework.web.servlet.HandlerInterceptor;
-
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
-
-/**
- * Interceptor for logging incoming HTTP requests.
- * Logs request method, URI, and remote address for monitoring and debugging.
- */
-@Component
-public class LoggingInterceptor implements HandlerInterceptor {
-    private static final Logger logger = LoggerFactory.getLogger(LoggingInterceptor.class);
-
-    /**
-     * Logs details of each incoming HTTP request before it is handled.
-     * @param request the incoming HTTP request
-     * @param response the HTTP response
-     * @param handler the chosen handler to execute
-     * @return true to continue processing the request
-     */
-    @Override
-    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
-        logger.info("Request: {} {} from {}", request.getMethod(), request.getRequestURI(), request.getRemoteAddr());
-        return true;
-    }
-}
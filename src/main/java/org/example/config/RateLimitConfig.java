@@ -0,0 +1,77 @@
+package org.example.config;
+
+import org.example.ratelimit.GcraRateLimiter;
+import org.example.ratelimit.PostgresLeasedRateLimiter;
+import org.example.ratelimit.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+
+/**
+ * Configuration class for request rate limiting.
+ */
+@Configuration
+public class RateLimitConfig {
+    /**
+     * Maximum number of requests allowed per period per client.
+     * Configurable via 'rate.limit' property (default: 100).
+     */
+    @Value("${rate.limit:100}")
+    private int rateLimit;
+    /**
+     * Period over which a client's allowance refills.
+     */
+    @Value("${rate.limit.period:1m}")
+    private Duration period;
+    /**
+     * Maximum number of clients tracked at once; the least recently seen are evicted beyond it.
+     */
+    @Value("${rate.limit.max-keys:1000000}")
+    private long maxKeys;
+    /**
+     * In cluster mode, tokens a replica takes from the shared budget per database round trip.
+     */
+    @Value("${rate.limit.cluster.lease-size:10}")
+    private long leaseSize;
+    /**
+     * In cluster mode, how long a lease query may run before the request falls back to per-replica limits.
+     */
+    @Value("${rate.limit.cluster.query-timeout:1s}")
+    private Duration queryTimeout;
+    /**
+     * In cluster mode, how long to stay on per-replica limits after the database could not be reached.
+     */
+    @Value("${rate.limit.cluster.retry-interval:10s}")
+    private Duration retryInterval;
+
+    /**
+     * Creates the in-memory GCRA rate limiter, enforcing 'rate.limit' per replica.
+     * Used unless 'rate.limit.mode' is 'cluster'.
+     * @return the rate limiter
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rate.limit.mode", havingValue = "local", matchIfMissing = true)
+    public RateLimiter rateLimiter() {
+        return new GcraRateLimiter(rateLimit, period, maxKeys);
+    }
+
+    /**
+     * Creates the Postgres-backed rate limiter, enforcing 'rate.limit' across all replicas.
+     * Its queries use their own JdbcTemplate with 'rate.limit.cluster.query-timeout'. Once a query
+     * fails or times out the circuit breaker opens, so an unavailable database only delays the
+     * requests already waiting on it (for up to the query timeout, or the pool's connection timeout).
+     * @param jdbcTemplate access to the shared database
+     * @return the rate limiter
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rate.limit.mode", havingValue = "cluster")
+    public RateLimiter clusterRateLimiter(JdbcTemplate jdbcTemplate) {
+        JdbcTemplate limiterJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        limiterJdbcTemplate.setQueryTimeout((int) Math.max(1, queryTimeout.toSeconds()));
+        return new PostgresLeasedRateLimiter(limiterJdbcTemplate, rateLimit, period, leaseSize, maxKeys, retryInterval);
+    }
+}
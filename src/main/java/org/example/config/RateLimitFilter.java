@@ -1,64 +1,76 @@
 package org.example.config;
 
 
-import io.github.resilience4j.ratelimiter.RateLimiter;
-import io.github.resilience4j.ratelimiter.RateLimiterConfig;
-import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.example.ratelimit.RateLimitDecision;
+import org.example.ratelimit.RateLimitKey;
+import org.example.ratelimit.RateLimiter;
+import org.example.security.ApiKey;
+import org.example.security.ApiKeyResolver;
+import org.example.security.PublicPaths;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Optional;
 
 /**
- * Filter for applying rate limiting to incoming requests using Resilience4j.
- * Allows public paths to bypass rate limiting and restricts requests per client IP.
+ * Filter for applying rate limiting to incoming requests.
+ * Allows public paths (see {@link PublicPaths}) to bypass rate limiting and restricts requests per client,
+ * identified by IP address, authenticated API key or the user such a key is scoped to (see 'rate.limit.key').
+ * Requests made with an API key that has a quota of its own are limited per key instead, once
+ * the key is known to this replica (see {@link ApiKeyResolver#resolveCached}); until then, and
+ * for unknown keys, the configured limit applies, so guessing keys is rate limited too.
+ * Every limited response carries X-RateLimit-Limit, X-RateLimit-Remaining and X-RateLimit-Reset headers.
+ * Rejected requests are counted by 'chat.ratelimit.rejections'.
  */
 @Component
 public class RateLimitFilter extends OncePerRequestFilter {
     /**
-     * Maximum number of requests allowed per minute per client IP.
-     * Configurable via 'rate.limit' property (default: 100).
+     * How clients are identified: 'ip' (default), 'api-key' or 'user'.
      */
-    @Value("${rate.limit:100}")
-    private int rateLimit;
+    @Value("${rate.limit.key:ip}")
+    private String keyType;
 
-    private final Map<String, RateLimiter> limiters = new ConcurrentHashMap<>();
-    private RateLimiterRegistry registry;
+    @Autowired
+    private RateLimiter rateLimiter;
 
-    private static final String[] PUBLIC_PATHS = {
-        "/health",
-        "/v3/api-docs/**",
-        "/swagger-ui/**"
-    };
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PublicPaths publicPaths;
+
+    @Autowired
+    private ApiKeyResolver apiKeyResolver;
+
+    private RateLimitKey key;
+    private Counter rejections;
 
     /**
-     * Initializes the RateLimiterRegistry with the configured rate limit.
+     * Resolves the configured client key type.
      */
     @PostConstruct
-    public void initRegistry() {
-        registry = RateLimiterRegistry.of(
-            RateLimiterConfig.custom()
-                .limitForPeriod(rateLimit)
-                .limitRefreshPeriod(Duration.ofMinutes(1))
-                .timeoutDuration(Duration.ofMillis(0))
-                .build()
-        );
+    public void initKey() {
+        key = RateLimitKey.valueOf(keyType.trim().toUpperCase().replace('-', '_'));
+        rejections = Counter.builder("chat.ratelimit.rejections")
+                .description("Requests rejected by the rate limiter")
+                .tag("key", key.name().toLowerCase())
+                .register(meterRegistry);
     }
 
     /**
      * Applies rate limiting to incoming requests, bypassing public paths.
-     * Responds with HTTP 429 if the rate limit is exceeded.
+     * Responds with HTTP 429 and a Retry-After header if the rate limit is exceeded.
      * @param request the incoming HTTP request
      * @param response the HTTP response
      * @param filterChain the filter chain
@@ -68,18 +80,22 @@ public class RateLimitFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
-        String path = request.getRequestURI();
-        for (String pattern : PUBLIC_PATHS) {
-            if (pathMatcher.match(pattern, path)) {
-                filterChain.doFilter(request, response);
-                return;
-            }
+        if (publicPaths.isPublic(request)) {
+            filterChain.doFilter(request, response);
+            return;
         }
-        String client = request.getRemoteAddr();
-        RateLimiter limiter = limiters.computeIfAbsent(client, k -> registry.rateLimiter(client));
-        if (limiter.acquirePermission()) {
+        Optional<ApiKey> apiKey = apiKeyResolver.resolveCached(request);
+        RateLimitDecision decision = apiKey.isPresent() && apiKey.get().rateLimit() != null
+                ? rateLimiter.tryAcquire("api-key:" + apiKey.get().id(), apiKey.get().rateLimit())
+                : rateLimiter.tryAcquire(key.resolve(request, apiKey));
+        response.setHeader("X-RateLimit-Limit", Long.toString(decision.limit()));
+        response.setHeader("X-RateLimit-Remaining", Long.toString(decision.remaining()));
+        response.setHeader("X-RateLimit-Reset", Long.toString(decision.resetSeconds()));
+        if (decision.allowed()) {
             filterChain.doFilter(request, response);
         } else {
+            rejections.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(decision.retryAfterSeconds()));
             response.setStatus(429);
             response.getWriter().write("Too Many Requests");
         }
@@ -0,0 +1,107 @@
+package org.example.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.datasource.ReplicaRoutingDataSource;
+import org.example.datasource.WriteTrackingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration class for routing read-only transactions to read replicas.
+ * Active when 'datasource.replicas.urls' lists at least one JDBC URL; replicas use the
+ * credentials of 'spring.datasource'. The application's DataSource connects lazily, so a
+ * transaction's connection is taken from a replica only if the transaction is read-only
+ * ({@code @Transactional(readOnly = true)}); everything else uses the primary.
+ */
+@Configuration
+@ConditionalOnExpression("'${datasource.replicas.urls:}' != '' && '${sharding.urls:}' == ''")
+public class ReadReplicaConfig {
+    /**
+     * Comma-separated JDBC URLs of the replicas.
+     */
+    @Value("${datasource.replicas.urls}")
+    private List<String> replicaUrls;
+    /**
+     * Maximum number of connections per replica pool.
+     */
+    @Value("${datasource.replicas.pool-size:10}")
+    private int poolSize;
+    /**
+     * How often replica health and replay positions are checked.
+     */
+    @Value("${datasource.replicas.health-interval:1s}")
+    private Duration healthInterval;
+    /**
+     * WAL distance behind the primary beyond which a replica is taken out of rotation.
+     */
+    @Value("${datasource.replicas.max-lag-bytes:16777216}")
+    private long maxLagBytes;
+
+    /**
+     * Creates the primary pool from 'spring.datasource' and 'spring.datasource.hikari'.
+     * @param properties the standard datasource properties
+     * @return the primary pool
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * Creates one pool per replica URL and the router choosing between them.
+     * @param properties the standard datasource properties, for credentials and driver
+     * @param primaryDataSource the primary pool, used when no replica qualifies
+     * @param meterRegistry registry for the pool metrics of the replicas
+     * @return the router for read-only connections
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+                                                             HikariDataSource primaryDataSource,
+                                                             MeterRegistry meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(replicaUrls.get(i).trim())
+                    .build();
+            replica.setPoolName("replica-" + i);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setConnectionTimeout(2000);
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, healthInterval, maxLagBytes);
+    }
+
+    /**
+     * The DataSource used by JPA, JdbcTemplate and Flyway.
+     * @param primaryDataSource the primary pool
+     * @param replicaRoutingDataSource the router for read-only connections
+     * @return a lazily connecting proxy that routes read-only connections to replicas
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(new WriteTrackingDataSource(primaryDataSource));
+        dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+        return dataSource;
+    }
+}
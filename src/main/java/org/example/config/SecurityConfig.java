@@ -1,13 +1,17 @@
 package org.example.config;
 
 import org.example.security.ApiKeyAuthFilter;
+import org.example.security.ApiKeyAuthentication;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 /**
@@ -26,6 +30,11 @@ public class SecurityConfig {
      */
     @Autowired
     private RateLimitFilter rateLimitFilter;
+    /**
+     * Filter writing the access log; runs first so rejected requests are logged too.
+     */
+    @Autowired
+    private AccessLogFilter accessLogFilter;
 
     /**
      * Configures the security filter chain for HTTP requests.
@@ -39,11 +48,23 @@ public class SecurityConfig {
             .csrf(AbstractHttpConfigurer::disable)
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(authz -> authz
+                .requestMatchers("/actuator/**").access(unrestrictedKey())
                 .requestMatchers("/**").permitAll()
                 .anyRequest().authenticated()
             )
             .addFilterBefore(apiKeyAuthFilter, UsernamePasswordAuthenticationFilter.class)
-            .addFilterBefore(rateLimitFilter, ApiKeyAuthFilter.class);
+            .addFilterBefore(rateLimitFilter, ApiKeyAuthFilter.class)
+            .addFilterBefore(accessLogFilter, RateLimitFilter.class);
         return http.build();
     }
+
+    /**
+     * Admits requests made with an unrestricted API key, or without one when authentication is off.
+     * Keys scoped to some users may not read metrics across tenants or clear caches through the actuator.
+     * @return the authorization manager
+     */
+    private static AuthorizationManager<RequestAuthorizationContext> unrestrictedKey() {
+        return (authentication, context) -> new AuthorizationDecision(
+                !(authentication.get() instanceof ApiKeyAuthentication apiKey) || apiKey.getPrincipal().unrestricted());
+    }
 }
@@ -0,0 +1,148 @@
+package org.example.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.shard.ShardKeys;
+import org.example.shard.ShardRoutingDataSource;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration class for sharding sessions and messages across several databases.
+ * Active when 'sharding.urls' lists the JDBC URLs of additional shards; the regular
+ * 'spring.datasource' is shard 0, which also holds the bucket map, rate-limit leases and
+ * import checkpoints. Shards use the credentials of 'spring.datasource'.
+ * Every shard is migrated on startup. The first time, the bucket map is created with all
+ * buckets on shard 0 if it already holds sessions, and spread evenly otherwise; data is moved
+ * between shards with the rebalance tool (see ShardRebalancer).
+ */
+@Configuration
+@ConditionalOnExpression("'${sharding.urls:}' != ''")
+public class ShardingConfig {
+    private static final Logger logger = LoggerFactory.getLogger(ShardingConfig.class);
+
+    private static final String SEED_BUCKETS = "INSERT INTO shard_buckets (bucket, shard) " +
+            "SELECT b, CASE WHEN EXISTS (SELECT 1 FROM chat_sessions) THEN 0 ELSE b % ? END " +
+            "FROM generate_series(0, ?) AS b ON CONFLICT (bucket) DO NOTHING";
+
+    /**
+     * Comma-separated JDBC URLs of shards 1 to N.
+     */
+    @Value("${sharding.urls}")
+    private List<String> shardUrls;
+    /**
+     * Maximum number of connections per additional shard pool.
+     */
+    @Value("${sharding.pool-size:10}")
+    private int poolSize;
+    /**
+     * Read replica URLs, which cannot be combined with sharding.
+     */
+    @Value("${datasource.replicas.urls:}")
+    private String replicaUrls;
+
+    /**
+     * Creates the pool of shard 0 from 'spring.datasource' and 'spring.datasource.hikari'.
+     * @param properties the standard datasource properties
+     * @return the pool of shard 0
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource directoryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("shard-0");
+        return dataSource;
+    }
+
+    /**
+     * Creates one pool per additional shard and the DataSource routing between all shards.
+     * @param properties the standard datasource properties, for credentials and driver
+     * @param directoryDataSource the pool of shard 0
+     * @param meterRegistry registry for the pool metrics of the additional shards
+     * @return the shard router
+     */
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties properties,
+                                                         HikariDataSource directoryDataSource,
+                                                         MeterRegistry meterRegistry) {
+        if (!replicaUrls.isBlank()) {
+            throw new IllegalStateException("datasource.replicas.urls cannot be combined with sharding.urls");
+        }
+        if (shardUrls.size() + 1 > ShardKeys.MAX_SHARDS) {
+            throw new IllegalStateException("At most " + ShardKeys.MAX_SHARDS + " shards are supported");
+        }
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < shardUrls.size(); i++) {
+            HikariDataSource shard = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(shardUrls.get(i).trim())
+                    .build();
+            shard.setPoolName("shard-" + (i + 1));
+            shard.setMaximumPoolSize(poolSize);
+            shard.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            shards.add(shard);
+        }
+        return new ShardRoutingDataSource(directoryDataSource, shards);
+    }
+
+    /**
+     * The DataSource used by JPA, JdbcTemplate and Flyway.
+     * @param shardRoutingDataSource the shard router
+     * @return a lazily connecting proxy, so the shard is chosen at a transaction's first statement
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    /**
+     * Migrates every shard with the same Flyway configuration, reserves each additional shard's
+     * ID ranges and creates the bucket map if it does not exist yet.
+     * @param shardRoutingDataSource the shard router
+     * @return the migration strategy used by Flyway's auto-configuration
+     */
+    @Bean
+    public FlywayMigrationStrategy shardedMigration(ShardRoutingDataSource shardRoutingDataSource) {
+        return flyway -> {
+            flyway.migrate();
+            for (int shard = 1; shard < shardRoutingDataSource.shardCount(); shard++) {
+                DataSource dataSource = shardRoutingDataSource.shard(shard);
+                Flyway.configure().configuration(flyway.getConfiguration()).dataSource(dataSource).load().migrate();
+                reserveIdRanges(new JdbcTemplate(dataSource), shard);
+            }
+            int seeded = new JdbcTemplate(shardRoutingDataSource.shard(0))
+                    .update(SEED_BUCKETS, shardRoutingDataSource.shardCount(), ShardKeys.BUCKETS - 1);
+            if (seeded > 0) {
+                logger.info("Created the shard map for {} shards", shardRoutingDataSource.shardCount());
+            }
+        };
+    }
+
+    /**
+     * Moves a shard's sequences into its own ID ranges, so that sessions and messages keep
+     * unique IDs wherever they are moved.
+     */
+    private static void reserveIdRanges(JdbcTemplate jdbcTemplate, int shard) {
+        jdbcTemplate.queryForObject("SELECT setval('chat_session_seq', GREATEST(last_value, ?)) FROM chat_session_seq",
+                Long.class, ShardKeys.sessionSequenceStart(shard));
+        jdbcTemplate.queryForObject("SELECT setval('chat_messages_seq', GREATEST(last_value, ?)) FROM chat_messages_seq",
+                Long.class, ShardKeys.messageIdStart(shard));
+    }
+}
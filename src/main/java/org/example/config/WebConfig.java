@@ -1,5 +1,6 @@
 package org.example.config;
 
+import org.example.security.ApiKeyScopeInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -12,17 +13,17 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
     /**
-     * Interceptor for logging HTTP requests.
+     * Interceptor enforcing the user scope of API keys.
      */
     @Autowired
-    private LoggingInterceptor loggingInterceptor;
+    private ApiKeyScopeInterceptor apiKeyScopeInterceptor;
 
     /**
-     * Adds the LoggingInterceptor to the interceptor registry.
+     * Adds the ApiKeyScopeInterceptor to the interceptor registry.
      * @param registry the InterceptorRegistry
      */
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        registry.addInterceptor(loggingInterceptor);
+        registry.addInterceptor(apiKeyScopeInterceptor);
     }
 }
@@ -0,0 +1,132 @@
+package org.example.controller;
+
+import org.example.dto.ChatMessageBatchItem;
+import org.example.dto.ChatMessageBatchRequest;
+import org.example.dto.ChatMessageBatchResponse;
+import org.example.dto.ChatMessageBatchResult;
+import org.example.dto.ChatMessageRequest;
+import org.example.model.ChatMessage;
+import org.example.model.ChatSession;
+import org.example.security.ApiKeyScope;
+import org.example.service.ChatMessageService;
+import org.example.service.ChatSessionService;
+import org.example.service.InvalidRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * REST controller for bulk message ingestion.
+ * Accepts messages for one or more sessions in a single request and stores them as JDBC batches.
+ */
+@RestController
+@RequestMapping("/messages")
+public class ChatMessageBatchController {
+    /**
+     * Service for managing chat sessions.
+     */
+    @Autowired
+    private ChatSessionService chatSessionService;
+    /**
+     * Service for managing chat messages.
+     */
+    @Autowired
+    private ChatMessageService chatMessageService;
+
+    @Autowired
+    private ApiKeyScope apiKeyScope;
+    /**
+     * Maximum number of messages accepted in one batch request.
+     */
+    @Value("${messages.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    /**
+     * Adds a batch of messages, resolving all referenced sessions with a single query.
+     * Items referencing a missing or deleted session, or one of a user the API key is not scoped
+     * to, are rejected individually. The remaining items are inserted in one transaction per shard,
+     * so with sharding a batch spanning shards can be stored in part: items of a shard whose
+     * transaction failed after another shard committed are reported as FAILED and can be resent.
+     * @param request the batch request body
+     * @return per-item results in request order
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ChatMessageBatchResponse> addMessages(@RequestBody ChatMessageBatchRequest request) {
+        List<ChatMessageBatchItem> items = request.getMessages();
+        if (items == null || items.isEmpty()) {
+            throw new InvalidRequestException("'messages' must not be empty");
+        }
+        if (items.size() > maxBatchSize) {
+            throw new InvalidRequestException("Batch exceeds the maximum of " + maxBatchSize + " messages");
+        }
+
+        Set<Long> sessionIds = new HashSet<>();
+        for (ChatMessageBatchItem item : items) {
+            if (item != null && item.getSessionId() != null) {
+                sessionIds.add(item.getSessionId());
+            }
+        }
+        Map<Long, ChatSession> sessions = new HashMap<>(chatSessionService.getSessions(sessionIds));
+        sessions.values().removeIf(session -> !apiKeyScope.permits(session.getUserId()));
+
+        List<ChatMessageBatchResult> results = new ArrayList<>(items.size());
+        List<ChatMessageRequest> accepted = new ArrayList<>(items.size());
+        List<ChatMessageBatchResult> acceptedResults = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            ChatMessageBatchItem item = items.get(i);
+            Long sessionId = item != null ? item.getSessionId() : null;
+            ChatMessageBatchResult result = new ChatMessageBatchResult(i, null, null, sessionId, null, null);
+            results.add(result);
+            String error = validate(item, sessions);
+            if (error != null) {
+                result.setStatus(ChatMessageBatchResult.REJECTED);
+                result.setError(error);
+                continue;
+            }
+            accepted.add(new ChatMessageRequest(null, sessions.get(sessionId), item.getSender(),
+                    item.getContent(), item.getContext(), null));
+            acceptedResults.add(result);
+        }
+
+        int failed = 0;
+        if (!accepted.isEmpty()) {
+            List<ChatMessage> saved = chatMessageService.addMessages(accepted);
+            for (int i = 0; i < saved.size(); i++) {
+                ChatMessageBatchResult result = acceptedResults.get(i);
+                ChatMessage message = saved.get(i);
+                if (message == null) {
+                    result.setStatus(ChatMessageBatchResult.FAILED);
+                    result.setError("Not stored; retry this message");
+                    failed++;
+                    continue;
+                }
+                result.setStatus(ChatMessageBatchResult.CREATED);
+                result.setId(message.getId());
+                result.setCreatedAt(message.getCreatedAt());
+            }
+        }
+        int rejected = items.size() - accepted.size();
+        return ResponseEntity.ok(new ChatMessageBatchResponse(accepted.size() - failed, rejected, failed, results));
+    }
+
+    private static String validate(ChatMessageBatchItem item, Map<Long, ChatSession> sessions) {
+        if (item == null || item.getSessionId() == null) {
+            return "sessionId is required";
+        }
+        if (!sessions.containsKey(item.getSessionId())) {
+            return "Session not found";
+        }
+        if (item.getContent() == null) {
+            return "content is required";
+        }
+        return null;
+    }
+}
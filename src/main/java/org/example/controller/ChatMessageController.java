@@ -4,15 +4,27 @@ import org.example.model.ChatMessage;
 import org.example.model.ChatSession;
 import org.example.service.ChatMessageService;
 import org.example.service.ChatSessionService;
+import org.example.service.InvalidRequestException;
+import org.example.service.MessageIngestPipeline;
+import org.example.dto.ChatMessageAck;
 import org.example.dto.ChatMessageRequest;
 import org.example.dto.ChatMessageResponse;
+import org.example.dto.MessageCursor;
+import org.example.dto.MessagePage;
+import org.example.mapper.ChatMessageJsonWriter;
 import org.example.mapper.ChatMessageMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.util.Optional;
+
 /**
  * REST controller for managing chat messages within chat sessions.
  * Provides endpoints to add and retrieve messages for a given session.
@@ -35,23 +47,50 @@ public class ChatMessageController {
      */
     @Autowired
     private ChatMessageMapper chatMessageMapper;
+    /**
+     * Streaming JSON writer for message pages.
+     */
+    @Autowired
+    private ChatMessageJsonWriter chatMessageJsonWriter;
+    /**
+     * Write-behind pipeline used when async ingest is enabled.
+     */
+    @Autowired
+    private MessageIngestPipeline messageIngestPipeline;
+    /**
+     * Upper bound for the 'limit' parameter of cursor-paginated reads.
+     */
+    @Value("${messages.page.max-limit:100}")
+    private int maxPageLimit;
 
     /**
      * Adds a new message to the specified chat session.
+     * With async ingest and ack-after-enqueue, or when an ack-after-commit append is not committed
+     * within the commit timeout, responds 202 with a ChatMessageAck instead of the stored message.
      * @param sessionId the ID of the chat session
      * @param request the chat message request body
-     * @return the created ChatMessage
+     * @return the created ChatMessage, or the acknowledgement of the queued append
      */
     @PostMapping
-    public ResponseEntity<ChatMessageResponse> addMessage(
+    public ResponseEntity<?> addMessage(
         @PathVariable Long sessionId,
         @Valid @RequestBody ChatMessageRequest request
     ) {
-        ChatSession session = chatSessionService.getSession(sessionId).orElseThrow();
+        ChatSession session = chatSessionService.getSessionReference(sessionId).orElseThrow();
         request.setSession(session);
-        ChatMessage savedMessage = chatMessageService.addMessage(request);
-        ChatMessageResponse response = chatMessageMapper.toDto(savedMessage);
-        return ResponseEntity.ok(response);
+        if (!messageIngestPipeline.isEnabled()) {
+            ChatMessage savedMessage = chatMessageService.addMessage(request);
+            return ResponseEntity.ok(chatMessageMapper.toDto(savedMessage));
+        }
+        MessageIngestPipeline.PendingMessage pending = chatMessageService.enqueueMessage(request);
+        if (messageIngestPipeline.acknowledgesAfterCommit()) {
+            Optional<ChatMessage> savedMessage = messageIngestPipeline.awaitCommit(pending);
+            if (savedMessage.isPresent()) {
+                return ResponseEntity.ok(chatMessageMapper.toDto(savedMessage.get()));
+            }
+        }
+        ChatMessageAck ack = new ChatMessageAck(pending.sequence(), sessionId, pending.message().getCreatedAt());
+        return ResponseEntity.accepted().body(ack);
     }
 
     /**
@@ -63,9 +102,44 @@ public class ChatMessageController {
      */
     @GetMapping
     public ResponseEntity<Page<ChatMessageResponse>> getMessages(@PathVariable Long sessionId, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
-        ChatSession session = chatSessionService.getSession(sessionId).orElseThrow();
+        ChatSession session = chatSessionService.getSessionReference(sessionId).orElseThrow();
         Page<ChatMessage> messages = chatMessageService.getMessages(session, page, size);
         Page<ChatMessageResponse> responses = messages.map(chatMessageMapper::toDto);
         return ResponseEntity.ok(responses);
     }
+
+    /**
+     * Retrieves a keyset-paginated slice of messages for the specified chat session.
+     * Selected when the 'limit' parameter is present. Without a cursor the newest messages
+     * are returned; pass the returned nextCursor back as 'before' (older) or 'after' (newer).
+     * The compact {"messages":[..],"nextCursor":..,"hasMore":..} envelope is streamed straight
+     * to the response without building DTOs.
+     * @param sessionId the ID of the chat session
+     * @param limit the maximum number of messages to return
+     * @param after optional cursor to read messages newer than
+     * @param before optional cursor to read messages older than
+     * @param response the HTTP response the page is written to
+     * @throws IOException if writing the response fails
+     */
+    @GetMapping(params = "limit", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void getMessagesByCursor(
+        @PathVariable Long sessionId,
+        @RequestParam int limit,
+        @RequestParam(required = false) String after,
+        @RequestParam(required = false) String before,
+        HttpServletResponse response
+    ) throws IOException {
+        if (limit < 1) {
+            throw new InvalidRequestException("'limit' must be positive");
+        }
+        chatSessionService.findLiveUserId(sessionId).orElseThrow();
+        MessagePage page = chatMessageService.getMessages(
+            sessionId,
+            after != null ? MessageCursor.decode(after) : null,
+            before != null ? MessageCursor.decode(before) : null,
+            Math.min(limit, maxPageLimit)
+        );
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        chatMessageJsonWriter.writePage(response.getOutputStream(), page);
+    }
 }
@@ -0,0 +1,106 @@
+package org.example.controller;
+
+import org.example.service.ChatMessageService;
+import org.example.service.ChatSessionService;
+import org.example.service.InvalidRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * REST controller for bulk export of chat history.
+ * Exports are streamed as NDJSON (one message object per line, each carrying its sessionId),
+ * optionally gzip-compressed, straight from a database cursor to the response.
+ */
+@RestController
+@RequestMapping("/sessions")
+public class ChatMessageExportController {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    /**
+     * Service for managing chat sessions.
+     */
+    @Autowired
+    private ChatSessionService chatSessionService;
+    /**
+     * Service for managing chat messages.
+     */
+    @Autowired
+    private ChatMessageService chatMessageService;
+
+    /**
+     * Exports the full message history of a chat session.
+     * @param sessionId the ID of the chat session
+     * @param format 'ndjson' (default) or 'gzip' for gzip-compressed NDJSON
+     * @return the streamed export
+     */
+    @GetMapping("/{sessionId}/messages/export")
+    public ResponseEntity<StreamingResponseBody> exportSession(
+        @PathVariable Long sessionId,
+        @RequestParam(defaultValue = "ndjson") String format
+    ) {
+        chatSessionService.findLiveUserId(sessionId).orElseThrow();
+        boolean gzip = isGzip(format);
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                chatMessageService.exportSession(sessionId, compressed);
+                compressed.finish();
+            } else {
+                chatMessageService.exportSession(sessionId, out);
+            }
+        };
+        return attachment("session-" + sessionId, gzip, body);
+    }
+
+    /**
+     * Exports the message history of every live session of a user.
+     * @param userId the user ID
+     * @param format 'ndjson' (default) or 'gzip' for gzip-compressed NDJSON
+     * @return the streamed export
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUser(
+        @RequestParam String userId,
+        @RequestParam(defaultValue = "ndjson") String format
+    ) {
+        boolean gzip = isGzip(format);
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                chatMessageService.exportUser(userId, compressed);
+                compressed.finish();
+            } else {
+                chatMessageService.exportUser(userId, out);
+            }
+        };
+        return attachment("user-export", gzip, body);
+    }
+
+    private static boolean isGzip(String format) {
+        if ("gzip".equalsIgnoreCase(format)) {
+            return true;
+        }
+        if ("ndjson".equalsIgnoreCase(format)) {
+            return false;
+        }
+        throw new InvalidRequestException("'format' must be 'ndjson' or 'gzip'");
+    }
+
+    private static ResponseEntity<StreamingResponseBody> attachment(String name, boolean gzip, StreamingResponseBody body) {
+        ContentDisposition disposition = ContentDisposition.attachment()
+            .filename(name + (gzip ? ".ndjson.gz" : ".ndjson"))
+            .build();
+        return ResponseEntity.ok()
+            .contentType(gzip ? GZIP : NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+            .body(body);
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.controller;
+
+import org.example.service.ChatSessionService;
+import org.example.stream.MessageStreamHub;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Optional;
+
+/**
+ * REST controller for server-sent event streams of newly committed chat messages.
+ * Each event is named 'message' and carries the message with its sessionId as JSON; its ID is a
+ * cursor, so clients that reconnect with Last-Event-ID receive what they missed.
+ */
+@RestController
+public class ChatMessageStreamController {
+    /**
+     * Service for managing chat sessions.
+     */
+    @Autowired
+    private ChatSessionService chatSessionService;
+    /**
+     * Hub holding the open streams of this replica.
+     */
+    @Autowired
+    private MessageStreamHub messageStreamHub;
+
+    /**
+     * Streams the new messages of a session.
+     * @param sessionId the ID of the chat session
+     * @param lastEventId optional ID of the last event received, to resume after it
+     * @return the event stream, or 503 if this replica cannot take more streams
+     */
+    @GetMapping(path = "/sessions/{sessionId}/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamSession(
+        @PathVariable Long sessionId,
+        @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        chatSessionService.findLiveUserId(sessionId).orElseThrow();
+        return respond(messageStreamHub.subscribeSession(sessionId, lastEventId));
+    }
+
+    /**
+     * Streams the new messages of all live sessions of a user.
+     * @param userId the user ID
+     * @param lastEventId optional ID of the last event received, to resume after it
+     * @return the event stream, or 503 if this replica cannot take more streams
+     */
+    @GetMapping(path = "/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamUser(
+        @RequestParam String userId,
+        @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        return respond(messageStreamHub.subscribeUser(userId, lastEventId));
+    }
+
+    private static ResponseEntity<SseEmitter> respond(Optional<SseEmitter> emitter) {
+        return emitter
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .build());
+    }
+}
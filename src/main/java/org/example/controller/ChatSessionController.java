@@ -5,6 +5,7 @@ import org.example.dto.ChatSessionResponse;
 import org.example.model.ChatSession;
 import org.example.service.ChatSessionService;
 import org.example.mapper.ChatSessionMapper;
+import org.example.security.ApiKeyScope;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -29,6 +30,9 @@ public class ChatSessionController {
     @Autowired
     private ChatSessionMapper chatSessionMapper;
 
+    @Autowired
+    private ApiKeyScope apiKeyScope;
+
     /**
      * Creates a new chat session for a user.
      * @param request the chat session request body
@@ -36,6 +40,7 @@ public class ChatSessionController {
      */
     @PostMapping
     public ResponseEntity<ChatSessionResponse> createSession(@Valid @RequestBody ChatSessionRequest request) {
+        apiKeyScope.checkUser(request.getUserId());
         ChatSession savedSession = chatSessionService.createSession(request);
         ChatSessionResponse response = chatSessionMapper.toDto(savedSession);
         return ResponseEntity.ok(response);
@@ -0,0 +1,65 @@
+package org.example.controller;
+
+import org.example.dto.MessageSearchResponse;
+import org.example.dto.SearchCursor;
+import org.example.service.InvalidRequestException;
+import org.example.service.MessageSearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+/**
+ * REST controller for full-text search over chat messages.
+ */
+@RestController
+@RequestMapping("/messages")
+public class MessageSearchController {
+    /**
+     * Service for searching chat messages.
+     */
+    @Autowired
+    private MessageSearchService messageSearchService;
+    /**
+     * Upper bound for the 'limit' parameter of searches.
+     */
+    @Value("${messages.search.max-limit:50}")
+    private int maxSearchLimit;
+
+    /**
+     * Searches the messages of a user's sessions, best match first.
+     * Matched terms are highlighted in each snippet with {@code <mark>} tags; pass the
+     * returned nextCursor back as 'cursor' for the next page.
+     * @param userId the user whose sessions are searched
+     * @param q the query, in web search syntax ("quoted phrase", -excluded, or)
+     * @param sessionId optional session to restrict the search to
+     * @param from optional inclusive lower bound on the message creation time (ISO-8601)
+     * @param to optional exclusive upper bound on the message creation time (ISO-8601)
+     * @param cursor optional cursor from the previous page
+     * @param limit the maximum number of hits to return (default: 20)
+     * @return one page of search hits
+     */
+    @GetMapping("/search")
+    public ResponseEntity<MessageSearchResponse> search(
+        @RequestParam String userId,
+        @RequestParam String q,
+        @RequestParam(required = false) Long sessionId,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int limit
+    ) {
+        if (q.isBlank()) {
+            throw new InvalidRequestException("'q' must not be blank");
+        }
+        if (limit < 1) {
+            throw new InvalidRequestException("'limit' must be positive");
+        }
+        SearchCursor after = cursor != null ? SearchCursor.decode(cursor) : null;
+        return ResponseEntity.ok(messageSearchService.search(userId, q, sessionId, from, to, after,
+            Math.min(limit, maxSearchLimit)));
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.example.dto.TranscriptImportResult;
+import org.example.security.ApiKeyScope;
+import org.example.service.TranscriptImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * REST controller for bulk import of chat transcripts.
+ */
+@RestController
+@RequestMapping("/sessions")
+public class TranscriptImportController {
+    /**
+     * Service for importing transcripts.
+     */
+    @Autowired
+    private TranscriptImportService transcriptImportService;
+
+    @Autowired
+    private ApiKeyScope apiKeyScope;
+
+    /**
+     * Imports an NDJSON transcript sent as the request body, optionally gzip-compressed
+     * ('Content-Encoding: gzip' or 'Content-Type: application/gzip').
+     * Re-sending the same input with the same importId resumes after the last committed batch.
+     * Records may name any user, so API keys scoped to users cannot import.
+     * @param importId identifies the import across retries; generated when absent
+     * @param userId user ID for records that do not carry one
+     * @param request the HTTP request whose body is the NDJSON input
+     * @return the import outcome
+     * @throws IOException if reading the body fails
+     */
+    @PostMapping("/import")
+    public ResponseEntity<TranscriptImportResult> importTranscripts(
+        @RequestParam(required = false) String importId,
+        @RequestParam(required = false) String userId,
+        HttpServletRequest request
+    ) throws IOException {
+        apiKeyScope.checkUnrestricted();
+        InputStream in = request.getInputStream();
+        if ("gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))
+                || "application/gzip".equalsIgnoreCase(request.getContentType())) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        String id = importId != null ? importId : UUID.randomUUID().toString();
+        return ResponseEntity.ok(transcriptImportService.importTranscripts(id, userId, in));
+    }
+}
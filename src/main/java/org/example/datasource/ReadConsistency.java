@@ -0,0 +1,120 @@
+package org.example.datasource;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.function.Supplier;
+
+/**
+ * Read-your-writes bookkeeping for the current HTTP request.
+ * A request that commits a write gets the primary's WAL position back in the
+ * 'X-Consistency-Token' response header. Requests that send the token back are only served by
+ * replicas that have replayed at least that far, and reads following a write within the same
+ * request always go to the primary. Outside of a request nothing is constrained.
+ */
+public final class ReadConsistency {
+    /**
+     * Header carrying the consistency token, in both directions.
+     */
+    public static final String TOKEN_HEADER = "X-Consistency-Token";
+
+    private static final String WROTE = ReadConsistency.class.getName() + ".wrote";
+    private static final String REQUIRED_LSN = ReadConsistency.class.getName() + ".requiredLsn";
+    private static final String TOKEN_PENDING = ReadConsistency.class.getName() + ".tokenPending";
+
+    private ReadConsistency() {
+    }
+
+    /**
+     * Whether the current request has written through the primary, so later reads must see it.
+     * @return true after a read-write transaction used the primary in this request
+     */
+    public static boolean wrote() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null && attributes.getAttribute(WROTE, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+
+    /**
+     * Returns the WAL position a replica must have replayed to serve the current request.
+     * @return the position from the request's consistency token, 0 if there is none,
+     *         or {@link Long#MAX_VALUE} if the token is malformed (forcing the primary)
+     */
+    public static long requiredLsn() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return 0;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        Object cached = request.getAttribute(REQUIRED_LSN);
+        if (cached instanceof Long lsn) {
+            return lsn;
+        }
+        String token = request.getHeader(TOKEN_HEADER);
+        long lsn;
+        try {
+            lsn = token == null || token.isBlank() ? 0 : parseLsn(token.trim());
+        } catch (IllegalArgumentException ex) {
+            lsn = Long.MAX_VALUE;
+        }
+        request.setAttribute(REQUIRED_LSN, lsn);
+        return lsn;
+    }
+
+    /**
+     * Records that the current transaction writes through the primary. Once it commits, the
+     * primary's WAL position is returned to the client as the consistency token.
+     * @param currentLsn queries the primary's current WAL position, as text
+     */
+    static void markWrite(Supplier<String> currentLsn) {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return;
+        }
+        attributes.setAttribute(WROTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        HttpServletResponse response = attributes.getResponse();
+        if (response == null || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(TOKEN_PENDING)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(TOKEN_PENDING, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (!response.isCommitted()) {
+                    response.setHeader(TOKEN_HEADER, currentLsn.get());
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TOKEN_PENDING);
+            }
+        });
+    }
+
+    /**
+     * Parses a Postgres WAL position ('16/B374D848') into a comparable number.
+     * @param lsn the textual position
+     * @return the position as an unsigned 64-bit value
+     * @throws IllegalArgumentException if the text is not a WAL position
+     */
+    public static long parseLsn(String lsn) {
+        int slash = lsn.indexOf('/');
+        if (slash <= 0 || slash == lsn.length() - 1) {
+            throw new IllegalArgumentException("Invalid consistency token");
+        }
+        try {
+            long high = Long.parseLong(lsn, 0, slash, 16);
+            long low = Long.parseLong(lsn, slash + 1, lsn.length(), 16);
+            if (high > 0xFFFFFFFFL || low > 0xFFFFFFFFL) {
+                throw new IllegalArgumentException("Invalid consistency token");
+            }
+            return high << 32 | low;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid consistency token", ex);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.datasource;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves read-only connections from a set of replica pools, falling back to the primary.
+ * Replicas are picked round-robin among those that are healthy and, when the current request
+ * carries a consistency token, have replayed past it ({@link ReadConsistency}); reads following a
+ * write in the same request use the primary. A background check polls each replica's replay
+ * position every 'healthInterval' and takes it out of rotation when it is unreachable or more
+ * than 'maxLagBytes' of WAL behind the primary. A replica that fails to hand out a connection is
+ * taken out immediately and the next candidate is tried.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final String PRIMARY_LSN = "SELECT pg_current_wal_lsn()::text";
+    // A primary used as a stand-in replica has no replay position; it is always current.
+    private static final String REPLAY_LSN = "SELECT COALESCE(pg_last_wal_replay_lsn(), pg_current_wal_lsn())::text";
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Duration healthInterval;
+    private final long maxLagBytes;
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService healthChecks;
+
+    /**
+     * A replica pool and its last observed state.
+     */
+    static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy;
+        private volatile long replayLsn;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    /**
+     * Creates the router; replicas start out of rotation until their first health check.
+     * The replica pools are owned by the router and closed when it stops.
+     * @param primary the primary pool, used when no replica qualifies
+     * @param replicas replica pools keyed by a display name, in a stable order
+     * @param healthInterval how often replicas are checked
+     * @param maxLagBytes WAL distance behind the primary beyond which a replica is not used
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                    Duration healthInterval, long maxLagBytes) {
+        this.primary = primary;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        this.healthInterval = healthInterval;
+        this.maxLagBytes = maxLagBytes;
+    }
+
+    @PostConstruct
+    public void start() {
+        checkHealth();
+        healthChecks = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecks.scheduleWithFixedDelay(this::checkHealth, healthInterval.toMillis(), healthInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (healthChecks != null) {
+            healthChecks.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable pool) {
+                try {
+                    pool.close();
+                } catch (Exception ex) {
+                    logger.warn("Failed to close replica pool {}", replica.name, ex);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!ReadConsistency.wrote()) {
+            long requiredLsn = ReadConsistency.requiredLsn();
+            int start = next.getAndIncrement();
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+                if (!replica.healthy || Long.compareUnsigned(replica.replayLsn, requiredLsn) < 0) {
+                    continue;
+                }
+                try {
+                    return replica.dataSource.getConnection();
+                } catch (SQLException ex) {
+                    markDown(replica, ex);
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * Replica pools hold the configured credentials, so connections for other credentials come from the primary.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * Polls the primary's WAL position and each replica's replay position.
+     */
+    void checkHealth() {
+        long primaryLsn;
+        try {
+            primaryLsn = queryLsn(primary, PRIMARY_LSN);
+        } catch (SQLException | RuntimeException ex) {
+            // Without the primary's position, judge replicas by reachability alone.
+            primaryLsn = 0;
+        }
+        for (Replica replica : replicas) {
+            long replayLsn;
+            try {
+                replayLsn = queryLsn(replica.dataSource, REPLAY_LSN);
+            } catch (SQLException | RuntimeException ex) {
+                markDown(replica, ex);
+                continue;
+            }
+            long lag = primaryLsn == 0 ? 0 : primaryLsn - replayLsn;
+            update(replica, lag <= maxLagBytes, replayLsn);
+        }
+    }
+
+    /**
+     * Sets a replica's observed state; package-private for tests.
+     */
+    void update(int index, boolean healthy, long replayLsn) {
+        update(replicas.get(index), healthy, replayLsn);
+    }
+
+    private void update(Replica replica, boolean healthy, long replayLsn) {
+        replica.replayLsn = replayLsn;
+        if (healthy != replica.healthy) {
+            logger.info("Replica {} is {}", replica.name, healthy ? "in rotation" : "lagging, out of rotation");
+        }
+        replica.healthy = healthy;
+    }
+
+    private void markDown(Replica replica, Exception cause) {
+        if (replica.healthy) {
+            logger.warn("Replica {} is unreachable, out of rotation", replica.name, cause);
+        }
+        replica.healthy = false;
+    }
+
+    private static long queryLsn(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            if (!rs.next() || rs.getString(1) == null) {
+                throw new SQLException("No WAL position returned");
+            }
+            return ReadConsistency.parseLsn(rs.getString(1));
+        }
+    }
+}
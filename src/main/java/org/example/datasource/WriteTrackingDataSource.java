@@ -0,0 +1,35 @@
+package org.example.datasource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The primary pool, noting read-write transactions of the current request in {@link ReadConsistency}
+ * so that later reads stay on the primary and the client receives a consistency token.
+ */
+public class WriteTrackingDataSource extends DelegatingDataSource {
+    private final JdbcTemplate primaryJdbcTemplate;
+
+    /**
+     * Wraps the primary pool.
+     * @param primary the primary pool
+     */
+    public WriteTrackingDataSource(DataSource primary) {
+        super(primary);
+        this.primaryJdbcTemplate = new JdbcTemplate(primary);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            ReadConsistency.markWrite(() -> primaryJdbcTemplate.queryForObject("SELECT pg_current_wal_lsn()::text", String.class));
+        }
+        return super.getConnection();
+    }
+}
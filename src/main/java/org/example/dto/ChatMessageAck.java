@@ -0,0 +1,18 @@
+package org.example.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatMessageAck {
+    private long sequence;
+    private Long sessionId;
+    private Instant createdAt;
+}
@@ -0,0 +1,17 @@
+package org.example.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatMessageBatchItem {
+    private Long sessionId;
+    private String sender;
+    private String content;
+    private String context;
+}
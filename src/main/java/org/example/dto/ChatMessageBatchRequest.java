@@ -0,0 +1,16 @@
+package org.example.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatMessageBatchRequest {
+    private List<ChatMessageBatchItem> messages;
+}
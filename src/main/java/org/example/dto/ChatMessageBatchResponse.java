@@ -0,0 +1,19 @@
+package org.example.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatMessageBatchResponse {
+    private int accepted;
+    private int rejected;
+    private int failed;
+    private List<ChatMessageBatchResult> results;
+}
@@ -0,0 +1,17 @@
+package org.example.dto;
+
+import java.time.Instant;
+
+/**
+ * Immutable snapshot of a non-deleted chat session, as held by the session caches.
+ * Cached instances are shared between requests, so the caches never hold the mutable entity.
+ * @param id the session ID
+ * @param userId the owning user ID
+ * @param name the session name
+ * @param favorite whether the session is marked as favorite
+ * @param createdAt when the session was created
+ * @param updatedAt when the session was last updated
+ */
+public record ChatSessionView(Long id, String userId, String name, Boolean favorite, Instant createdAt,
+                              Instant updatedAt) {
+}
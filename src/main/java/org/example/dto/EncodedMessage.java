@@ -0,0 +1,13 @@
+package org.example.dto;
+
+import java.time.Instant;
+
+/**
+ * A chat message already serialized to its JSON wire form.
+ * Keeps the keyset fields alongside the bytes so encoded messages can be ordered and paged.
+ * @param id the message ID
+ * @param createdAt the message creation timestamp
+ * @param json the UTF-8 JSON object for the message
+ */
+public record EncodedMessage(Long id, Instant createdAt, byte[] json) {
+}
@@ -0,0 +1,67 @@
+package org.example.dto;
+
+import org.example.model.ChatMessage;
+import org.example.service.InvalidRequestException;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position within a session's message history.
+ * Encodes the (createdAt, id) pair of a message so that pages can be fetched
+ * with an indexed range scan instead of an OFFSET.
+ */
+public record MessageCursor(Instant createdAt, long id) {
+    private static final int ENCODED_BYTES = 2 * Long.BYTES;
+
+    /**
+     * Creates a cursor pointing at the given message.
+     * @param message the message to point at
+     * @return the cursor for the message
+     */
+    public static MessageCursor of(ChatMessage message) {
+        return new MessageCursor(message.getCreatedAt(), message.getId());
+    }
+
+    /**
+     * Creates a cursor pointing at the given message.
+     * @param message the encoded message to point at
+     * @return the cursor for the message
+     */
+    public static MessageCursor of(EncodedMessage message) {
+        return new MessageCursor(message.createdAt(), message.id());
+    }
+
+    /**
+     * Encodes this cursor as a URL-safe token.
+     * @return the opaque cursor token
+     */
+    public String encode() {
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, createdAt);
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_BYTES).putLong(micros).putLong(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     * @param token the opaque cursor token
+     * @return the decoded cursor
+     * @throws InvalidRequestException if the token is malformed
+     */
+    public static MessageCursor decode(String token) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidRequestException("Invalid cursor", ex);
+        }
+        if (bytes.length != ENCODED_BYTES) {
+            throw new InvalidRequestException("Invalid cursor");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        Instant createdAt = Instant.EPOCH.plus(buffer.getLong(), ChronoUnit.MICROS);
+        return new MessageCursor(createdAt, buffer.getLong());
+    }
+}
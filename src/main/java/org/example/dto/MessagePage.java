@@ -0,0 +1,25 @@
+package org.example.dto;
+
+import org.example.model.ChatMessage;
+
+import java.util.List;
+
+/**
+ * One keyset page of messages, oldest first, ready to be streamed as JSON.
+ * Holds either entities read from the database or messages already encoded by the tail cache;
+ * exactly one of the two lists is non-null.
+ * @param messages the message entities, or null
+ * @param encodedMessages the pre-encoded messages, or null
+ * @param nextCursor cursor continuing in the requested direction, or null when exhausted
+ * @param hasMore whether more messages exist in the requested direction
+ */
+public record MessagePage(List<ChatMessage> messages, List<EncodedMessage> encodedMessages,
+                          String nextCursor, boolean hasMore) {
+    public static MessagePage ofEntities(List<ChatMessage> messages, String nextCursor, boolean hasMore) {
+        return new MessagePage(messages, null, nextCursor, hasMore);
+    }
+
+    public static MessagePage ofEncoded(List<EncodedMessage> encodedMessages, String nextCursor, boolean hasMore) {
+        return new MessagePage(null, encodedMessages, nextCursor, hasMore);
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSearchHit {
+    private Long id;
+    private Long sessionId;
+    private String sender;
+    private String snippet;
+    private Instant createdAt;
+    private float score;
+}
@@ -0,0 +1,44 @@
+package org.example.dto;
+
+import org.example.service.InvalidRequestException;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Opaque position within ranked search results.
+ * Encodes the (score, id) pair of the last hit of a page; the next page continues with
+ * hits ranked strictly lower, ties broken by descending message ID.
+ */
+public record SearchCursor(float score, long id) {
+    private static final int ENCODED_BYTES = Float.BYTES + Long.BYTES;
+
+    /**
+     * Encodes this cursor as a URL-safe token.
+     * @return the opaque cursor token
+     */
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_BYTES).putFloat(score).putLong(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     * @param token the opaque cursor token
+     * @return the decoded cursor
+     * @throws InvalidRequestException if the token is malformed
+     */
+    public static SearchCursor decode(String token) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidRequestException("Invalid cursor", ex);
+        }
+        if (bytes.length != ENCODED_BYTES) {
+            throw new InvalidRequestException("Invalid cursor");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new SearchCursor(buffer.getFloat(), buffer.getLong());
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TranscriptImportResult {
+    private String importId;
+    private long recordsSkipped;
+    private long recordsImported;
+    private long sessionsCreated;
+    private long recordsCommitted;
+    private boolean completed;
+}
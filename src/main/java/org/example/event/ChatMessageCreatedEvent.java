@@ -0,0 +1,15 @@
+package org.example.event;
+
+import org.example.model.ChatMessage;
+
+/**
+ * Published inside the transaction that inserts a chat message.
+ * Listeners that must only see committed data use {@code @TransactionalEventListener}.
+ * @param sessionId the ID of the session the message belongs to
+ * @param message the persisted message
+ */
+public record ChatMessageCreatedEvent(Long sessionId, ChatMessage message) {
+    public ChatMessageCreatedEvent(ChatMessage message) {
+        this(message.getSession().getId(), message);
+    }
+}
@@ -0,0 +1,8 @@
+package org.example.event;
+
+/**
+ * Published inside the transaction that deletes a chat session.
+ * @param sessionId the ID of the deleted session
+ */
+public record ChatSessionDeletedEvent(Long sessionId) {
+}
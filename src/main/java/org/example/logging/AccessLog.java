@@ -0,0 +1,51 @@
+package org.example.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes access-log records to the 'access' logger, one per request, as key=value pairs:
+ * {@code method=GET path=/sessions/42/messages status=200 durationMs=3 client=10.0.0.7}.
+ * Successful requests are sampled; client errors are always logged at INFO and server errors
+ * at WARN, which the asynchronous appender keeps longest under pressure (see logback-spring.xml).
+ * The sampling decision comes first, so a request that is not logged allocates nothing.
+ */
+public final class AccessLog {
+    private static final Logger logger = LoggerFactory.getLogger("access");
+
+    private final double sampleRate;
+
+    /**
+     * Creates an access log.
+     * @param sampleRate fraction of successful requests (status below 400) to log, from 0 to 1
+     */
+    public AccessLog(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Records a finished request, subject to sampling.
+     * @param method the HTTP method
+     * @param path the request path, without the query string
+     * @param status the response status
+     * @param durationNanos time spent handling the request
+     * @param client the client address
+     */
+    public void record(String method, String path, int status, long durationNanos, String client) {
+        if (status < 400 && (sampleRate <= 0 || sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return;
+        }
+        if (status >= 500) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("method={} path={} status={} durationMs={} client={}",
+                        method, path, status, TimeUnit.NANOSECONDS.toMillis(durationNanos), client);
+            }
+        } else if (logger.isInfoEnabled()) {
+            logger.info("method={} path={} status={} durationMs={} client={}",
+                    method, path, status, TimeUnit.NANOSECONDS.toMillis(durationNanos), client);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.mapper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import org.example.dto.EncodedMessage;
+import org.example.dto.MessagePage;
+import org.example.model.ChatMessage;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Writes chat messages as JSON with Jackson's streaming generator, bypassing DTO mapping and
+ * reflective serialization. Produces the same message objects as ChatMessageResponse:
+ * {"id":..,"sender":..,"content":..,"context":..,"createdAt":"ISO-8601"}.
+ * Page envelopes are {"messages":[..],"nextCursor":..,"hasMore":..}.
+ */
+@Component
+public class ChatMessageJsonWriter {
+    private static final byte[] MESSAGES_START = "{\"messages\":[".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NEXT_CURSOR = "],\"nextCursor\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HAS_MORE = ",\"hasMore\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE_END = "true}".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE_END = "false}".getBytes(StandardCharsets.US_ASCII);
+
+    private final JsonFactory jsonFactory = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    /**
+     * Serializes a single message once, for reuse by caches and streams.
+     * @param message the message entity
+     * @return the message with its JSON bytes
+     */
+    public EncodedMessage encode(ChatMessage message) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(96 + length(message.getContent()) + length(message.getContext()));
+        try (JsonGenerator generator = jsonFactory.createGenerator(buffer)) {
+            writeMessage(generator, message);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return new EncodedMessage(message.getId(), message.getCreatedAt(), buffer.toByteArray());
+    }
+
+    /**
+     * Streams a page envelope and its messages to the given output.
+     * Pre-encoded messages are copied as raw bytes; entities are written field by field.
+     * @param out the target stream, left open
+     * @param page the page to write
+     * @throws IOException if writing fails
+     */
+    public void writePage(OutputStream out, MessagePage page) throws IOException {
+        if (page.encodedMessages() != null) {
+            writeEncodedPage(out, page.encodedMessages(), page.nextCursor(), page.hasMore());
+            return;
+        }
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("messages");
+            for (ChatMessage message : page.messages()) {
+                writeMessage(generator, message);
+            }
+            generator.writeEndArray();
+            generator.writeStringField("nextCursor", page.nextCursor());
+            generator.writeBooleanField("hasMore", page.hasMore());
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Opens a generator on the given stream, for callers writing many messages in sequence.
+     * @param out the target stream, left open when the generator is closed
+     * @return a new generator
+     * @throws IOException if the generator cannot be created
+     */
+    public JsonGenerator createGenerator(OutputStream out) throws IOException {
+        return jsonFactory.createGenerator(out);
+    }
+
+    /**
+     * Writes one message as a newline-terminated NDJSON line, prefixed with its session ID.
+     * The session ID is read from the association without initializing it.
+     * @param generator the generator to write with
+     * @param message the message entity
+     * @throws IOException if writing fails
+     */
+    public void writeExportLine(JsonGenerator generator, ChatMessage message) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("sessionId", message.getSession().getId());
+        writeMessageFields(generator, message);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * Writes one message object with the given generator.
+     * @param generator the generator to write with
+     * @param message the message entity
+     * @throws IOException if writing fails
+     */
+    public void writeMessage(JsonGenerator generator, ChatMessage message) throws IOException {
+        generator.writeStartObject();
+        writeMessageFields(generator, message);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes the fields of one message into an object the caller has already opened.
+     * @param generator the generator to write with
+     * @param message the message entity
+     * @throws IOException if writing fails
+     */
+    public void writeMessageFields(JsonGenerator generator, ChatMessage message) throws IOException {
+        if (message.getId() == null) {
+            generator.writeNullField("id");
+        } else {
+            generator.writeNumberField("id", message.getId());
+        }
+        generator.writeStringField("sender", message.getSender());
+        generator.writeStringField("content", message.getContent());
+        generator.writeStringField("context", message.getContext());
+        Instant createdAt = message.getCreatedAt();
+        generator.writeStringField("createdAt", createdAt != null ? createdAt.toString() : null);
+    }
+
+    private static void writeEncodedPage(OutputStream out, List<EncodedMessage> messages,
+                                         String nextCursor, boolean hasMore) throws IOException {
+        out.write(MESSAGES_START);
+        for (int i = 0; i < messages.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(messages.get(i).json());
+        }
+        out.write(NEXT_CURSOR);
+        if (nextCursor == null) {
+            out.write(NULL);
+        } else {
+            // Cursors are base64url, which never needs JSON escaping.
+            out.write('"');
+            out.write(nextCursor.getBytes(StandardCharsets.US_ASCII));
+            out.write('"');
+        }
+        out.write(HAS_MORE);
+        out.write(hasMore ? TRUE_END : FALSE_END);
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
@@ -4,9 +4,13 @@ import org.example.model.ChatMessage;
 import org.example.dto.ChatMessageRequest;
 import org.example.dto.ChatMessageResponse;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring")
 public interface ChatMessageMapper {
     ChatMessageResponse toDto(ChatMessage entity);
+
+    @Mapping(target = "contextData", ignore = true)
+    @Mapping(target = "contextHash", ignore = true)
     ChatMessage toEntity(ChatMessageRequest dto);
 }
@@ -3,10 +3,17 @@ package org.example.mapper;
 import org.example.model.ChatSession;
 import org.example.dto.ChatSessionRequest;
 import org.example.dto.ChatSessionResponse;
+import org.example.dto.ChatSessionView;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring")
 public interface ChatSessionMapper {
     ChatSessionResponse toDto(ChatSession entity);
+    ChatSessionResponse toDto(ChatSessionView view);
+
+    @Mapping(target = "favorite", source = "isFavorite")
+    ChatSessionView toView(ChatSession entity);
+
     ChatSession toEntity(ChatSessionRequest dto);
 }
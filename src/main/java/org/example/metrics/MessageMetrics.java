@@ -0,0 +1,59 @@
+package org.example.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.example.event.ChatMessageCreatedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Message throughput meters.
+ * 'chat.messages.appended' counts committed messages, whichever way they were written, and
+ * 'chat.messages.read' counts messages returned by page reads, tagged with the 'source' that
+ * served them ('tail-cache' or 'database'). Throughput is the rate of these counters, e.g.
+ * {@code rate(chat_messages_appended_total[1m])} in Prometheus.
+ */
+@Component
+public class MessageMetrics {
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter appended;
+    private Counter readFromCache;
+    private Counter readFromDatabase;
+
+    @PostConstruct
+    public void init() {
+        appended = Counter.builder("chat.messages.appended")
+                .description("Messages committed")
+                .register(meterRegistry);
+        readFromCache = Counter.builder("chat.messages.read")
+                .description("Messages returned by page reads")
+                .tag("source", "tail-cache")
+                .register(meterRegistry);
+        readFromDatabase = Counter.builder("chat.messages.read")
+                .description("Messages returned by page reads")
+                .tag("source", "database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts a message once its transaction has committed.
+     * @param event the message creation event
+     */
+    @TransactionalEventListener
+    public void onMessageCreated(ChatMessageCreatedEvent event) {
+        appended.increment();
+    }
+
+    /**
+     * Counts messages returned by a page read.
+     * @param count the number of messages returned
+     * @param fromCache whether the page was served by the tail cache
+     */
+    public void recordRead(int count, boolean fromCache) {
+        (fromCache ? readFromCache : readFromDatabase).increment(count);
+    }
+}
@@ -1,27 +1,40 @@
 package org.example.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.example.storage.MessageContextStore;
 import org.springframework.data.annotation.CreatedDate;
 
 import java.time.Instant;
 
 /**
  * Entity representing a chat message within a chat session.
+ * The context is stored compressed and possibly deduplicated by {@link MessageContextStore}.
  */
 @Entity
-@Table(name = "chat_messages")
+@EntityListeners(MessageContextStore.class)
+@Table(name = "chat_messages", indexes = {
+    @Index(name = "idx_chat_messages_session_created_id", columnList = "session_id, created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class ChatMessage {
+    /**
+     * Number of IDs reserved per call to chat_messages_seq (pooled optimizer: a call
+     * returning v reserves v - ID_ALLOCATION_SIZE + 1 through v).
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     /**
      * Unique identifier for the chat message.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_messages_seq")
+    @SequenceGenerator(name = "chat_messages_seq", sequenceName = "chat_messages_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     /**
@@ -37,16 +50,31 @@ public class ChatMessage {
      */
     private String sender;
     /**
-     * The content of the message.
+     * The content of the message; large values are compressed by Postgres (TOAST).
      */
+    @Column(columnDefinition = "text")
     private String content;
     /**
-     * Optional context for the message.
+     * Optional context for the message, decoded from its stored form on load.
      */
+    @Transient
     private String context;
     /**
-     * Timestamp when the message was created.
+     * Stored form of the context when it is kept inline (see PayloadCodec).
+     */
+    @JsonIgnore
+    @Column(name = "context", columnDefinition = "bytea")
+    private byte[] contextData;
+    /**
+     * Hash of the context in chat_contexts when it is deduplicated.
+     */
+    @JsonIgnore
+    @Column(name = "context_hash", columnDefinition = "bytea")
+    private byte[] contextHash;
+    /**
+     * Timestamp when the message was created; also the partition key of chat_messages.
      */
     @CreatedDate
+    @Column(nullable = false)
     private Instant createdAt = Instant.now();
 }
@@ -3,6 +3,8 @@ package org.example.model;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.*;
+import org.example.shard.SessionIdGenerator;
+import org.hibernate.annotations.GenericGenerator;
 import java.time.Instant;
 import java.util.List;
 
@@ -18,10 +20,11 @@ import java.util.List;
 @Builder
 public class ChatSession {
     /**
-     * Unique identifier for the chat session.
+     * Unique identifier for the chat session; its low bits hold the shard bucket of the user.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "chat_session_id")
+    @GenericGenerator(name = "chat_session_id", type = SessionIdGenerator.class)
     private Long id;
 
     /**
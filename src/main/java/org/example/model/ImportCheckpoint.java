@@ -0,0 +1,40 @@
+package org.example.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Progress of a transcript import, committed together with each imported batch.
+ * A failed import resumes by skipping the first {@code recordsCommitted} records of its input.
+ */
+@Entity
+@Table(name = "chat_import_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportCheckpoint {
+    /**
+     * Caller-chosen identifier of the import.
+     */
+    @Id
+    private String importId;
+    /**
+     * Number of input records whose messages have been committed.
+     */
+    private long recordsCommitted;
+    /**
+     * Number of sessions created by this import so far.
+     */
+    private long sessionsCreated;
+    /**
+     * Timestamp of the last committed batch.
+     */
+    private Instant updatedAt;
+    /**
+     * Timestamp when the whole input was consumed (if applicable).
+     */
+    private Instant completedAt;
+}
@@ -0,0 +1,40 @@
+package org.example.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Maps a session key from an import's input to the chat session created for it,
+ * so that a resumed import appends to the sessions it already created.
+ */
+@Entity
+@Table(name = "chat_import_sessions", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_chat_import_sessions_import_key", columnNames = {"import_id", "source_key"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportedSession {
+    /**
+     * Unique identifier for the mapping.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    /**
+     * The import that created the session.
+     */
+    @Column(name = "import_id", nullable = false)
+    private String importId;
+    /**
+     * The session key as it appears in the import input.
+     */
+    @Column(name = "source_key", nullable = false)
+    private String sourceKey;
+    /**
+     * The ID of the created chat session.
+     */
+    @Column(nullable = false)
+    private Long sessionId;
+}
@@ -0,0 +1,104 @@
+package org.example.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory rate limiter using the generic cell rate algorithm (GCRA).
+ * The whole state of a client is one long, its theoretical arrival time, updated with a
+ * compare-and-set loop, so checks never block. Clients live in a bounded Caffeine table
+ * (striped internally); a client idle for one period has a full allowance again, so its
+ * entry expires then, and the table evicts by size beyond 'maxKeys'.
+ * Allows bursts of up to 'limit' requests, refilled evenly over 'period'; a key may have a
+ * limit of its own, applied over the same period.
+ */
+public class GcraRateLimiter implements RateLimiter {
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private final long limit;
+    private final long emissionInterval;
+    private final long period;
+    private final long periodNanos;
+    private final LongSupplier clock;
+    private final Cache<String, AtomicLong> states;
+
+    /**
+     * Creates a limiter on the system nano clock.
+     * @param limit requests allowed per period
+     * @param period the period over which the allowance refills
+     * @param maxKeys maximum number of clients tracked at once
+     */
+    public GcraRateLimiter(long limit, Duration period, long maxKeys) {
+        this(limit, period, maxKeys, System::nanoTime);
+    }
+
+    GcraRateLimiter(long limit, Duration period, long maxKeys, LongSupplier clock) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Rate limit must be positive");
+        }
+        this.limit = limit;
+        this.emissionInterval = Math.max(1, period.toNanos() / limit);
+        this.period = emissionInterval * limit;
+        this.periodNanos = Math.max(this.period, period.toNanos());
+        this.clock = clock;
+        this.states = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(periodNanos, TimeUnit.NANOSECONDS)
+                .build();
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String key) {
+        return acquire(key, limit, emissionInterval, period);
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String key, long limit) {
+        if (limit == this.limit) {
+            return tryAcquire(key);
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Rate limit must be positive");
+        }
+        long emissionInterval = Math.max(1, periodNanos / limit);
+        return acquire(key, limit, emissionInterval, emissionInterval * limit);
+    }
+
+    private RateLimitDecision acquire(String key, long limit, long emissionInterval, long period) {
+        AtomicLong state = states.getIfPresent(key);
+        if (state == null) {
+            state = states.get(key, k -> new AtomicLong(UNSET));
+        }
+        long now = clock.getAsLong();
+        while (true) {
+            long stored = state.get();
+            long tat = stored == UNSET || stored - now < 0 ? now : stored;
+            long newTat = tat + emissionInterval;
+            long allowAt = newTat - period;
+            if (allowAt - now > 0) {
+                return RateLimitDecision.denied(limit, toSeconds(tat - now), toSeconds(allowAt - now));
+            }
+            if (state.compareAndSet(stored, newTat)) {
+                long remaining = (period - (newTat - now)) / emissionInterval;
+                return RateLimitDecision.allowed(limit, remaining, toSeconds(newTat - now));
+            }
+        }
+    }
+
+    /**
+     * Number of clients currently tracked.
+     * @return the approximate number of entries in the table
+     */
+    public long trackedKeys() {
+        return states.estimatedSize();
+    }
+
+    private static long toSeconds(long nanos) {
+        return (nanos + 999_999_999L) / 1_000_000_000L;
+    }
+}
@@ -0,0 +1,224 @@
+package org.example.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Cluster-wide rate limiter sharing each client's budget between replicas through Postgres.
+ * Budgets are fixed windows of 'period', aligned to the epoch so all replicas agree on them.
+ * A replica leases tokens from the shared window counter in chunks of 'leaseSize' and spends
+ * them locally, so only one request in 'leaseSize' makes a round trip; once the shared budget
+ * is exhausted the replica denies locally until the window ends.
+ * Counters live in the UNLOGGED rate_limit_buckets table (see V1__baseline.sql):
+ * they are cheap to write and losing them on a crash only resets the current windows. Client keys
+ * are stored hashed. A key with a limit of its own shares the window length and lease size.
+ * If Postgres is unreachable, checks fall back to a per-replica limiter. A failed round trip opens
+ * a circuit breaker: for 'retryInterval' checks go straight to the fallback, then a single request
+ * probes the database while the others keep using the fallback.
+ */
+public class PostgresLeasedRateLimiter implements RateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresLeasedRateLimiter.class);
+
+    private static final String LEASE = "INSERT INTO rate_limit_buckets AS b (bucket_key, window_start, used) " +
+            "VALUES (?, ?, ?) ON CONFLICT (bucket_key, window_start) DO UPDATE SET used = b.used + EXCLUDED.used " +
+            "RETURNING used";
+    private static final String PURGE = "DELETE FROM rate_limit_buckets WHERE window_start < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long limit;
+    private final long periodMillis;
+    private final long leaseSize;
+    private final LongSupplier clock;
+    private final long retryIntervalMillis;
+    private final RateLimiter fallback;
+    private final Cache<String, Lease> leases;
+    private final AtomicLong purgedBefore = new AtomicLong();
+    /**
+     * Clock time from which the database is tried again after a failure; 0 while it is healthy.
+     */
+    private volatile long retryAt;
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    /**
+     * Tokens this replica holds for one client in one window.
+     */
+    private static final class Lease {
+        private final long window;
+        private final long limit;
+        private final long leaseSize;
+        private final AtomicLong tokens = new AtomicLong();
+        private final ReentrantLock refill = new ReentrantLock();
+        private volatile long sharedRemaining;
+        private volatile boolean exhausted;
+
+        Lease(long window, long limit, long leaseSize) {
+            this.window = window;
+            this.limit = limit;
+            this.leaseSize = leaseSize;
+            this.sharedRemaining = limit;
+        }
+    }
+
+    /**
+     * Creates the limiter.
+     * @param jdbcTemplate access to the shared database, ideally with a short query timeout
+     * @param limit requests allowed per window across all replicas
+     * @param period the window length
+     * @param leaseSize tokens taken from the shared budget per round trip
+     * @param maxKeys maximum number of clients tracked locally at once
+     * @param retryInterval how long to use only the fallback after the database could not be reached
+     */
+    public PostgresLeasedRateLimiter(JdbcTemplate jdbcTemplate, long limit, Duration period, long leaseSize, long maxKeys,
+                                     Duration retryInterval) {
+        this(jdbcTemplate, limit, period, leaseSize, maxKeys, retryInterval, System::currentTimeMillis);
+    }
+
+    PostgresLeasedRateLimiter(JdbcTemplate jdbcTemplate, long limit, Duration period, long leaseSize, long maxKeys,
+                              LongSupplier clock) {
+        this(jdbcTemplate, limit, period, leaseSize, maxKeys, Duration.ofSeconds(10), clock);
+    }
+
+    PostgresLeasedRateLimiter(JdbcTemplate jdbcTemplate, long limit, Duration period, long leaseSize, long maxKeys,
+                              Duration retryInterval, LongSupplier clock) {
+        if (limit < 1 || leaseSize < 1) {
+            throw new IllegalArgumentException("Rate limit and lease size must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.limit = limit;
+        this.periodMillis = Math.max(1, period.toMillis());
+        this.leaseSize = leaseSize;
+        this.retryIntervalMillis = retryInterval.toMillis();
+        this.clock = clock;
+        this.fallback = new GcraRateLimiter(limit, period, maxKeys);
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(period)
+                .build();
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String key) {
+        return tryAcquire(key, limit);
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String key, long limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Rate limit must be positive");
+        }
+        long now = clock.getAsLong();
+        long window = now / periodMillis;
+        long resetSeconds = ((window + 1) * periodMillis - now + 999) / 1000;
+        Lease lease = currentLease(key, window, limit);
+        while (true) {
+            if (take(lease)) {
+                return RateLimitDecision.allowed(limit, lease.tokens.get() + lease.sharedRemaining, resetSeconds);
+            }
+            if (lease.exhausted) {
+                return RateLimitDecision.denied(limit, resetSeconds, resetSeconds);
+            }
+            lease.refill.lock();
+            try {
+                if (lease.tokens.get() <= 0 && !lease.exhausted && !refill(key, lease)) {
+                    return fallback.tryAcquire(key, limit);
+                }
+            } finally {
+                lease.refill.unlock();
+            }
+        }
+    }
+
+    private Lease currentLease(String key, long window, long limit) {
+        Lease lease = leases.getIfPresent(key);
+        if (lease != null && lease.window == window && lease.limit == limit) {
+            return lease;
+        }
+        Lease fresh = new Lease(window, limit, Math.min(leaseSize, limit));
+        return leases.asMap().compute(key, (k, existing) ->
+                existing != null && (existing.window > window || existing.window == window && existing.limit == limit)
+                        ? existing : fresh);
+    }
+
+    private static boolean take(Lease lease) {
+        long tokens;
+        do {
+            tokens = lease.tokens.get();
+            if (tokens <= 0) {
+                return false;
+            }
+        } while (!lease.tokens.compareAndSet(tokens, tokens - 1));
+        return true;
+    }
+
+    /**
+     * Leases another chunk of the shared budget; called with the lease's refill lock held.
+     * @return false if the database could not be reached or the circuit breaker is open
+     */
+    private boolean refill(String key, Lease lease) {
+        long failedUntil = retryAt;
+        if (failedUntil != 0 && (clock.getAsLong() < failedUntil || !probing.compareAndSet(false, true))) {
+            return false;
+        }
+        long used;
+        try {
+            Long returned = jdbcTemplate.queryForObject(LEASE, Long.class, hash(key), lease.window, lease.leaseSize);
+            used = returned != null ? returned : Long.MAX_VALUE;
+            purgeOldWindows(lease.window);
+        } catch (DataAccessException ex) {
+            if (failedUntil == 0) {
+                logger.warn("Shared rate limiting unavailable, falling back to per-replica limits", ex);
+            }
+            retryAt = clock.getAsLong() + retryIntervalMillis;
+            return false;
+        } finally {
+            if (failedUntil != 0) {
+                probing.set(false);
+            }
+        }
+        if (failedUntil != 0) {
+            retryAt = 0;
+            logger.info("Shared rate limiting restored");
+        }
+        long granted = Math.max(0, Math.min(lease.leaseSize, lease.limit - (used - lease.leaseSize)));
+        lease.sharedRemaining = Math.max(0, lease.limit - used);
+        if (granted == 0) {
+            lease.exhausted = true;
+        } else {
+            lease.tokens.addAndGet(granted);
+        }
+        return true;
+    }
+
+    /**
+     * Deletes finished windows, at most once per window per replica.
+     */
+    private void purgeOldWindows(long window) {
+        long purged = purgedBefore.get();
+        if (purged < window && purgedBefore.compareAndSet(purged, window)) {
+            jdbcTemplate.update(PURGE, window);
+        }
+    }
+
+    private static String hash(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.ratelimit;
+
+/**
+ * Outcome of a rate-limit check.
+ * @param allowed whether the request may proceed
+ * @param limit the number of requests allowed per period
+ * @param remaining the number of requests still allowed right now
+ * @param resetSeconds seconds until the full allowance is available again
+ * @param retryAfterSeconds seconds until the next request would be allowed, 0 when allowed
+ */
+public record RateLimitDecision(boolean allowed, long limit, long remaining, long resetSeconds, long retryAfterSeconds) {
+    static RateLimitDecision allowed(long limit, long remaining, long resetSeconds) {
+        return new RateLimitDecision(true, limit, remaining, resetSeconds, 0);
+    }
+
+    static RateLimitDecision denied(long limit, long resetSeconds, long retryAfterSeconds) {
+        return new RateLimitDecision(false, limit, 0, resetSeconds, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.example.security.ApiKey;
+
+import java.util.Optional;
+
+/**
+ * What identifies a client for rate limiting, selected with 'rate.limit.key'.
+ * Only authenticated identities are used; anything a client could vary freely to get a fresh
+ * budget, such as an unverified header, falls back to the IP address.
+ */
+public enum RateLimitKey {
+    /**
+     * The remote IP address.
+     */
+    IP,
+    /**
+     * The authenticated API key's ID, falling back to the IP address.
+     */
+    API_KEY,
+    /**
+     * The user the authenticated API key acts for: the 'X-User-Id' header or 'userId' parameter
+     * if the key is scoped to that user, or the key's only user. Falls back to the IP address for
+     * unauthenticated requests and unrestricted keys, whose user IDs are not verified.
+     */
+    USER;
+
+    /**
+     * Resolves the client key of a request.
+     * @param request the incoming HTTP request
+     * @param apiKey the key the request is authenticated with, if known
+     * @return the key, prefixed with its kind so different kinds never collide
+     */
+    public String resolve(HttpServletRequest request, Optional<ApiKey> apiKey) {
+        String value = switch (this) {
+            case IP -> null;
+            case API_KEY -> apiKey.map(key -> Long.toString(key.id())).orElse(null);
+            case USER -> apiKey.filter(key -> !key.unrestricted()).map(key -> scopedUser(request, key)).orElse(null);
+        };
+        if (value == null) {
+            return "ip:" + request.getRemoteAddr();
+        }
+        return (this == API_KEY ? "key:" : "user:") + value;
+    }
+
+    private static String scopedUser(HttpServletRequest request, ApiKey key) {
+        String claimed = request.getHeader("X-User-Id");
+        if (claimed == null) {
+            claimed = request.getParameter("userId");
+        }
+        if (claimed != null && key.userIds().contains(claimed)) {
+            return claimed;
+        }
+        return key.userIds().size() == 1 ? key.userIds().iterator().next() : null;
+    }
+}
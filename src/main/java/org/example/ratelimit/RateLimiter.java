@@ -0,0 +1,22 @@
+package org.example.ratelimit;
+
+/**
+ * Decides whether a client identified by a key may make another request.
+ */
+public interface RateLimiter {
+    /**
+     * Consumes one request from the key's allowance if any is left.
+     * @param key the client key (IP address, API key or user ID)
+     * @return the decision, with the values for the rate-limit response headers
+     */
+    RateLimitDecision tryAcquire(String key);
+
+    /**
+     * Consumes one request from the key's allowance, with a limit per period of its own
+     * instead of the configured one, such as an API key's quota.
+     * @param key the client key
+     * @param limit requests allowed per period for this key
+     * @return the decision, with the values for the rate-limit response headers
+     */
+    RateLimitDecision tryAcquire(String key, long limit);
+}
@@ -5,14 +5,31 @@ import org.example.model.ChatSession;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 /**
  * Repository interface for managing ChatMessage entities.
  * Provides methods for querying chat messages by session.
  */
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
+    /**
+     * Rows fetched per round trip when streaming exports through a server-side cursor.
+     */
+    String EXPORT_FETCH_SIZE = "500";
+
     /**
      * Finds chat messages for a given session where the session is not deleted.
      * @param session the chat session
@@ -20,4 +37,94 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
      * @return a page of ChatMessage entities
      */
     Page<ChatMessage> findBySessionAndSession_DeletedAtIsNull(ChatSession session, Pageable pageable);
+
+    /**
+     * Finds messages of a session positioned strictly after the given keyset, oldest first.
+     * Served by the (session_id, created_at, id) index; no count query is issued.
+     * @param sessionId the chat session ID
+     * @param createdAt creation timestamp of the cursor message
+     * @param id ID of the cursor message
+     * @param limit maximum number of rows to return
+     * @return messages in ascending (createdAt, id) order
+     */
+    @Query(value = "SELECT m.id, m.session_id, m.sender, m.content, m.context, m.context_hash, m.created_at FROM chat_messages m " +
+            "WHERE m.session_id = :sessionId " +
+            "AND (m.created_at, m.id) > (:createdAt, :id) " +
+            "ORDER BY m.created_at ASC, m.id ASC LIMIT :limit", nativeQuery = true)
+    List<ChatMessage> findPageAfter(@Param("sessionId") Long sessionId, @Param("createdAt") Instant createdAt,
+                                    @Param("id") Long id, @Param("limit") int limit);
+
+    /**
+     * Finds messages of a session positioned strictly before the given keyset, newest first.
+     * @param sessionId the chat session ID
+     * @param createdAt creation timestamp of the cursor message
+     * @param id ID of the cursor message
+     * @param limit maximum number of rows to return
+     * @return messages in descending (createdAt, id) order
+     */
+    @Query(value = "SELECT m.id, m.session_id, m.sender, m.content, m.context, m.context_hash, m.created_at FROM chat_messages m " +
+            "WHERE m.session_id = :sessionId " +
+            "AND (m.created_at, m.id) < (:createdAt, :id) " +
+            "ORDER BY m.created_at DESC, m.id DESC LIMIT :limit", nativeQuery = true)
+    List<ChatMessage> findPageBefore(@Param("sessionId") Long sessionId, @Param("createdAt") Instant createdAt,
+                                     @Param("id") Long id, @Param("limit") int limit);
+
+    /**
+     * Finds messages across all live sessions of a user positioned strictly after the given keyset,
+     * oldest first. Used to resume a user's message stream.
+     * @param userId the user ID
+     * @param createdAt creation timestamp of the cursor message
+     * @param id ID of the cursor message
+     * @param limit maximum number of rows to return
+     * @return messages in ascending (createdAt, id) order
+     */
+    @Query(value = "SELECT m.id, m.session_id, m.sender, m.content, m.context, m.context_hash, m.created_at FROM chat_messages m " +
+            "WHERE m.session_id IN (SELECT s.id FROM chat_sessions s WHERE s.user_id = :userId AND s.deleted_at IS NULL) " +
+            "AND (m.created_at, m.id) > (:createdAt, :id) " +
+            "ORDER BY m.created_at ASC, m.id ASC LIMIT :limit", nativeQuery = true)
+    List<ChatMessage> findUserPageAfter(@Param("userId") String userId, @Param("createdAt") Instant createdAt,
+                                        @Param("id") Long id, @Param("limit") int limit);
+
+    /**
+     * Finds the newest messages of a session.
+     * @param sessionId the chat session ID
+     * @param limit maximum number of rows to return
+     * @return messages in descending (createdAt, id) order
+     */
+    @Query(value = "SELECT m.id, m.session_id, m.sender, m.content, m.context, m.context_hash, m.created_at FROM chat_messages m " +
+            "WHERE m.session_id = :sessionId " +
+            "ORDER BY m.created_at DESC, m.id DESC LIMIT :limit", nativeQuery = true)
+    List<ChatMessage> findLatest(@Param("sessionId") Long sessionId, @Param("limit") int limit);
+
+    /**
+     * Streams every message of a session in (createdAt, id) order.
+     * Must be consumed inside a transaction so the PostgreSQL driver uses a server-side cursor
+     * and holds only one fetch of rows in memory; close the stream when done.
+     * @param sessionId the chat session ID
+     * @return a lazily fetched stream of messages
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT m FROM ChatMessage m WHERE m.session.id = :sessionId ORDER BY m.createdAt ASC, m.id ASC")
+    Stream<ChatMessage> streamBySessionId(@Param("sessionId") Long sessionId);
+
+    /**
+     * Streams every message of a user's live sessions, grouped by session and in
+     * (createdAt, id) order within each session.
+     * Same transaction and closing requirements as {@link #streamBySessionId(Long)}.
+     * @param userId the user ID
+     * @return a lazily fetched stream of messages
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT m FROM ChatMessage m JOIN m.session s WHERE s.userId = :userId AND s.deletedAt IS NULL " +
+            "ORDER BY s.id ASC, m.createdAt ASC, m.id ASC")
+    Stream<ChatMessage> streamByUserId(@Param("userId") String userId);
+
+    /**
+     * Streams every message of every live session, for rebuilding derived indexes.
+     * Same transaction and closing requirements as {@link #streamBySessionId(Long)}.
+     * @return a lazily fetched stream of messages
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT m FROM ChatMessage m JOIN m.session s WHERE s.deletedAt IS NULL")
+    Stream<ChatMessage> streamAllLive();
 }
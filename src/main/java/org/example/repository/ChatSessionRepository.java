@@ -2,9 +2,13 @@ package org.example.repository;
 
 import org.example.model.ChatSession;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for managing ChatSession entities.
@@ -24,4 +28,18 @@ public interface ChatSessionRepository extends JpaRepository<ChatSession, Long>
      * @return a list of ChatSession entities
      */
     List<ChatSession> findByUserIdAndDeletedAtIsNull(String userId);
+    /**
+     * Finds the chat sessions with the given IDs that are not deleted.
+     * @param ids the session IDs
+     * @return the matching ChatSession entities
+     */
+    List<ChatSession> findByIdInAndDeletedAtIsNull(Collection<Long> ids);
+    /**
+     * Looks up the owner of a session by primary key, if the session is not deleted.
+     * Used as a cheap liveness check that avoids loading the full entity.
+     * @param id the session ID
+     * @return the owning user ID (empty string if unset), or empty if the session is missing or deleted
+     */
+    @Query("SELECT COALESCE(s.userId, '') FROM ChatSession s WHERE s.id = :id AND s.deletedAt IS NULL")
+    Optional<String> findLiveUserIdById(@Param("id") Long id);
 }
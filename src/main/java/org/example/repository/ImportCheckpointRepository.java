@@ -0,0 +1,27 @@
+package org.example.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.model.ImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository interface for managing ImportCheckpoint entities.
+ */
+@Repository
+public interface ImportCheckpointRepository extends JpaRepository<ImportCheckpoint, String> {
+    /**
+     * Finds a checkpoint and locks its row until the current transaction ends,
+     * so two runs of the same import cannot commit interleaved batches.
+     * @param importId the import ID
+     * @return the locked checkpoint, if the import exists
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM ImportCheckpoint c WHERE c.importId = :importId")
+    Optional<ImportCheckpoint> findForUpdate(@Param("importId") String importId);
+}
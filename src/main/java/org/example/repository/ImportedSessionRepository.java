@@ -0,0 +1,22 @@
+package org.example.repository;
+
+import org.example.model.ImportedSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for managing ImportedSession entities.
+ */
+@Repository
+public interface ImportedSessionRepository extends JpaRepository<ImportedSession, Long> {
+    /**
+     * Finds the sessions an import has already created for the given input keys.
+     * @param importId the import ID
+     * @param sourceKeys the session keys from the input
+     * @return the mappings that exist
+     */
+    List<ImportedSession> findByImportIdAndSourceKeyIn(String importId, Collection<String> sourceKeys);
+}
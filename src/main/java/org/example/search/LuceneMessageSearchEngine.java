@@ -0,0 +1,413 @@
+package org.example.search;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.example.dto.MessageSearchHit;
+import org.example.dto.MessageSearchResponse;
+import org.example.dto.SearchCursor;
+import org.example.event.ChatMessageCreatedEvent;
+import org.example.event.ChatSessionDeletedEvent;
+import org.example.model.ChatMessage;
+import org.example.repository.ChatMessageRepository;
+import org.example.shard.ShardContext;
+import org.example.shard.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Full-text search over an embedded Lucene index on local disk, selected with
+ * 'messages.search.engine=lucene'.
+ * Committed messages are indexed asynchronously: creation and session-deletion events are queued
+ * and applied by a single indexer thread, so writers to chat_messages pay nothing for search; with
+ * this engine the migrations drop the content_tsv column and its GIN index (see
+ * R__message_search_columns.sql). New messages become searchable within 'refresh-interval'; the
+ * index is committed to disk every 'commit-interval' and on shutdown. Anything missed (a full
+ * queue, a crash between commits) is recovered with {@link #rebuild()}.
+ * Each replica keeps its own index of the writes it sees, so this engine suits single-replica
+ * deployments or a dedicated search replica fed by the same events.
+ */
+@Component
+@ConditionalOnProperty(name = "messages.search.engine", havingValue = "lucene")
+public class LuceneMessageSearchEngine implements MessageSearchEngine {
+    private static final Logger logger = LoggerFactory.getLogger(LuceneMessageSearchEngine.class);
+
+    private static final String ID = "id";
+    private static final String ID_KEY = "idKey";
+    private static final String SESSION_ID = "sessionId";
+    private static final String SENDER = "sender";
+    private static final String CONTENT = "content";
+    private static final String CREATED_AT = "createdAt";
+    private static final Sort BY_SCORE_THEN_ID = new Sort(SortField.FIELD_SCORE, new SortField(ID, SortField.Type.LONG, true));
+
+    /**
+     * Directory holding the index.
+     */
+    @Value("${messages.search.lucene.path:./data/search-index}")
+    private String path;
+    /**
+     * How often newly indexed messages are made visible to searches.
+     */
+    @Value("${messages.search.lucene.refresh-interval:1s}")
+    private Duration refreshInterval;
+    /**
+     * How often the index is committed to disk.
+     */
+    @Value("${messages.search.lucene.commit-interval:30s}")
+    private Duration commitInterval;
+    /**
+     * Number of index updates that may wait for the indexer before new ones are dropped.
+     */
+    @Value("${messages.search.lucene.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Analyzer analyzer = new EnglishAnalyzer();
+    private final AtomicLong dropped = new AtomicLong();
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private BlockingQueue<IndexTask> queue;
+    private Thread indexer;
+    private ScheduledExecutorService maintenance;
+    private volatile boolean running;
+    private volatile boolean rebuilding;
+
+    /**
+     * A pending index update: a message to upsert, or a session whose messages are removed.
+     */
+    private record IndexTask(ChatMessage message, Long deletedSessionId) {
+    }
+
+    /**
+     * Opens (or creates) the index and starts the indexer and maintenance threads.
+     * @throws IOException if the index cannot be opened
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        directory = FSDirectory.open(Path.of(path));
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(writer, null);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        indexer = new Thread(this::drain, "search-indexer");
+        indexer.setDaemon(true);
+        indexer.start();
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-index-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::refresh, refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(this::commit, commitInterval.toMillis(), commitInterval.toMillis(), TimeUnit.MILLISECONDS);
+        logger.info("Lucene search index opened at {} ({} documents)", path, writer.getDocStats().numDocs);
+    }
+
+    /**
+     * Queues a committed message for indexing.
+     * @param event the message creation event
+     */
+    @TransactionalEventListener
+    public void onMessageCreated(ChatMessageCreatedEvent event) {
+        offer(new IndexTask(event.message(), null));
+    }
+
+    /**
+     * Queues the removal of a deleted session's messages from the index.
+     * @param event the session deletion event
+     */
+    @TransactionalEventListener
+    public void onSessionDeleted(ChatSessionDeletedEvent event) {
+        offer(new IndexTask(null, event.sessionId()));
+    }
+
+    @Override
+    public MessageSearchResponse search(MessageSearchQuery query) {
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, CONTENT);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query text = parser.parse(query.text());
+        BooleanQuery.Builder builder = new BooleanQuery.Builder()
+                .add(text, BooleanClause.Occur.MUST)
+                .add(LongPoint.newSetQuery(SESSION_ID, query.sessionIds()), BooleanClause.Occur.FILTER);
+        if (query.from() != null || query.to() != null) {
+            long from = query.from() != null ? toMicros(query.from()) : Long.MIN_VALUE;
+            long to = query.to() != null ? toMicros(query.to()) - 1 : Long.MAX_VALUE;
+            builder.add(LongPoint.newRangeQuery(CREATED_AT, from, to), BooleanClause.Occur.FILTER);
+        }
+        Query filtered = builder.build();
+
+        IndexSearcher searcher;
+        try {
+            searcher = searcherManager.acquire();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        try {
+            int n = query.limit() + 1;
+            TopFieldDocs top = query.after() == null
+                    ? searcher.search(filtered, n, BY_SCORE_THEN_ID, true)
+                    : searcher.searchAfter(toFieldDoc(query.after()), filtered, n, BY_SCORE_THEN_ID, true);
+            boolean hasMore = top.scoreDocs.length > query.limit();
+            ScoreDoc[] page = hasMore ? Arrays.copyOf(top.scoreDocs, query.limit()) : top.scoreDocs;
+
+            UnifiedHighlighter highlighter = UnifiedHighlighter.builder(searcher, analyzer)
+                    .withFormatter(new DefaultPassageFormatter("<mark>", "</mark>", " … ", true))
+                    .build();
+            String[] snippets = highlighter.highlight(CONTENT, text, new TopDocs(top.totalHits, page), 2);
+            StoredFields storedFields = searcher.storedFields();
+            List<MessageSearchHit> hits = new ArrayList<>(page.length);
+            for (int i = 0; i < page.length; i++) {
+                Document doc = storedFields.document(page[i].doc);
+                hits.add(new MessageSearchHit(
+                        doc.getField(ID).numericValue().longValue(),
+                        doc.getField(SESSION_ID).numericValue().longValue(),
+                        doc.get(SENDER),
+                        snippets[i] != null ? snippets[i] : abbreviate(doc.get(CONTENT)),
+                        Instant.EPOCH.plus(doc.getField(CREATED_AT).numericValue().longValue(), ChronoUnit.MICROS),
+                        page[i].score));
+            }
+            String next = null;
+            if (hasMore) {
+                FieldDoc last = (FieldDoc) page[page.length - 1];
+                next = new SearchCursor((Float) last.fields[0], (Long) last.fields[1]).encode();
+            }
+            return new MessageSearchResponse(hits, next, hasMore);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            try {
+                searcherManager.release(searcher);
+            } catch (IOException ex) {
+                logger.warn("Failed to release index searcher", ex);
+            }
+        }
+    }
+
+    /**
+     * Re-indexes every message of every live session from the database (every shard), then commits.
+     * Updates arriving meanwhile are still applied; searches keep seeing the previous
+     * state until the rebuild finishes.
+     * @return the number of messages indexed
+     * @throws IOException if writing the index fails
+     */
+    public long rebuild() throws IOException {
+        rebuilding = true;
+        try {
+            writer.deleteAll();
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            long indexed = 0;
+            for (int shardIndex : shardRouter.shards()) {
+                try (ShardContext.Scope shard = shardRouter.shard(shardIndex)) {
+                    indexed += transactionTemplate.execute(status -> {
+                        long count = 0;
+                        try (Stream<ChatMessage> messages = chatMessageRepository.streamAllLive()) {
+                            Iterator<ChatMessage> it = messages.iterator();
+                            while (it.hasNext()) {
+                                ChatMessage message = it.next();
+                                writer.updateDocument(new Term(ID_KEY, Long.toString(message.getId())), toDocument(message));
+                                entityManager.detach(message);
+                                count++;
+                            }
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                        return count;
+                    });
+                }
+            }
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            dropped.set(0);
+            logger.info("Search index rebuilt with {} messages", indexed);
+            return indexed;
+        } finally {
+            rebuilding = false;
+        }
+    }
+
+    /**
+     * Stops indexing after applying everything queued, and commits and closes the index.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        maintenance.shutdownNow();
+        try {
+            indexer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            writer.commit();
+            searcherManager.close();
+            writer.close();
+            directory.close();
+        } catch (IOException ex) {
+            logger.error("Failed to close the search index", ex);
+        }
+    }
+
+    private void offer(IndexTask task) {
+        if (!queue.offer(task) && dropped.incrementAndGet() == 1) {
+            logger.warn("Search indexing queue is full; dropping updates until the index is rebuilt");
+        }
+    }
+
+    private void drain() {
+        List<IndexTask> batch = new ArrayList<>();
+        while (true) {
+            IndexTask first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                if (!running) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, 1000);
+            for (IndexTask task : batch) {
+                try {
+                    if (task.message() != null) {
+                        ChatMessage message = task.message();
+                        writer.updateDocument(new Term(ID_KEY, Long.toString(message.getId())), toDocument(message));
+                    } else {
+                        writer.deleteDocuments(LongPoint.newExactQuery(SESSION_ID, task.deletedSessionId()));
+                    }
+                } catch (IOException | RuntimeException ex) {
+                    logger.error("Failed to apply search index update", ex);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void refresh() {
+        if (rebuilding) {
+            return;
+        }
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException ex) {
+            logger.warn("Failed to refresh the search index", ex);
+        }
+    }
+
+    private void commit() {
+        if (rebuilding || !writer.hasUncommittedChanges()) {
+            return;
+        }
+        try {
+            writer.commit();
+        } catch (IOException ex) {
+            logger.warn("Failed to commit the search index", ex);
+        }
+    }
+
+    private static Document toDocument(ChatMessage message) {
+        long id = message.getId();
+        long sessionId = message.getSession().getId();
+        long createdAt = toMicros(message.getCreatedAt());
+        Document doc = new Document();
+        doc.add(new StringField(ID_KEY, Long.toString(id), Field.Store.NO));
+        doc.add(new StoredField(ID, id));
+        doc.add(new NumericDocValuesField(ID, id));
+        doc.add(new LongPoint(SESSION_ID, sessionId));
+        doc.add(new StoredField(SESSION_ID, sessionId));
+        doc.add(new LongPoint(CREATED_AT, createdAt));
+        doc.add(new StoredField(CREATED_AT, createdAt));
+        if (message.getSender() != null) {
+            doc.add(new StoredField(SENDER, message.getSender()));
+        }
+        doc.add(new TextField(CONTENT, message.getContent() != null ? message.getContent() : "", Field.Store.YES));
+        return doc;
+    }
+
+    private static String abbreviate(String content) {
+        String abbreviated = content.length() <= 200 ? content : content.substring(0, 200) + " …";
+        return HtmlUtils.htmlEscape(abbreviated, StandardCharsets.UTF_8.name());
+    }
+
+    private static FieldDoc toFieldDoc(SearchCursor cursor) {
+        return new FieldDoc(Integer.MAX_VALUE, cursor.score(), new Object[]{cursor.score(), cursor.id()});
+    }
+
+    private static long toMicros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.search;
+
+import org.example.dto.MessageSearchResponse;
+
+/**
+ * Ranked full-text search over message content.
+ */
+public interface MessageSearchEngine {
+    /**
+     * Finds the messages matching a query, best match first.
+     * Snippets are HTML-escaped and highlight matched terms with {@code <mark>} and {@code </mark>},
+     * the only markup they contain, so they can be inserted into a page as they are.
+     * @param query the query
+     * @return one page of hits with its continuation cursor
+     */
+    MessageSearchResponse search(MessageSearchQuery query);
+}
@@ -0,0 +1,19 @@
+package org.example.search;
+
+import org.example.dto.SearchCursor;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * A full-text query over the messages of a set of sessions.
+ * @param text the user's query, in web search syntax ("quoted phrases", -exclusions, or)
+ * @param sessionIds the sessions to search, never empty
+ * @param from optional inclusive lower bound on the message creation time
+ * @param to optional exclusive upper bound on the message creation time
+ * @param after optional cursor of the last hit of the previous page
+ * @param limit the maximum number of hits to return
+ */
+public record MessageSearchQuery(String text, Collection<Long> sessionIds, Instant from, Instant to,
+                                 SearchCursor after, int limit) {
+}
@@ -0,0 +1,138 @@
+package org.example.search;
+
+import jakarta.annotation.PostConstruct;
+import org.example.dto.MessageSearchHit;
+import org.example.dto.MessageSearchResponse;
+import org.example.dto.SearchCursor;
+import org.example.shard.ShardContext;
+import org.example.shard.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.HtmlUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Full-text search using Postgres text search.
+ * Matches against the generated 'content_tsv' column of chat_messages through the GIN index on
+ * (session_id, content_tsv), so a query only visits postings of the caller's sessions. Both are
+ * created by the V1__baseline.sql and V5__compress_message_payloads.sql migrations, and kept only
+ * while this engine is configured (see R__message_search_columns.sql).
+ * Hits are ranked with ts_rank_cd; snippets are built with ts_headline for the rows
+ * of the returned page only. ts_headline does not escape the content, so it marks matches with
+ * control characters that are stripped from the content first; the snippet is then HTML-escaped
+ * and only those marks become {@code <mark>} tags.
+ * Searches run read-only and may be served by a read replica.
+ * With sharding, each shard holding one of the sessions is searched and the hits are merged by rank.
+ * This is the default engine ('messages.search.engine=postgres').
+ */
+@Component
+@ConditionalOnProperty(name = "messages.search.engine", havingValue = "postgres", matchIfMissing = true)
+public class PostgresMessageSearchEngine implements MessageSearchEngine {
+    private static final char START_SEL = '\u0002';
+    private static final char STOP_SEL = '\u0003';
+    private static final String HEADLINE_OPTIONS = "StartSel=" + START_SEL + ", StopSel=" + STOP_SEL
+            + ", MaxWords=30, MinWords=10, MaxFragments=2, FragmentDelimiter=\" … \"";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public MessageSearchResponse search(MessageSearchQuery query) {
+        List<MessageSearchHit> rows = new ArrayList<>();
+        shardRouter.groupBySession(query.sessionIds(), Long::longValue).forEach((shardIndex, sessionIds) -> {
+            try (ShardContext.Scope shard = shardRouter.shard(shardIndex)) {
+                rows.addAll(readOnlyTransaction.execute(status -> searchShard(query, sessionIds)));
+            }
+        });
+        rows.sort(Comparator.comparingDouble(MessageSearchHit::getScore).reversed()
+                .thenComparing(MessageSearchHit::getId, Comparator.reverseOrder()));
+        boolean hasMore = rows.size() > query.limit();
+        List<MessageSearchHit> page = hasMore ? rows.subList(0, query.limit()) : rows;
+        String next = null;
+        if (hasMore) {
+            MessageSearchHit last = page.get(page.size() - 1);
+            next = new SearchCursor(last.getScore(), last.getId()).encode();
+        }
+        return new MessageSearchResponse(page, next, hasMore);
+    }
+
+    /**
+     * Returns up to limit + 1 hits among the given sessions of the shard selected for the current thread.
+     */
+    private List<MessageSearchHit> searchShard(MessageSearchQuery query, Collection<Long> sessionIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("q", query.text())
+                .addValue("sessionIds", sessionIds)
+                .addValue("limit", query.limit() + 1)
+                .addValue("headline", HEADLINE_OPTIONS);
+        StringBuilder filters = new StringBuilder();
+        if (query.from() != null) {
+            filters.append(" AND m.created_at >= :from");
+            params.addValue("from", OffsetDateTime.ofInstant(query.from(), ZoneOffset.UTC));
+        }
+        if (query.to() != null) {
+            filters.append(" AND m.created_at < :to");
+            params.addValue("to", OffsetDateTime.ofInstant(query.to(), ZoneOffset.UTC));
+        }
+        if (query.after() != null) {
+            filters.append(" AND (ts_rank_cd(m.content_tsv, q.query), m.id) < (:score, :id)");
+            params.addValue("score", query.after().score());
+            params.addValue("id", query.after().id());
+        }
+        String sql = "SELECT m.id, m.session_id, m.sender, m.created_at, r.rank, " +
+                "ts_headline('english', translate(m.content, chr(2) || chr(3), ''), q.query, :headline) AS snippet " +
+                "FROM (SELECT m.id, ts_rank_cd(m.content_tsv, q.query) AS rank " +
+                "      FROM chat_messages m, websearch_to_tsquery('english', :q) AS q(query) " +
+                "      WHERE m.session_id IN (:sessionIds) AND m.content_tsv @@ q.query" + filters +
+                "      ORDER BY rank DESC, m.id DESC LIMIT :limit) r " +
+                "JOIN chat_messages m ON m.id = r.id " +
+                "CROSS JOIN websearch_to_tsquery('english', :q) AS q(query) " +
+                "ORDER BY r.rank DESC, r.id DESC";
+
+        return jdbcTemplate.query(sql, params, (rs, rowNum) -> new MessageSearchHit(
+                rs.getLong("id"),
+                rs.getLong("session_id"),
+                rs.getString("sender"),
+                toHtml(rs.getString("snippet")),
+                rs.getObject("created_at", OffsetDateTime.class).toInstant(),
+                rs.getFloat("rank")));
+    }
+
+    /**
+     * HTML-escapes a ts_headline snippet and turns its selection marks into {@code <mark>} tags.
+     */
+    static String toHtml(String snippet) {
+        if (snippet == null) {
+            return null;
+        }
+        return HtmlUtils.htmlEscape(snippet, StandardCharsets.UTF_8.name())
+                .replace(String.valueOf(START_SEL), "<mark>")
+                .replace(String.valueOf(STOP_SEL), "</mark>");
+    }
+}
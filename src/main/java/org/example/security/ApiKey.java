@@ -0,0 +1,29 @@
+package org.example.security;
+
+import java.util.Set;
+
+/**
+ * An API key a request was authenticated with.
+ * @param id the key's ID in api_keys, 0 for the key configured with 'api.key'
+ * @param tenant the tenant the key was issued to
+ * @param userIds the users the key may act for; empty if it is not restricted
+ * @param rateLimit requests per 'rate.limit.period' allowed with the key, or null for 'rate.limit'
+ */
+public record ApiKey(long id, String tenant, Set<String> userIds, Long rateLimit) {
+    /**
+     * Whether the key may act for a user.
+     * @param userId the user ID
+     * @return true if the key is unrestricted or scoped to the user
+     */
+    public boolean permits(String userId) {
+        return userIds.isEmpty() || userIds.contains(userId);
+    }
+
+    /**
+     * Whether the key may act for every user.
+     * @return true if the key has no user scope
+     */
+    public boolean unrestricted() {
+        return userIds.isEmpty();
+    }
+}
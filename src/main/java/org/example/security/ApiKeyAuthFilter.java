@@ -1,38 +1,54 @@
 package org.example.security;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.Optional;
 
 /**
  * Filter for API key authentication.
- * Validates the 'X-API-KEY' header for protected endpoints and allows public paths.
+ * Validates the 'X-API-KEY' header for protected endpoints (see {@link ApiKeyResolver}) and allows
+ * public paths (see {@link PublicPaths}). A valid key becomes the request's {@link ApiKeyAuthentication},
+ * whose user scope is enforced by {@link ApiKeyScope}.
+ * Rejected requests are counted by 'chat.auth.failures', tagged with whether the key was missing or invalid,
+ * and appear in the access log (see {@link org.example.config.AccessLogFilter}).
  */
 @Component
 public class ApiKeyAuthFilter extends OncePerRequestFilter {
-    /**
-     * The API key used for authentication, configured via 'api.key' property.
-     */
-    @Value("${api.key}")
-    private String apiKey;
+    @Autowired
+    private ApiKeyResolver apiKeyResolver;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
-    private static final String[] PUBLIC_PATHS = {
-            "/health",
-            "/v3/api-docs/**",
-            "/swagger-ui/**"
-    };
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
-    private static final Logger logger = LoggerFactory.getLogger(ApiKeyAuthFilter.class);
+    @Autowired
+    private PublicPaths publicPaths;
+
+    private Counter missingKeyFailures;
+    private Counter invalidKeyFailures;
+
+    @PostConstruct
+    public void initMetrics() {
+        missingKeyFailures = Counter.builder("chat.auth.failures")
+                .description("Requests rejected for a missing or invalid API key")
+                .tag("reason", "missing")
+                .register(meterRegistry);
+        invalidKeyFailures = Counter.builder("chat.auth.failures")
+                .description("Requests rejected for a missing or invalid API key")
+                .tag("reason", "invalid")
+                .register(meterRegistry);
+    }
 
     /**
      * Performs API key validation for incoming requests, bypassing public paths.
@@ -46,23 +62,20 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
-        String path = request.getRequestURI();
-        String requestApiKey = request.getHeader("X-API-KEY");
-        logger.info("ApiKeyAuthFilter: path={}, apiKeyHeader={}", path, requestApiKey);
-        for (String pattern : PUBLIC_PATHS) {
-            if (pathMatcher.match(pattern, path)) {
-                logger.info("ApiKeyAuthFilter: skipping API key check for public path: {}", path);
-                filterChain.doFilter(request, response);
-                return;
-            }
+        if (publicPaths.isPublic(request) || !apiKeyResolver.authenticationRequired()) {
+            filterChain.doFilter(request, response);
+            return;
         }
-        if (apiKey != null && !apiKey.isEmpty() && !apiKey.equals(requestApiKey)) {
-            logger.warn("ApiKeyAuthFilter: invalid API key for path: {}", path);
+        Optional<ApiKey> apiKey = apiKeyResolver.resolve(request);
+        if (apiKey.isEmpty()) {
+            (request.getHeader("X-API-KEY") == null ? missingKeyFailures : invalidKeyFailures).increment();
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("Invalid API Key");
             return;
         }
-        logger.info("ApiKeyAuthFilter: valid API key for path: {}", path);
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new ApiKeyAuthentication(apiKey.get()));
+        SecurityContextHolder.setContext(context);
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package org.example.security;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+/**
+ * The authentication of a request made with a valid API key, set by {@link ApiKeyAuthFilter}.
+ */
+public class ApiKeyAuthentication extends AbstractAuthenticationToken {
+    private final ApiKey apiKey;
+
+    /**
+     * Creates an authenticated token for a key.
+     * @param apiKey the key the request was made with
+     */
+    public ApiKeyAuthentication(ApiKey apiKey) {
+        super(AuthorityUtils.NO_AUTHORITIES);
+        this.apiKey = apiKey;
+        setAuthenticated(true);
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    @Override
+    public ApiKey getPrincipal() {
+        return apiKey;
+    }
+
+    @Override
+    public String getName() {
+        return apiKey.tenant();
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.security;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Resolves the API key presented in a request's 'X-API-KEY' header: the key configured with
+ * 'api.key', compared in constant time, or with 'api.keys.enabled' a key from {@link ApiKeyStore}.
+ * A request is resolved once and the result kept as a request attribute for later filters.
+ * Authentication is off when neither is configured.
+ */
+@Component
+public class ApiKeyResolver {
+    /**
+     * Request attribute holding the resolved key.
+     */
+    public static final String ATTRIBUTE = ApiKeyResolver.class.getName() + ".KEY";
+    /**
+     * The key configured with 'api.key': unrestricted, with the default rate limit.
+     */
+    public static final ApiKey CONFIGURED_KEY = new ApiKey(0, "default", Set.of(), null);
+
+    private static final Object INVALID = new Object();
+
+    /**
+     * The API key used for authentication, configured via 'api.key' property; empty for none.
+     */
+    @Value("${api.key}")
+    private String apiKey;
+    /**
+     * Whether per-tenant keys in api_keys are accepted.
+     */
+    @Value("${api.keys.enabled:false}")
+    private boolean storeEnabled;
+
+    @Autowired
+    private ApiKeyStore apiKeyStore;
+
+    private char[] expectedKey;
+
+    @PostConstruct
+    public void init() {
+        expectedKey = apiKey == null ? new char[0] : apiKey.toCharArray();
+    }
+
+    /**
+     * Whether requests to protected paths need a valid key.
+     * @return true if 'api.key' or 'api.keys.enabled' is set
+     */
+    public boolean authenticationRequired() {
+        return expectedKey.length > 0 || storeEnabled;
+    }
+
+    /**
+     * Resolves the request's key, reading it from the database if it was not seen before.
+     * @param request the incoming HTTP request
+     * @return the key, or empty if the header is missing or the key is unknown or revoked
+     */
+    public Optional<ApiKey> resolve(HttpServletRequest request) {
+        Object cached = request.getAttribute(ATTRIBUTE);
+        if (cached != null) {
+            return cached == INVALID ? Optional.empty() : Optional.of((ApiKey) cached);
+        }
+        Optional<ApiKey> key = Optional.empty();
+        String presented = request.getHeader("X-API-KEY");
+        if (presented != null) {
+            if (matchesConfiguredKey(presented)) {
+                key = Optional.of(CONFIGURED_KEY);
+            } else if (storeEnabled) {
+                key = apiKeyStore.find(presented);
+            }
+        }
+        request.setAttribute(ATTRIBUTE, key.isPresent() ? key.get() : INVALID);
+        return key;
+    }
+
+    /**
+     * Resolves the request's key only if that needs no database round trip, for checks that run
+     * before authentication, such as rate limiting.
+     * @param request the incoming HTTP request
+     * @return the key, or empty if it is invalid or not known yet
+     */
+    public Optional<ApiKey> resolveCached(HttpServletRequest request) {
+        Object cached = request.getAttribute(ATTRIBUTE);
+        if (cached != null) {
+            return cached == INVALID ? Optional.empty() : Optional.of((ApiKey) cached);
+        }
+        String presented = request.getHeader("X-API-KEY");
+        if (presented == null) {
+            return Optional.empty();
+        }
+        if (matchesConfiguredKey(presented)) {
+            request.setAttribute(ATTRIBUTE, CONFIGURED_KEY);
+            return Optional.of(CONFIGURED_KEY);
+        }
+        if (!storeEnabled) {
+            return Optional.empty();
+        }
+        Optional<ApiKey> key = apiKeyStore.findCached(presented);
+        key.ifPresent(value -> request.setAttribute(ATTRIBUTE, value));
+        return key;
+    }
+
+    /**
+     * Compares a presented key with the configured one without allocating, in time that depends
+     * only on the configured key's length.
+     * @param presented the 'X-API-KEY' header
+     * @return true if 'api.key' is set and equal to the presented key
+     */
+    private boolean matchesConfiguredKey(String presented) {
+        if (expectedKey.length == 0) {
+            return false;
+        }
+        int length = presented.length();
+        int diff = expectedKey.length ^ length;
+        for (int i = 0; i < expectedKey.length; i++) {
+            diff |= expectedKey[i] ^ (i < length ? presented.charAt(i) : 0);
+        }
+        return diff == 0;
+    }
+}
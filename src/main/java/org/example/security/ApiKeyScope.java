@@ -0,0 +1,74 @@
+package org.example.security;
+
+import org.example.service.ChatSessionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Checks that the current request's API key may act for a user or session.
+ * Requests without an {@link ApiKeyAuthentication} (authentication off) and requests with an
+ * unrestricted key pass every check. Violations throw {@link AccessDeniedException}, answered with 403.
+ */
+@Component
+public class ApiKeyScope {
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    /**
+     * The key of the current request.
+     * @return the key, or empty if the request was not authenticated with one
+     */
+    public Optional<ApiKey> current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication instanceof ApiKeyAuthentication apiKey ? Optional.of(apiKey.getPrincipal()) : Optional.empty();
+    }
+
+    /**
+     * Whether the current request may act for a user.
+     * @param userId the user ID
+     * @return true if allowed
+     */
+    public boolean permits(String userId) {
+        return current().map(key -> key.permits(userId)).orElse(true);
+    }
+
+    /**
+     * Requires the current request to be allowed to act for a user.
+     * @param userId the user ID
+     * @throws AccessDeniedException if the key is scoped to other users
+     */
+    public void checkUser(String userId) {
+        if (!permits(userId)) {
+            throw new AccessDeniedException("API key may not act for this user");
+        }
+    }
+
+    /**
+     * Requires the current request to be allowed to act for the owner of a session.
+     * The owner is read from the live-session cache; a missing or deleted session passes, to be answered by
+     * the caller, since every session operation treats deleted sessions as missing.
+     * @param sessionId the session ID
+     * @throws AccessDeniedException if the key is scoped to other users
+     */
+    public void checkSession(Long sessionId) {
+        if (current().map(ApiKey::unrestricted).orElse(true)) {
+            return;
+        }
+        chatSessionService.findLiveUserId(sessionId).ifPresent(this::checkUser);
+    }
+
+    /**
+     * Requires the current request's key to be unrestricted, for operations spanning users.
+     * @throws AccessDeniedException if the key is scoped to some users
+     */
+    public void checkUnrestricted() {
+        if (!current().map(ApiKey::unrestricted).orElse(true)) {
+            throw new AccessDeniedException("API key is scoped to specific users");
+        }
+    }
+}
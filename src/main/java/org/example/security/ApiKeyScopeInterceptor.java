@@ -0,0 +1,52 @@
+package org.example.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Enforces the user scope of API keys (see {@link ApiKeyScope}) on the users and sessions a
+ * request names in its path ('sessionId', or 'id' under /sessions), 'userId' parameter or
+ * 'X-User-Id' header. Users and sessions named in request bodies are checked by their controllers.
+ */
+@Component
+public class ApiKeyScopeInterceptor implements HandlerInterceptor {
+    @Autowired
+    private ApiKeyScope apiKeyScope;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (apiKeyScope.current().map(ApiKey::unrestricted).orElse(true)) {
+            return true;
+        }
+        String userId = request.getParameter("userId");
+        if (userId != null) {
+            apiKeyScope.checkUser(userId);
+        }
+        String userHeader = request.getHeader("X-User-Id");
+        if (userHeader != null) {
+            apiKeyScope.checkUser(userHeader);
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables != null) {
+            String sessionId = variables.get("sessionId");
+            if (sessionId == null && request.getRequestURI().startsWith("/sessions/")) {
+                sessionId = variables.get("id");
+            }
+            if (sessionId != null) {
+                try {
+                    apiKeyScope.checkSession(Long.parseLong(sessionId));
+                } catch (NumberFormatException ex) {
+                    // Left to the handler, which rejects the malformed ID
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,232 @@
+package org.example.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-tenant API keys, stored in api_keys by their SHA-256 hash.
+ * Lookups are served from memory: a known key is reloaded in the background every
+ * 'api.keys.cache.refresh' while in use, so revocations reach every replica within that
+ * interval without requests waiting on the database, and is dropped after 'api.keys.cache.expire'
+ * without use. Unknown and revoked keys are remembered too, for 'api.keys.cache.negative-ttl', so
+ * repeated invalid keys cost no round trips either. Only the first requests with a key read it,
+ * without holding any cache lock while they do.
+ * Invalid keys have a cache of their own, so a flood of random keys cannot evict valid ones.
+ */
+@Component
+public class ApiKeyStore {
+    private static final String PREFIX = "csk_";
+    private static final String SELECT_KEY = "SELECT id, tenant, user_ids, rate_limit FROM api_keys " +
+            "WHERE key_hash = ? AND revoked_at IS NULL";
+    private static final String INSERT_KEY = "INSERT INTO api_keys (key_hash, tenant, user_ids, rate_limit) " +
+            "VALUES (?, ?, ?, ?)";
+    private static final String REVOKE_KEY = "UPDATE api_keys SET revoked_at = now() WHERE id = ? AND revoked_at IS NULL";
+    private static final String SELECT_HASH = "SELECT key_hash FROM api_keys WHERE id = ?";
+
+    /**
+     * How often a key in use is reloaded, bounding how long a revoked key keeps working.
+     */
+    @Value("${api.keys.cache.refresh:1m}")
+    private Duration refresh;
+    /**
+     * How long a known key stays cached without use.
+     */
+    @Value("${api.keys.cache.expire:1h}")
+    private Duration expire;
+    /**
+     * How long an unknown or revoked key is remembered as invalid.
+     */
+    @Value("${api.keys.cache.negative-ttl:30s}")
+    private Duration negativeTtl;
+    /**
+     * Maximum number of valid keys cached.
+     */
+    @Value("${api.keys.cache.max-size:100000}")
+    private long maxSize;
+    /**
+     * Maximum number of invalid keys remembered.
+     */
+    @Value("${api.keys.cache.negative-max-size:100000}")
+    private long negativeMaxSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final SecureRandom random = new SecureRandom();
+    /**
+     * Counts local revocations, so a load overlapping one does not cache the key again.
+     */
+    private final AtomicLong revocations = new AtomicLong();
+    private final Ticker ticker;
+    /**
+     * Valid keys by hash, added by {@link #find} and reloaded in the background. A reload that
+     * finds the key revoked removes it.
+     */
+    private LoadingCache<ByteBuffer, ApiKey> keys;
+    /**
+     * Hashes of unknown and revoked keys.
+     */
+    private Cache<ByteBuffer, Boolean> invalidKeys;
+
+    public ApiKeyStore() {
+        this(Ticker.systemTicker());
+    }
+
+    ApiKeyStore(Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    @PostConstruct
+    public void init() {
+        keys = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(expire)
+                .refreshAfterWrite(refresh)
+                .ticker(ticker)
+                .recordStats()
+                .build(this::load);
+        invalidKeys = Caffeine.newBuilder()
+                .maximumSize(negativeMaxSize)
+                .expireAfterWrite(negativeTtl)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, keys, "apiKeys");
+        CaffeineCacheMetrics.monitor(meterRegistry, invalidKeys, "invalidApiKeys");
+    }
+
+    /**
+     * Looks up a presented key.
+     * @param presented the 'X-API-KEY' header
+     * @return the key if it exists and is not revoked
+     */
+    public Optional<ApiKey> find(String presented) {
+        ByteBuffer hash = ByteBuffer.wrap(hash(presented));
+        if (invalidKeys.getIfPresent(hash) != null) {
+            return Optional.empty();
+        }
+        ApiKey key = keys.getIfPresent(hash);
+        if (key != null) {
+            return Optional.of(key);
+        }
+        // Loaded outside the cache's locks, so the query pins no carrier thread and blocks no other key.
+        long generation = revocations.get();
+        key = load(hash);
+        if (key == null) {
+            invalidKeys.put(hash, Boolean.TRUE);
+            return Optional.empty();
+        }
+        keys.asMap().putIfAbsent(hash, key);
+        if (revocations.get() != generation) {
+            keys.invalidate(hash);
+        }
+        return Optional.of(key);
+    }
+
+    /**
+     * Looks up a presented key in memory only.
+     * @param presented the 'X-API-KEY' header
+     * @return the key if it is cached and valid; empty if it is invalid or not cached
+     */
+    public Optional<ApiKey> findCached(String presented) {
+        return Optional.ofNullable(keys.getIfPresent(ByteBuffer.wrap(hash(presented))));
+    }
+
+    /**
+     * Issues a new key. The key itself is returned only here; the database keeps its hash.
+     * @param tenant the tenant the key is issued to
+     * @param userIds the users the key may act for, empty for all
+     * @param rateLimit requests per 'rate.limit.period' allowed with the key, or null for 'rate.limit'
+     * @return the ID of the key and the key
+     */
+    public IssuedKey create(String tenant, Collection<String> userIds, Long rateLimit) {
+        byte[] secret = new byte[32];
+        random.nextBytes(secret);
+        String key = PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_KEY, new String[] {"id"});
+            statement.setBytes(1, hash(key));
+            statement.setString(2, tenant);
+            statement.setArray(3, userIds.isEmpty() ? null : connection.createArrayOf("text", userIds.toArray()));
+            statement.setObject(4, rateLimit);
+            return statement;
+        }, keyHolder);
+        return new IssuedKey(keyHolder.getKey().longValue(), key);
+    }
+
+    /**
+     * Revokes a key. This replica rejects it at once, others after at most 'api.keys.cache.refresh'.
+     * @param id the ID of the key
+     * @return false if there is no such key or it was already revoked
+     */
+    public boolean revoke(long id) {
+        boolean revoked = jdbcTemplate.update(REVOKE_KEY, id) > 0;
+        List<byte[]> hashes = jdbcTemplate.query(SELECT_HASH, (rs, rowNum) -> rs.getBytes(1), id);
+        revocations.incrementAndGet();
+        hashes.forEach(hash -> keys.invalidate(ByteBuffer.wrap(hash)));
+        return revoked;
+    }
+
+    /**
+     * A newly issued key.
+     * @param id the ID of the key
+     * @param key the key to hand to the tenant
+     */
+    public record IssuedKey(long id, String key) {
+    }
+
+    private ApiKey load(ByteBuffer hash) {
+        List<ApiKey> found = jdbcTemplate.query(SELECT_KEY, this::mapKey, (Object) hash.array());
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    private ApiKey mapKey(ResultSet rs, int rowNum) throws SQLException {
+        Array userIds = rs.getArray("user_ids");
+        return new ApiKey(
+                rs.getLong("id"),
+                rs.getString("tenant"),
+                userIds == null ? Set.of() : Set.copyOf(Arrays.asList((String[]) userIds.getArray())),
+                rs.getObject("rate_limit", Long.class));
+    }
+
+    static byte[] hash(String key) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Paths served without an API key or rate limit.
+ * The patterns are parsed once at startup; a request is matched once, by the first filter
+ * asking, and the result is kept as a request attribute for the others.
+ */
+@Component
+public class PublicPaths {
+    /**
+     * Request attribute holding whether the request's path is public.
+     */
+    public static final String ATTRIBUTE = PublicPaths.class.getName() + ".PUBLIC";
+
+    private static final List<PathPattern> PATTERNS = Stream.of(
+                    "/health",
+                    "/v3/api-docs/**",
+                    "/swagger-ui/**")
+            .map(PathPatternParser.defaultInstance::parse)
+            .toList();
+
+    /**
+     * Whether the request's path is public, matched on first use.
+     * @param request the incoming HTTP request
+     * @return true if the request needs no API key and is not rate limited
+     */
+    public boolean isPublic(HttpServletRequest request) {
+        Object cached = request.getAttribute(ATTRIBUTE);
+        if (cached != null) {
+            return (Boolean) cached;
+        }
+        boolean matches = matches(request.getRequestURI());
+        request.setAttribute(ATTRIBUTE, matches);
+        return matches;
+    }
+
+    /**
+     * Whether a path is public.
+     * @param path the request path
+     * @return true if one of the public patterns matches
+     */
+    public boolean matches(String path) {
+        PathContainer container = PathContainer.parsePath(path);
+        for (PathPattern pattern : PATTERNS) {
+            if (pattern.matches(container)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,221 @@
+package org.example.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.shard.ShardContext;
+import org.example.shard.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains the monthly partitions of chat_messages, which is range-partitioned by created_at
+ * (see the V2 migration).
+ * Partitions for the current month and the next 'premake-months' months are created ahead of
+ * time, on startup and then every 'check-interval'. With 'messages.retention.months' set,
+ * partitions whose rows are all older than that are detached and then dropped (mode 'drop') or
+ * left in place as standalone tables for archiving (mode 'detach'), so old messages go away
+ * without row-level deletes, index bloat or vacuum work.
+ * Replicas coordinate through an advisory lock; only one of them does the work per round.
+ * With sharding, every shard is maintained the same way.
+ */
+@Component
+public class ChatMessagePartitionManager {
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessagePartitionManager.class);
+
+    private static final long LOCK_KEY = 0x636861745f6d7367L;
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String IS_PARTITIONED =
+            "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('chat_messages'))";
+    private static final String LIST_PARTITIONS = "SELECT c.relname, " +
+            "(regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz AS upper_bound " +
+            "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = 'chat_messages'::regclass";
+
+    /**
+     * Whether partitions are maintained by this replica at all.
+     */
+    @Value("${messages.partitions.enabled:true}")
+    private boolean enabled;
+    /**
+     * Number of months ahead of the current one to keep partitions for.
+     */
+    @Value("${messages.partitions.premake-months:3}")
+    private int premakeMonths;
+    /**
+     * How often partitions are checked.
+     */
+    @Value("${messages.partitions.check-interval:1h}")
+    private Duration checkInterval;
+    /**
+     * Age in months after which messages are removed; 0 keeps them forever.
+     */
+    @Value("${messages.retention.months:0}")
+    private int retentionMonths;
+    /**
+     * What happens to expired partitions: 'drop' deletes them, 'detach' keeps them as standalone tables.
+     */
+    @Value("${messages.retention.mode:drop}")
+    private String retentionMode;
+    /**
+     * Maximum time to wait for locks on chat_messages when attaching or detaching partitions.
+     */
+    @Value("${messages.partitions.lock-timeout:5s}")
+    private Duration lockTimeout;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * A partition of chat_messages and the exclusive upper bound of its range.
+     * @param name the partition table name
+     * @param upperBound the exclusive upper bound of created_at
+     */
+    record Partition(String name, OffsetDateTime upperBound) {
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (!"drop".equals(retentionMode) && !"detach".equals(retentionMode)) {
+            throw new IllegalStateException("messages.retention.mode must be 'drop' or 'detach'");
+        }
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED, Boolean.class))) {
+            logger.warn("chat_messages is not partitioned; partition maintenance is disabled");
+            return;
+        }
+        // Run once before serving traffic so the current month always has a partition.
+        maintain();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "partition-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintain, checkInterval.toMillis(), checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates missing future partitions and applies retention on every shard, skipping shards
+     * another replica is maintaining.
+     */
+    public void maintain() {
+        for (int shardIndex : shardRouter.shards()) {
+            try (ShardContext.Scope shard = shardRouter.shard(shardIndex)) {
+                maintainShard(shardIndex);
+            }
+        }
+    }
+
+    private void maintainShard(int shardIndex) {
+        try {
+            jdbcTemplate.execute((Connection connection) -> {
+                if (!tryLock(connection)) {
+                    return null;
+                }
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET lock_timeout = " + lockTimeout.toMillis());
+                    YearMonth current = YearMonth.now(ZoneOffset.UTC);
+                    for (int i = 0; i <= premakeMonths; i++) {
+                        createPartition(statement, current.plusMonths(i));
+                    }
+                    if (retentionMonths > 0) {
+                        OffsetDateTime cutoff = OffsetDateTime.now(ZoneOffset.UTC).minusMonths(retentionMonths);
+                        for (Partition partition : listPartitions(connection)) {
+                            if (partition.upperBound() != null && !partition.upperBound().isAfter(cutoff)) {
+                                expire(statement, partition);
+                            }
+                        }
+                    }
+                } finally {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("RESET lock_timeout");
+                        statement.execute("SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+                    }
+                }
+                return null;
+            });
+        } catch (DataAccessException ex) {
+            logger.warn("Partition maintenance of shard {} failed; retrying in {}", shardIndex, checkInterval, ex);
+        }
+    }
+
+    /**
+     * Returns the name of the partition holding a month, e.g. chat_messages_p202405.
+     * @param month the month
+     * @return the partition table name
+     */
+    static String partitionName(YearMonth month) {
+        return "chat_messages_p" + month.format(SUFFIX);
+    }
+
+    private static void createPartition(Statement statement, YearMonth month) throws SQLException {
+        OffsetDateTime from = month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+        OffsetDateTime to = from.plusMonths(1);
+        statement.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) +
+                " PARTITION OF chat_messages FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+    }
+
+    private void expire(Statement statement, Partition partition) throws SQLException {
+        // CONCURRENTLY only takes a SHARE UPDATE EXCLUSIVE lock, so reads and inserts continue.
+        statement.execute("ALTER TABLE chat_messages DETACH PARTITION " + partition.name() + " CONCURRENTLY");
+        if ("drop".equals(retentionMode)) {
+            statement.execute("DROP TABLE " + partition.name());
+            logger.info("Dropped expired message partition {} (messages before {})", partition.name(), partition.upperBound());
+        } else {
+            logger.info("Detached expired message partition {} (messages before {}) for archiving",
+                    partition.name(), partition.upperBound());
+        }
+    }
+
+    private static List<Partition> listPartitions(Connection connection) throws SQLException {
+        List<Partition> partitions = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(LIST_PARTITIONS);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                partitions.add(new Partition(rs.getString("relname"), rs.getObject("upper_bound", OffsetDateTime.class)));
+            }
+        }
+        return partitions;
+    }
+
+    private static boolean tryLock(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_try_advisory_lock(" + LOCK_KEY + ")")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+}
@@ -1,24 +1,59 @@
 package org.example.service;
 
+import org.example.cache.RecentMessagesCache;
 import org.example.dto.ChatMessageRequest;
+import org.example.dto.EncodedMessage;
+import org.example.dto.MessageCursor;
+import org.example.dto.MessagePage;
+import org.example.event.ChatMessageCreatedEvent;
+import org.example.mapper.ChatMessageJsonWriter;
 import org.example.mapper.ChatMessageMapper;
+import org.example.metrics.MessageMetrics;
 import org.example.model.ChatMessage;
 import org.example.model.ChatSession;
 import org.example.repository.ChatMessageRepository;
+import org.example.shard.ShardContext;
+import org.example.shard.ShardRouter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Service for managing chat messages within chat sessions.
  * Provides methods to add and retrieve messages.
+ * Messages live on the shard of their session (see {@link ShardRouter}).
  */
 @Service
 public class ChatMessageService {
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageService.class);
+
     /**
      * Repository for chat messages.
      */
@@ -28,6 +63,46 @@ public class ChatMessageService {
     @Autowired
     private ChatMessageMapper chatMessageMapper;
 
+    @Autowired
+    private MessageIngestPipeline messageIngestPipeline;
+
+    @Autowired
+    private RecentMessagesCache recentMessagesCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ChatMessageJsonWriter chatMessageJsonWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private MessageMetrics messageMetrics;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Transactions for writes spanning shards, one per shard.
+     */
+    private TransactionTemplate writeTransaction;
+    /**
+     * Read-only transactions for the keyset queries, which may be served by a read replica.
+     */
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
     /**
      * Adds a new message to a chat session.
      * @param request the chat message request DTO
@@ -36,8 +111,72 @@ public class ChatMessageService {
     @Transactional
     public ChatMessage addMessage(ChatMessageRequest request) {
         ChatMessage message = chatMessageMapper.toEntity(request);
-        message.setCreatedAt(Instant.now());
-        return chatMessageRepository.save(message);
+        message.setCreatedAt(Instant.now().truncatedTo(ChronoUnit.MICROS));
+        try (ShardContext.Scope shard = shardRouter.writeSession(message.getSession().getId())) {
+            ChatMessage saved = chatMessageRepository.save(message);
+            eventPublisher.publishEvent(new ChatMessageCreatedEvent(saved));
+            return saved;
+        }
+    }
+
+    /**
+     * Queues a new message on the asynchronous ingest pipeline instead of writing it inline.
+     * The message is stamped with its creation time now, so its position in the session
+     * history does not depend on when the group commit happens.
+     * @param request the chat message request DTO
+     * @return the accepted append, carrying its acknowledgement sequence
+     * @throws IngestRejectedException if the pipeline applies backpressure
+     */
+    public MessageIngestPipeline.PendingMessage enqueueMessage(ChatMessageRequest request) {
+        ChatMessage message = chatMessageMapper.toEntity(request);
+        message.setCreatedAt(Instant.now().truncatedTo(ChronoUnit.MICROS));
+        shardRouter.checkWritable(message.getSession().getId());
+        return messageIngestPipeline.enqueue(message);
+    }
+
+    /**
+     * Adds several messages in one transaction per shard involved, usually just one.
+     * Inserts are sent as JDBC batches (see 'hibernate.jdbc.batch_size'), which the
+     * pooled sequence ID generator on ChatMessage makes possible.
+     * Shards are written one after the other. If the first one fails, nothing is stored and the
+     * exception propagates. If a later one fails, what other shards committed stays, and that
+     * shard's messages are returned as null for the caller to report.
+     * @param requests the chat message request DTOs, each with its session attached
+     * @return the created ChatMessages in request order; null for messages of a shard whose transaction failed
+     */
+    public List<ChatMessage> addMessages(List<ChatMessageRequest> requests) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        List<ChatMessage> messages = new ArrayList<>(requests.size());
+        for (ChatMessageRequest request : requests) {
+            ChatMessage message = chatMessageMapper.toEntity(request);
+            message.setCreatedAt(now);
+            messages.add(message);
+        }
+        messages.forEach(message -> shardRouter.checkWritable(message.getSession().getId()));
+        Set<ChatMessage> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        boolean committed = false;
+        for (Map.Entry<Integer, List<ChatMessage>> entry
+                : shardRouter.groupBySession(messages, message -> message.getSession().getId()).entrySet()) {
+            List<ChatMessage> group = entry.getValue();
+            try (ShardContext.Scope shard = shardRouter.shard(entry.getKey())) {
+                writeTransaction.executeWithoutResult(status -> {
+                    chatMessageRepository.saveAll(group);
+                    group.forEach(message -> eventPublisher.publishEvent(new ChatMessageCreatedEvent(message)));
+                });
+                committed = true;
+            } catch (RuntimeException ex) {
+                if (!committed) {
+                    throw ex;
+                }
+                logger.warn("Batch append to shard {} failed after other shards committed; {} messages not stored",
+                        entry.getKey(), group.size(), ex);
+                failed.addAll(group);
+            }
+        }
+        if (!failed.isEmpty()) {
+            messages.replaceAll(message -> failed.contains(message) ? null : message);
+        }
+        return messages;
     }
 
     /**
@@ -47,7 +186,136 @@ public class ChatMessageService {
      * @param size the page size
      * @return a page of ChatMessage entities
      */
+    @Transactional(readOnly = true)
     public Page<ChatMessage> getMessages(ChatSession session, int page, int size) {
-        return chatMessageRepository.findBySessionAndSession_DeletedAtIsNull(session, PageRequest.of(page, size));
+        try (ShardContext.Scope shard = shardRouter.readSession(session.getId())) {
+            Page<ChatMessage> messages =
+                    chatMessageRepository.findBySessionAndSession_DeletedAtIsNull(session, PageRequest.of(page, size));
+            messageMetrics.recordRead(messages.getNumberOfElements(), false);
+            return messages;
+        }
+    }
+
+    /**
+     * Retrieves one keyset page of messages for a chat session.
+     * With neither cursor set the newest messages are returned; {@code after} walks towards
+     * newer messages and {@code before} towards older ones. Messages are always returned
+     * oldest first, and {@code nextCursor} continues in the requested direction.
+     * The newest page is served from the in-memory tail cache when possible. Every other page,
+     * including the newest one when it is not cached, runs read-only and may be served by a read
+     * replica; the tail cache is always filled from the primary, since a stale fill would be
+     * served for as long as the entry lives.
+     * @param sessionId the chat session ID
+     * @param after optional cursor to read messages newer than
+     * @param before optional cursor to read messages older than
+     * @param limit the maximum number of messages to return
+     * @return the page of messages with its continuation cursor
+     */
+    public MessagePage getMessages(Long sessionId, MessageCursor after, MessageCursor before, int limit) {
+        if (after != null && before != null) {
+            throw new InvalidRequestException("Only one of 'after' and 'before' may be set");
+        }
+        try (ShardContext.Scope shard = shardRouter.readSession(sessionId)) {
+            return getPage(sessionId, after, before, limit);
+        }
+    }
+
+    private MessagePage getPage(Long sessionId, MessageCursor after, MessageCursor before, int limit) {
+        if (after != null) {
+            List<ChatMessage> rows = readOnlyTransaction.execute(status ->
+                    chatMessageRepository.findPageAfter(sessionId, after.createdAt(), after.id(), limit + 1));
+            boolean hasMore = rows.size() > limit;
+            List<ChatMessage> page = hasMore ? rows.subList(0, limit) : rows;
+            MessageCursor next = page.isEmpty() ? after : MessageCursor.of(page.get(page.size() - 1));
+            messageMetrics.recordRead(page.size(), false);
+            return MessagePage.ofEntities(page, next.encode(), hasMore);
+        }
+        if (before == null) {
+            Optional<RecentMessagesCache.Slice> cached = recentMessagesCache.latest(sessionId, limit,
+                    () -> chatMessageRepository.findLatest(sessionId, recentMessagesCache.capacity()));
+            if (cached.isPresent()) {
+                List<EncodedMessage> page = cached.get().messages();
+                boolean hasMore = cached.get().hasOlder();
+                String next = hasMore && !page.isEmpty() ? MessageCursor.of(page.get(0)).encode() : null;
+                messageMetrics.recordRead(page.size(), true);
+                return MessagePage.ofEncoded(page, next, hasMore);
+            }
+        }
+        List<ChatMessage> rows = before != null
+                ? readOnlyTransaction.execute(status ->
+                        chatMessageRepository.findPageBefore(sessionId, before.createdAt(), before.id(), limit + 1))
+                : readOnlyTransaction.execute(status -> chatMessageRepository.findLatest(sessionId, limit + 1));
+        boolean hasMore = rows.size() > limit;
+        List<ChatMessage> page = hasMore ? rows.subList(0, limit) : rows;
+        Collections.reverse(page);
+        String next = hasMore ? MessageCursor.of(page.get(0)).encode() : null;
+        messageMetrics.recordRead(page.size(), false);
+        return MessagePage.ofEntities(page, next, hasMore);
+    }
+
+    /**
+     * Writes every message of a session to the given stream as NDJSON, oldest first.
+     * Rows are read through a server-side cursor and detached once written, so memory use
+     * does not grow with the length of the session.
+     * @param sessionId the chat session ID
+     * @param out the target stream, left open
+     * @return the number of messages written
+     * @throws IOException if writing fails
+     */
+    public long exportSession(Long sessionId, OutputStream out) throws IOException {
+        try (ShardContext.Scope shard = shardRouter.readSession(sessionId)) {
+            return exportInTransaction(() -> chatMessageRepository.streamBySessionId(sessionId), out);
+        }
+    }
+
+    /**
+     * Writes every message of a user's live sessions to the given stream as NDJSON,
+     * grouped by session. Same memory behaviour as {@link #exportSession(Long, OutputStream)}.
+     * With sharding, shards are exported one after the other.
+     * @param userId the user ID
+     * @param out the target stream, left open
+     * @return the number of messages written
+     * @throws IOException if writing fails
+     */
+    public long exportUser(String userId, OutputStream out) throws IOException {
+        long count = 0;
+        for (int shardIndex : shardRouter.shards()) {
+            try (ShardContext.Scope shard = shardRouter.shard(shardIndex)) {
+                count += exportInTransaction(() -> chatMessageRepository.streamByUserId(userId), out);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes the messages of a query in a read-only transaction, which the server-side cursor requires.
+     */
+    private long exportInTransaction(Supplier<Stream<ChatMessage>> query, OutputStream out) throws IOException {
+        try {
+            Long count = readOnlyTransaction.execute(status -> {
+                try (Stream<ChatMessage> messages = query.get()) {
+                    return writeExport(messages, out);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            return count;
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private long writeExport(Stream<ChatMessage> messages, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = chatMessageJsonWriter.createGenerator(out)) {
+            Iterator<ChatMessage> it = messages.iterator();
+            while (it.hasNext()) {
+                ChatMessage message = it.next();
+                chatMessageJsonWriter.writeExportLine(generator, message);
+                entityManager.detach(message);
+                count++;
+            }
+        }
+        return count;
     }
 }
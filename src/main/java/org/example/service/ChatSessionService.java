@@ -1,20 +1,38 @@
 package org.example.service;
 
+import org.example.config.CacheConfig;
 import org.example.dto.ChatSessionRequest;
+import org.example.dto.ChatSessionView;
+import org.example.event.ChatSessionDeletedEvent;
 import org.example.mapper.ChatSessionMapper;
 import org.example.model.ChatSession;
 import org.example.repository.ChatSessionRepository;
+import org.example.shard.ShardContext;
+import org.example.shard.ShardRouter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Service for managing chat sessions.
  * Provides methods to create, retrieve, update, favorite, and delete sessions.
+ * Sessions are created on the shard of their user and looked up on the shard encoded in their ID
+ * (see {@link ShardRouter}); listing a user's sessions visits every shard.
  */
 @Service
 public class ChatSessionService {
@@ -27,6 +45,20 @@ public class ChatSessionService {
     @Autowired
     private ChatSessionMapper chatSessionMapper;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    /**
+     * Counts evictions, so that loads overlapping one can tell (see {@link #readThrough}).
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
     /**
      * Creates a new chat session for a user.
      * @param request the chat session request DTO
@@ -37,30 +69,94 @@ public class ChatSessionService {
         session.setCreatedAt(Instant.now());
         session.setUpdatedAt(Instant.now());
         session.setIsFavorite(request.getFavorite() != null ? request.getFavorite() : false);
-        return chatSessionRepository.save(session);
+        try (ShardContext.Scope shard = shardRouter.writeUser(session.getUserId())) {
+            ChatSession saved = chatSessionRepository.save(session);
+            evictSessionLists(saved.getUserId());
+            return saved;
+        }
     }
 
     /**
      * Retrieves chat sessions for a user, optionally filtered by favorite status.
+     * Results are read through the session-list cache, keyed by user and favorite filter.
      * @param userId the user ID
      * @param favorite optional filter for favorite sessions
-     * @return a list of ChatSession entities
+     * @return immutable snapshots of the sessions
      */
-    public List<ChatSession> getSessions(String userId, Boolean favorite) {
-        if (favorite != null && favorite) {
-            return chatSessionRepository.findByUserIdAndIsFavoriteTrueAndDeletedAtIsNull(userId);
-        }
-        return chatSessionRepository.findByUserIdAndDeletedAtIsNull(userId);
+    public List<ChatSessionView> getSessions(String userId, Boolean favorite) {
+        boolean favoritesOnly = favorite != null && favorite;
+        return readThrough(CacheConfig.SESSION_LISTS, sessionListKey(userId, favoritesOnly), () -> {
+            // Sessions created before sharding was enabled may live on any shard.
+            List<ChatSessionView> found = new ArrayList<>();
+            for (int shardIndex : shardRouter.shards()) {
+                try (ShardContext.Scope shard = shardRouter.shard(shardIndex)) {
+                    (favoritesOnly
+                            ? chatSessionRepository.findByUserIdAndIsFavoriteTrueAndDeletedAtIsNull(userId)
+                            : chatSessionRepository.findByUserIdAndDeletedAtIsNull(userId))
+                            .forEach(session -> found.add(chatSessionMapper.toView(session)));
+                }
+            }
+            return List.copyOf(found);
+        });
     }
 
     /**
-     * Retrieves a chat session by ID if not deleted.
+     * Retrieves a chat session by ID if not deleted, reading through the session cache.
      * @param id the session ID
-     * @return an Optional containing the ChatSession if found and not deleted
+     * @return an Optional containing a snapshot of the session if found and not deleted
      */
-    public Optional<ChatSession> getSession(Long id) {
-        return chatSessionRepository.findById(id)
-                .filter(s -> s.getDeletedAt() == null);
+    public Optional<ChatSessionView> getSession(Long id) {
+        return Optional.ofNullable(readThrough(CacheConfig.SESSIONS, id, () -> {
+            try (ShardContext.Scope shard = shardRouter.readSession(id)) {
+                return chatSessionRepository.findById(id)
+                        .filter(s -> s.getDeletedAt() == null)
+                        .map(chatSessionMapper::toView)
+                        .orElse(null);
+            }
+        }));
+    }
+
+    /**
+     * Returns a lazy reference to a live (non-deleted) session without loading its row.
+     * Liveness is answered from a short-lived cache, falling back to an indexed lookup,
+     * so appending a message costs a single round trip for the insert itself.
+     * @param id the session ID
+     * @return an Optional containing an uninitialized ChatSession proxy if the session is live
+     */
+    public Optional<ChatSession> getSessionReference(Long id) {
+        return findLiveUserId(id).map(userId -> chatSessionRepository.getReferenceById(id));
+    }
+
+    /**
+     * Resolves the owner of a live (non-deleted) session, served from the live-session cache when possible.
+     * @param id the session ID
+     * @return an Optional containing the owning user ID if the session is live
+     */
+    public Optional<String> findLiveUserId(Long id) {
+        return Optional.ofNullable(readThrough(CacheConfig.LIVE_SESSIONS, id, () -> {
+            try (ShardContext.Scope shard = shardRouter.readSession(id)) {
+                return chatSessionRepository.findLiveUserIdById(id).orElse(null);
+            }
+        }));
+    }
+
+    /**
+     * Retrieves the non-deleted chat sessions with the given IDs in a single query per shard.
+     * @param ids the session IDs
+     * @return the found sessions keyed by ID; missing or deleted IDs are absent
+     */
+    public Map<Long, ChatSession> getSessions(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, ChatSession> sessions = new HashMap<>();
+        shardRouter.groupBySession(ids, Long::longValue).forEach((shardIndex, shardIds) -> {
+            try (ShardContext.Scope shard = shardRouter.shard(shardIndex)) {
+                chatSessionRepository.findByIdInAndDeletedAtIsNull(shardIds)
+                        .forEach(session -> sessions.put(session.getId(), session));
+            }
+        });
+        return sessions;
     }
 
     /**
@@ -71,10 +167,14 @@ public class ChatSessionService {
      */
     @Transactional
     public ChatSession renameSession(Long id, String newName) {
-        ChatSession session = chatSessionRepository.findById(id).orElseThrow();
-        session.setName(newName);
-        session.setUpdatedAt(Instant.now());
-        return chatSessionRepository.save(session);
+        try (ShardContext.Scope shard = shardRouter.writeSession(id)) {
+            ChatSession session = findLive(id);
+            session.setName(newName);
+            session.setUpdatedAt(Instant.now());
+            ChatSession saved = chatSessionRepository.save(session);
+            evictSession(saved);
+            return saved;
+        }
     }
 
     /**
@@ -85,20 +185,120 @@ public class ChatSessionService {
      */
     @Transactional
     public ChatSession setFavorite(Long id, boolean favorite) {
-        ChatSession session = chatSessionRepository.findById(id).orElseThrow();
-        session.setIsFavorite(favorite);
-        session.setUpdatedAt(Instant.now());
-        return chatSessionRepository.save(session);
+        try (ShardContext.Scope shard = shardRouter.writeSession(id)) {
+            ChatSession session = findLive(id);
+            session.setIsFavorite(favorite);
+            session.setUpdatedAt(Instant.now());
+            ChatSession saved = chatSessionRepository.save(session);
+            evictSession(saved);
+            return saved;
+        }
     }
 
     /**
      * Marks a chat session as deleted.
+     * The session and its messages are removed for good by {@link SessionPurgeWorker} after a grace period.
      * @param id the session ID
      */
     @Transactional
     public void deleteSession(Long id) {
-        ChatSession session = chatSessionRepository.findById(id).orElseThrow();
-        session.setDeletedAt(Instant.now());
-        chatSessionRepository.save(session);
+        try (ShardContext.Scope shard = shardRouter.writeSession(id)) {
+            ChatSession session = findLive(id);
+            session.setDeletedAt(Instant.now());
+            chatSessionRepository.save(session);
+            evictSession(session);
+            eventPublisher.publishEvent(new ChatSessionDeletedEvent(id));
+        }
+    }
+
+    /**
+     * Loads a session for modification; deleted sessions are treated as missing.
+     * @param id the session ID
+     * @return the live session
+     * @throws java.util.NoSuchElementException if the session is missing or deleted
+     */
+    private ChatSession findLive(Long id) {
+        return chatSessionRepository.findById(id)
+                .filter(s -> s.getDeletedAt() == null)
+                .orElseThrow();
+    }
+
+    /**
+     * Evicts every cached view of a session once the current transaction commits:
+     * its by-ID entries and both session lists of its owner.
+     * @param session the changed session
+     */
+    private void evictSession(ChatSession session) {
+        Long id = session.getId();
+        afterCommit(() -> {
+            evictions.incrementAndGet();
+            cacheManager.getCache(CacheConfig.SESSIONS).evict(id);
+            cacheManager.getCache(CacheConfig.LIVE_SESSIONS).evict(id);
+        });
+        evictSessionLists(session.getUserId());
+    }
+
+    /**
+     * Evicts the cached session lists of a user once the current transaction commits.
+     * @param userId the owning user ID
+     */
+    private void evictSessionLists(String userId) {
+        afterCommit(() -> {
+            evictions.incrementAndGet();
+            Cache cache = cacheManager.getCache(CacheConfig.SESSION_LISTS);
+            cache.evict(sessionListKey(userId, true));
+            cache.evict(sessionListKey(userId, false));
+        });
+    }
+
+    /**
+     * Returns the cached value for a key, loading it on a miss. The load runs outside any cache
+     * lock, so a slow query blocks no other key (nor the carrier thread of a virtual thread).
+     * A load that overlapped an eviction may have read data from before the evicted write, so
+     * its value is dropped again instead of outliving the eviction.
+     * @param cacheName the cache
+     * @param key the key
+     * @param loader loads the value; null results are not cached
+     * @return the value, or null if the loader found none
+     */
+    @SuppressWarnings("unchecked")
+    private <V> V readThrough(String cacheName, Object key, Supplier<V> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        Cache.ValueWrapper cached = cache.get(key);
+        if (cached != null) {
+            return (V) cached.get();
+        }
+        long generation = evictions.get();
+        V loaded = loader.get();
+        if (loaded == null) {
+            return null;
+        }
+        Cache.ValueWrapper existing = cache.putIfAbsent(key, loaded);
+        if (evictions.get() != generation) {
+            cache.evict(key);
+        }
+        return existing != null ? (V) existing.get() : loaded;
+    }
+
+    private static String sessionListKey(String userId, boolean favoritesOnly) {
+        return userId + (favoritesOnly ? ":favorites" : ":all");
+    }
+
+    /**
+     * Runs the given action once the current transaction commits, or immediately if none is active.
+     * Keeps cache invalidation from racing ahead of the database change it reflects.
+     * @param action the action to run
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
@@ -0,0 +1,11 @@
+package org.example.service;
+
+/**
+ * Thrown when the asynchronous message ingest pipeline cannot accept more work,
+ * either because its queue is full or because it is shutting down.
+ */
+public class IngestRejectedException extends RuntimeException {
+    public IngestRejectedException(String message) {
+        super(message);
+    }
+}
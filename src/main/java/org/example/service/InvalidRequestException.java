@@ -0,0 +1,16 @@
+package org.example.service;
+
+/**
+ * Thrown when a request carries an invalid parameter, cursor or body record.
+ * Answered with 400 and the message, so messages must be safe to show to clients;
+ * other IllegalArgumentExceptions are treated as server errors.
+ */
+public class InvalidRequestException extends IllegalArgumentException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,326 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.event.ChatMessageCreatedEvent;
+import org.example.model.ChatMessage;
+import org.example.repository.ChatMessageRepository;
+import org.example.shard.ShardContext;
+import org.example.shard.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind pipeline for message appends.
+ * When 'messages.ingest.mode' is 'async', appends are placed on bounded in-memory queues
+ * partitioned by session, so messages of one session are always written in arrival order.
+ * One writer thread per partition drains its queue and commits messages in groups,
+ * amortizing the commit latency over many appends.
+ * Writers run on virtual threads when 'spring.threads.virtual.enabled' is set on Java 21.
+ */
+@Component
+public class MessageIngestPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(MessageIngestPipeline.class);
+
+    /**
+     * Ingest mode: 'sync' (default) writes each append in its own transaction, 'async' uses this pipeline.
+     */
+    @Value("${messages.ingest.mode:sync}")
+    private String mode;
+    /**
+     * When to acknowledge an async append: 'commit' (default) waits for the group commit, 'enqueue' does not.
+     */
+    @Value("${messages.ingest.ack:commit}")
+    private String ack;
+    /**
+     * Total number of appends that may wait in the queues before new ones are rejected.
+     */
+    @Value("${messages.ingest.queue-capacity:10000}")
+    private int queueCapacity;
+    /**
+     * Number of writer threads, and therefore of session partitions.
+     */
+    @Value("${messages.ingest.writers:2}")
+    private int writerCount;
+    /**
+     * Maximum number of messages committed in one transaction.
+     */
+    @Value("${messages.ingest.batch-size:200}")
+    private int batchSize;
+    /**
+     * How long an ack-after-commit append waits for its group commit.
+     */
+    @Value("${messages.ingest.commit-timeout:5s}")
+    private Duration commitTimeout;
+    /**
+     * How long shutdown waits for the queues to drain.
+     */
+    @Value("${messages.ingest.shutdown-timeout:30s}")
+    private Duration shutdownTimeout;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private TransactionTemplate transactionTemplate;
+    private final List<BlockingQueue<PendingMessage>> partitions = new ArrayList<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    /**
+     * Held shared by enqueue from the accepting check through the offer, and exclusively by stop()
+     * to close the pipeline, so nothing is queued after the writers were told to finish.
+     */
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private volatile boolean accepting;
+    private volatile boolean running;
+
+    /**
+     * An append accepted by the pipeline.
+     * @param sequence the server-assigned acknowledgement sequence, increasing in acceptance order
+     * @param message the message entity to be written
+     * @param committed completes with the persisted message once its group commit succeeds
+     */
+    public record PendingMessage(long sequence, ChatMessage message, CompletableFuture<ChatMessage> committed) {
+    }
+
+    /**
+     * Starts the writer threads when async ingest is enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        int partitionCapacity = Math.max(1, queueCapacity / writerCount);
+        boolean virtual = Threading.VIRTUAL.isActive(environment);
+        ThreadFactory threadFactory = virtual
+                ? new VirtualThreadTaskExecutor("message-ingest-").getVirtualThreadFactory()
+                : runnable -> {
+                    Thread thread = new Thread(runnable, "message-ingest-" + writers.size());
+                    thread.setDaemon(true);
+                    return thread;
+                };
+        running = true;
+        for (int i = 0; i < writerCount; i++) {
+            BlockingQueue<PendingMessage> queue = new ArrayBlockingQueue<>(partitionCapacity);
+            partitions.add(queue);
+            Thread writer = threadFactory.newThread(() -> drain(queue));
+            writers.add(writer);
+            writer.start();
+        }
+        accepting = true;
+        Gauge.builder("chat.ingest.queued", partitions, queues -> queues.stream().mapToInt(BlockingQueue::size).sum())
+                .description("Appends waiting for their group commit")
+                .register(meterRegistry);
+        logger.info("Async message ingest started: writers={}, capacity={}, batchSize={}, ack={}, virtualThreads={}",
+                writerCount, queueCapacity, batchSize, ack, virtual);
+    }
+
+    /**
+     * Indicates whether appends should go through this pipeline.
+     * @return true if 'messages.ingest.mode' is 'async'
+     */
+    public boolean isEnabled() {
+        return "async".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Indicates whether clients are acknowledged only after their message is committed.
+     * @return true for ack-after-commit, false for ack-after-enqueue
+     */
+    public boolean acknowledgesAfterCommit() {
+        return !"enqueue".equalsIgnoreCase(ack);
+    }
+
+    /**
+     * Queues a message for the writer responsible for its session.
+     * @param message the message entity, with its session and createdAt set
+     * @return the accepted append
+     * @throws IngestRejectedException if the partition queue is full or the pipeline is stopping
+     */
+    public PendingMessage enqueue(ChatMessage message) {
+        long sessionId = message.getSession().getId();
+        BlockingQueue<PendingMessage> queue = partitions.get(Math.floorMod(Long.hashCode(sessionId), partitions.size()));
+        acceptLock.readLock().lock();
+        try {
+            if (!accepting) {
+                throw new IngestRejectedException("Message ingest is not accepting appends");
+            }
+            PendingMessage pending = new PendingMessage(sequence.incrementAndGet(), message, new CompletableFuture<>());
+            if (!queue.offer(pending)) {
+                throw new IngestRejectedException("Message ingest queue is full");
+            }
+            return pending;
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Waits for an accepted append to be committed.
+     * The append stays queued when the wait ends early, so it may still commit afterwards;
+     * callers must then report it as accepted rather than failed.
+     * @param pending the accepted append
+     * @return the persisted message, or empty if it was not committed within 'messages.ingest.commit-timeout'
+     */
+    public Optional<ChatMessage> awaitCommit(PendingMessage pending) {
+        try {
+            return Optional.of(pending.committed().get(commitTimeout.toMillis(), TimeUnit.MILLISECONDS));
+        } catch (TimeoutException ex) {
+            logger.debug("Message #{} not committed within {}", pending.sequence(), commitTimeout);
+            return Optional.empty();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Stops accepting appends and drains everything already queued before the application shuts down.
+     */
+    @PreDestroy
+    public void stop() {
+        if (!isEnabled()) {
+            return;
+        }
+        acceptLock.writeLock().lock();
+        try {
+            accepting = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        running = false;
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        for (Thread writer : writers) {
+            try {
+                writer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        int leftover = 0;
+        for (BlockingQueue<PendingMessage> queue : partitions) {
+            List<PendingMessage> batch = new ArrayList<>();
+            queue.drainTo(batch);
+            leftover += batch.size();
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        }
+        logger.info("Async message ingest stopped ({} appends flushed during shutdown)", leftover);
+    }
+
+    private void drain(BlockingQueue<PendingMessage> queue) {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (true) {
+            PendingMessage first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                if (!running) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Commits a group of appends in one transaction per shard. If the group fails, each append is
+     * retried on its own so that one bad message does not fail its neighbours.
+     */
+    private void write(List<PendingMessage> batch) {
+        shardRouter.groupBySession(batch, pending -> pending.message().getSession().getId())
+                .forEach((shardIndex, group) -> {
+                    try (ShardContext.Scope shard = shardRouter.shard(shardIndex)) {
+                        writeGroup(group);
+                    }
+                });
+    }
+
+    private void writeGroup(List<PendingMessage> batch) {
+        List<ChatMessage> messages = batch.stream().map(PendingMessage::message).toList();
+        try {
+            List<ChatMessage> saved = transactionTemplate.execute(status -> {
+                List<ChatMessage> inserted = chatMessageRepository.saveAll(messages);
+                inserted.forEach(message -> eventPublisher.publishEvent(new ChatMessageCreatedEvent(message)));
+                return inserted;
+            });
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).committed().complete(saved.get(i));
+            }
+        } catch (RuntimeException batchFailure) {
+            logger.warn("Group commit of {} messages failed, retrying individually", batch.size(), batchFailure);
+            for (PendingMessage pending : batch) {
+                pending.message().setId(null);
+                try {
+                    ChatMessage saved = transactionTemplate.execute(status -> {
+                        ChatMessage inserted = chatMessageRepository.save(pending.message());
+                        eventPublisher.publishEvent(new ChatMessageCreatedEvent(inserted));
+                        return inserted;
+                    });
+                    pending.committed().complete(saved);
+                } catch (RuntimeException ex) {
+                    logger.error("Dropping message #{} for session {}", pending.sequence(),
+                            pending.message().getSession().getId(), ex);
+                    pending.committed().completeExceptionally(ex);
+                }
+            }
+        }
+    }
+}
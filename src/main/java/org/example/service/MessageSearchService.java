@@ -0,0 +1,47 @@
+package org.example.service;
+
+import org.example.dto.ChatSessionView;
+import org.example.dto.MessageSearchResponse;
+import org.example.dto.SearchCursor;
+import org.example.search.MessageSearchEngine;
+import org.example.search.MessageSearchQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Service for searching the messages of a user's sessions.
+ */
+@Service
+public class MessageSearchService {
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private MessageSearchEngine messageSearchEngine;
+
+    /**
+     * Searches the messages of a user's live sessions, best match first.
+     * @param userId the user whose sessions are searched
+     * @param text the query text
+     * @param sessionId optional session to restrict the search to
+     * @param from optional inclusive lower bound on the message creation time
+     * @param to optional exclusive upper bound on the message creation time
+     * @param after optional cursor of the last hit of the previous page
+     * @param limit the maximum number of hits to return
+     * @return one page of hits; empty if the user has no matching session
+     */
+    public MessageSearchResponse search(String userId, String text, Long sessionId, Instant from, Instant to,
+                                        SearchCursor after, int limit) {
+        List<Long> sessionIds = chatSessionService.getSessions(userId, null).stream()
+                .map(ChatSessionView::id)
+                .filter(id -> sessionId == null || id.equals(sessionId))
+                .toList();
+        if (sessionIds.isEmpty()) {
+            return new MessageSearchResponse(List.of(), null, false);
+        }
+        return messageSearchEngine.search(new MessageSearchQuery(text, sessionIds, from, to, after, limit));
+    }
+}
@@ -0,0 +1,339 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.shard.ShardContext;
+import org.example.shard.ShardRouter;
+import org.example.storage.MessageContextStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hard-deletes sessions that were soft-deleted longer than 'grace-period' ago, with their messages.
+ * Runs only with 'messages.purge.enabled=true'.
+ * Messages are deleted in chunks of 'chunk-size' rows, each its own short transaction, with a pause
+ * between chunks. The pause doubles (up to 'max-pause') whenever a chunk is slow, hits a lock
+ * timeout, or replicas lag behind by more than 'max-replication-lag', and shrinks again while the
+ * database keeps up, so the purge yields to regular traffic instead of competing with it.
+ * A session row is only removed once it has no messages left. Deduplicated contexts no message
+ * references any more are removed afterwards (see {@link MessageContextStore}).
+ * Replicas coordinate through an advisory lock; only one of them purges at a time. With sharding,
+ * each shard is purged in turn, skipping sessions in the middle of a move to another shard.
+ * Exposes the 'chat.purge.backlog' gauge and the 'chat.purge.sessions' / 'chat.purge.messages' /
+ * 'chat.purge.contexts' counters.
+ */
+@Component
+public class SessionPurgeWorker {
+    private static final Logger logger = LoggerFactory.getLogger(SessionPurgeWorker.class);
+
+    private static final long LOCK_KEY = 0x636861745f707267L;
+    private static final String COUNT_BACKLOG =
+            "SELECT count(*) FROM chat_sessions WHERE deleted_at IS NOT NULL AND deleted_at < ?";
+    private static final String FIND_EXPIRED =
+            "SELECT id FROM chat_sessions WHERE deleted_at IS NOT NULL AND deleted_at < ? ORDER BY deleted_at LIMIT ?";
+    private static final String DELETE_MESSAGE_CHUNK = "DELETE FROM chat_messages WHERE (id, created_at) IN " +
+            "(SELECT id, created_at FROM chat_messages WHERE session_id = ? LIMIT ?)";
+    private static final String DELETE_IMPORT_MAPPINGS = "DELETE FROM chat_import_sessions WHERE session_id = ?";
+    private static final String DELETE_SESSION = "DELETE FROM chat_sessions WHERE id = ? AND deleted_at IS NOT NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM chat_messages WHERE session_id = ?)";
+    private static final String DELETE_UNUSED_CONTEXTS = "DELETE FROM chat_contexts WHERE hash IN " +
+            "(SELECT c.hash FROM chat_contexts c WHERE c.last_used_at < ? " +
+            "AND NOT EXISTS (SELECT 1 FROM chat_messages m WHERE m.context_hash = c.hash) LIMIT ?)";
+    private static final String REPLICATION_LAG =
+            "SELECT COALESCE(EXTRACT(EPOCH FROM MAX(replay_lag)) * 1000, 0)::bigint FROM pg_stat_replication";
+
+    /**
+     * Whether soft-deleted sessions are purged by this replica at all; off unless opted in, since it
+     * removes data for good.
+     */
+    @Value("${messages.purge.enabled:false}")
+    private boolean enabled;
+    /**
+     * How long a deleted session is kept before it is purged.
+     */
+    @Value("${messages.purge.grace-period:7d}")
+    private Duration gracePeriod;
+    /**
+     * How often the purge runs.
+     */
+    @Value("${messages.purge.interval:1m}")
+    private Duration interval;
+    /**
+     * Maximum number of sessions purged per run.
+     */
+    @Value("${messages.purge.sessions-per-run:100}")
+    private int sessionsPerRun;
+    /**
+     * Number of messages deleted per transaction.
+     */
+    @Value("${messages.purge.chunk-size:1000}")
+    private int chunkSize;
+    /**
+     * Pause between chunks while the database keeps up.
+     */
+    @Value("${messages.purge.min-pause:20ms}")
+    private Duration minPause;
+    /**
+     * Upper bound of the pause between chunks under backoff.
+     */
+    @Value("${messages.purge.max-pause:5s}")
+    private Duration maxPause;
+    /**
+     * Chunks taking longer than this count as slow and increase the pause.
+     */
+    @Value("${messages.purge.slow-chunk:200ms}")
+    private Duration slowChunk;
+    /**
+     * Replica replay lag above which the purge backs off.
+     */
+    @Value("${messages.purge.max-replication-lag:10s}")
+    private Duration maxReplicationLag;
+    /**
+     * Maximum time a chunk waits for row locks before it is skipped and retried later.
+     */
+    @Value("${messages.purge.lock-timeout:1s}")
+    private Duration lockTimeout;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private MessageContextStore messageContextStore;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private Counter purgedSessions;
+    private Counter purgedMessages;
+    private Counter purgedContexts;
+    private Timer chunkTimer;
+    private ScheduledExecutorService scheduler;
+    private long pauseMillis;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("chat.purge.backlog", backlog, AtomicLong::get)
+                .description("Deleted sessions past their grace period awaiting purge")
+                .register(meterRegistry);
+        purgedSessions = Counter.builder("chat.purge.sessions")
+                .description("Deleted sessions purged")
+                .register(meterRegistry);
+        purgedMessages = Counter.builder("chat.purge.messages")
+                .description("Messages of deleted sessions purged")
+                .register(meterRegistry);
+        purgedContexts = Counter.builder("chat.purge.contexts")
+                .description("Deduplicated contexts purged after their last message")
+                .register(meterRegistry);
+        chunkTimer = Timer.builder("chat.purge.chunk")
+                .description("Time to delete one chunk of messages")
+                .register(meterRegistry);
+        pauseMillis = minPause.toMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::purge, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Purges up to 'sessions-per-run' expired sessions per shard, skipping shards another replica is purging.
+     */
+    public void purge() {
+        long remaining = 0;
+        boolean measured = false;
+        for (int shardIndex : shardRouter.shards()) {
+            try (ShardContext.Scope shard = shardRouter.shard(shardIndex)) {
+                Long shardBacklog = purgeShard(shardIndex);
+                if (shardBacklog != null) {
+                    remaining += shardBacklog;
+                    measured = true;
+                }
+            }
+        }
+        if (measured) {
+            backlog.set(remaining);
+        }
+    }
+
+    /**
+     * Purges the shard selected for the current thread. The advisory lock is held on a connection of
+     * its own for the whole run; every other statement borrows a pooled connection just for itself,
+     * so no connection sits idle in the pool's count while the purge pauses between chunks.
+     * @return the number of expired sessions left on the shard, or null if it was not purged
+     */
+    private Long purgeShard(int shardIndex) {
+        try (Connection lockConnection = jdbcTemplate.getDataSource().getConnection()) {
+            if (!tryLock(lockConnection)) {
+                return null;
+            }
+            try {
+                Timestamp cutoff = Timestamp.from(Instant.now().minus(gracePeriod));
+                long left = jdbcTemplate.queryForObject(COUNT_BACKLOG, Long.class, cutoff);
+                for (long sessionId : jdbcTemplate.queryForList(FIND_EXPIRED, Long.class, cutoff, sessionsPerRun)) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    if (shardRouter.owns(shardIndex, sessionId) && purgeSession(sessionId)) {
+                        purgedSessions.increment();
+                        left--;
+                    }
+                }
+                purgeContexts();
+                return left;
+            } finally {
+                try (Statement statement = lockConnection.createStatement()) {
+                    statement.execute("SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+                }
+            }
+        } catch (SQLException | DataAccessException ex) {
+            logger.warn("Session purge of shard {} failed; retrying in {}", shardIndex, interval, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes a session's messages chunk by chunk, then the session itself.
+     * @return true if the session row was deleted
+     */
+    private boolean purgeSession(long sessionId) {
+        while (true) {
+            int deleted;
+            long started = System.nanoTime();
+            try {
+                deleted = updateWithLockTimeout(DELETE_MESSAGE_CHUNK, sessionId, chunkSize);
+            } catch (CannotAcquireLockException ex) {
+                logger.debug("Purge of session {} waited too long for locks; retrying later", sessionId);
+                backOff();
+                return false;
+            }
+            long elapsed = System.nanoTime() - started;
+            chunkTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            purgedMessages.increment(deleted);
+            if (deleted < chunkSize) {
+                break;
+            }
+            if (elapsed > slowChunk.toNanos() || replicationLagMillis() > maxReplicationLag.toMillis()) {
+                backOff();
+            } else {
+                pauseMillis = Math.max(minPause.toMillis(), pauseMillis / 2);
+            }
+            if (!sleep(pauseMillis)) {
+                return false;
+            }
+        }
+        jdbcTemplate.update(DELETE_IMPORT_MAPPINGS, sessionId);
+        return jdbcTemplate.update(DELETE_SESSION, sessionId, sessionId) > 0;
+    }
+
+    /**
+     * Deletes stored contexts past their retention that no message references, chunk by chunk.
+     * A chunk racing a new reference fails on the foreign key and is left for the next run.
+     */
+    private void purgeContexts() {
+        Timestamp cutoff = Timestamp.from(messageContextStore.unusedBefore());
+        while (!Thread.currentThread().isInterrupted()) {
+            int deleted;
+            try {
+                deleted = updateWithLockTimeout(DELETE_UNUSED_CONTEXTS, cutoff, chunkSize);
+            } catch (CannotAcquireLockException | DataIntegrityViolationException ex) {
+                logger.debug("Context purge collided with new messages; retrying later");
+                return;
+            }
+            purgedContexts.increment(deleted);
+            if (deleted < chunkSize || !sleep(pauseMillis)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs one statement under 'lock-timeout' on a connection borrowed for that statement only.
+     * @return the number of rows changed
+     * @throws CannotAcquireLockException if the statement waited longer than 'lock-timeout' for row locks
+     */
+    private int updateWithLockTimeout(String sql, Object... args) {
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET lock_timeout = " + lockTimeout.toMillis());
+            }
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < args.length; i++) {
+                    statement.setObject(i + 1, args[i]);
+                }
+                return statement.executeUpdate();
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("RESET lock_timeout");
+                }
+            }
+        });
+    }
+
+    private void backOff() {
+        pauseMillis = Math.min(maxPause.toMillis(), Math.max(1, pauseMillis) * 2);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the largest replay lag among streaming replicas, or 0 if there are none or it is not visible.
+     */
+    private long replicationLagMillis() {
+        Long lag = jdbcTemplate.queryForObject(REPLICATION_LAG, Long.class);
+        return lag != null ? lag : 0;
+    }
+
+    private static boolean tryLock(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_try_advisory_lock(" + LOCK_KEY + ")")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+}
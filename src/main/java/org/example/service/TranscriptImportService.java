@@ -0,0 +1,342 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.dto.ChatSessionRequest;
+import org.example.dto.TranscriptImportResult;
+import org.example.event.ChatMessageCreatedEvent;
+import org.example.model.ChatMessage;
+import org.example.model.ChatSession;
+import org.example.model.ImportCheckpoint;
+import org.example.model.ImportedSession;
+import org.example.repository.ImportCheckpointRepository;
+import org.example.repository.ImportedSessionRepository;
+import org.example.shard.ShardRouter;
+import org.example.storage.MessageContextStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk import of chat transcripts from NDJSON.
+ * Each input record is one message:
+ * {"sessionId":..,"userId":..,"sessionName":..,"sender":..,"content":..,"context":..,"createdAt":"ISO-8601"}.
+ * 'sessionId' is the session key of the source system (the export format uses the same field),
+ * and records sharing a key are imported into one new chat session.
+ * Input is parsed incrementally and committed in batches of 'messages.import.batch-size' records,
+ * so memory use is bounded by one batch. Each batch commits together with the import checkpoint;
+ * running the same import ID again skips the records already committed.
+ * Not available with sharding: a batch and its checkpoint could not commit atomically across shards.
+ */
+@Service
+public class TranscriptImportService {
+    private static final Logger logger = LoggerFactory.getLogger(TranscriptImportService.class);
+    private static final String INSERT_MESSAGE =
+            "INSERT INTO chat_messages (id, session_id, sender, content, context, context_hash, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String ALLOCATE_IDS = "SELECT nextval('chat_messages_seq') FROM generate_series(1, ?)";
+
+    /**
+     * Number of records committed per transaction.
+     */
+    @Value("${messages.import.batch-size:2000}")
+    private int batchSize;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ImportCheckpointRepository importCheckpointRepository;
+
+    @Autowired
+    private ImportedSessionRepository importedSessionRepository;
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private MessageContextStore messageContextStore;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * One parsed input record.
+     */
+    private record TranscriptLine(String sessionKey, String userId, String sessionName,
+                                  String sender, String content, String context, Instant createdAt) {
+    }
+
+    /**
+     * Imports an NDJSON transcript stream, resuming after the last committed batch of the same import.
+     * @param importId identifies the import across runs
+     * @param defaultUserId user ID for records that do not carry one, may be null
+     * @param in the NDJSON input, read to the end and closed
+     * @return the outcome of this run
+     * @throws IOException if reading the input fails
+     * @throws InvalidRequestException if a record is malformed; earlier batches stay committed
+     * @throws IllegalStateException if sharding is enabled
+     */
+    public TranscriptImportResult importTranscripts(String importId, String defaultUserId, InputStream in) throws IOException {
+        if (shardRouter.isSharded()) {
+            throw new IllegalStateException("Transcript import is not supported with sharding enabled");
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ImportCheckpoint checkpoint = transactionTemplate.execute(status -> importCheckpointRepository.findById(importId)
+                .orElseGet(() -> importCheckpointRepository.save(ImportCheckpoint.builder()
+                        .importId(importId)
+                        .updatedAt(Instant.now())
+                        .build())));
+        long skip = checkpoint.getRecordsCommitted();
+        long committed = skip;
+        long record = 0;
+        long sessionsCreated = 0;
+        List<TranscriptLine> batch = new ArrayList<>(batchSize);
+
+        try (JsonParser parser = objectMapper.createParser(in)) {
+            while (parser.nextToken() != null) {
+                if (parser.currentToken() != JsonToken.START_OBJECT) {
+                    throw new InvalidRequestException("Record " + (record + 1) + " is not a JSON object");
+                }
+                record++;
+                if (record <= skip) {
+                    parser.skipChildren();
+                    continue;
+                }
+                batch.add(readLine(parser, record, defaultUserId));
+                if (batch.size() == batchSize) {
+                    sessionsCreated += commitBatch(transactionTemplate, importId, committed, batch, false);
+                    committed += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        sessionsCreated += commitBatch(transactionTemplate, importId, committed, batch, true);
+        committed += batch.size();
+
+        logger.info("Import '{}' finished: {} records skipped, {} imported, {} sessions created",
+                importId, Math.min(skip, record), committed - skip, sessionsCreated);
+        return new TranscriptImportResult(importId, Math.min(skip, record), committed - skip, sessionsCreated, committed, true);
+    }
+
+    /**
+     * Writes one batch and advances the checkpoint in the same transaction.
+     * @return the number of sessions created for the batch
+     */
+    private long commitBatch(TransactionTemplate transactionTemplate, String importId, long expectedCommitted,
+                             List<TranscriptLine> batch, boolean last) {
+        return transactionTemplate.execute(status -> {
+            ImportCheckpoint checkpoint = importCheckpointRepository.findForUpdate(importId).orElseThrow();
+            if (checkpoint.getRecordsCommitted() != expectedCommitted) {
+                throw new IllegalStateException("Import '" + importId + "' was advanced by another run");
+            }
+            Map<String, Long> sessionIds = new HashMap<>();
+            long created = resolveSessions(importId, batch, sessionIds);
+            insertMessages(batch, sessionIds);
+
+            Instant now = Instant.now();
+            checkpoint.setRecordsCommitted(expectedCommitted + batch.size());
+            checkpoint.setSessionsCreated(checkpoint.getSessionsCreated() + created);
+            checkpoint.setUpdatedAt(now);
+            if (last) {
+                checkpoint.setCompletedAt(now);
+            }
+            return created;
+        });
+    }
+
+    /**
+     * Maps the session keys of a batch to chat sessions, creating the sessions seen for the first time.
+     */
+    private long resolveSessions(String importId, List<TranscriptLine> batch, Map<String, Long> sessionIds) {
+        Map<String, TranscriptLine> firstByKey = new LinkedHashMap<>();
+        for (TranscriptLine line : batch) {
+            firstByKey.putIfAbsent(line.sessionKey(), line);
+        }
+        if (firstByKey.isEmpty()) {
+            return 0;
+        }
+        for (ImportedSession existing : importedSessionRepository.findByImportIdAndSourceKeyIn(importId, firstByKey.keySet())) {
+            sessionIds.put(existing.getSourceKey(), existing.getSessionId());
+        }
+        long created = 0;
+        for (TranscriptLine line : firstByKey.values()) {
+            if (sessionIds.containsKey(line.sessionKey())) {
+                continue;
+            }
+            String name = line.sessionName() != null ? line.sessionName() : line.sessionKey();
+            ChatSession session = chatSessionService.createSession(new ChatSessionRequest(null, line.userId(), name, false));
+            importedSessionRepository.save(ImportedSession.builder()
+                    .importId(importId)
+                    .sourceKey(line.sessionKey())
+                    .sessionId(session.getId())
+                    .build());
+            sessionIds.put(line.sessionKey(), session.getId());
+            created++;
+        }
+        return created;
+    }
+
+    /**
+     * Inserts the messages of a batch as one JDBC batch, which the driver rewrites into
+     * multi-row INSERTs ('reWriteBatchedInserts'), and publishes their creation events.
+     */
+    private void insertMessages(List<TranscriptLine> batch, Map<String, Long> sessionIds) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long[] ids = allocateIds(batch.size());
+        List<MessageContextStore.StoredContext> contexts = batch.stream()
+                .map(line -> messageContextStore.store(line.context()))
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_MESSAGE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                TranscriptLine line = batch.get(i);
+                ps.setLong(1, ids[i]);
+                ps.setLong(2, sessionIds.get(line.sessionKey()));
+                ps.setString(3, line.sender());
+                ps.setString(4, line.content());
+                ps.setBytes(5, contexts.get(i).data());
+                ps.setBytes(6, contexts.get(i).hash());
+                ps.setObject(7, OffsetDateTime.ofInstant(line.createdAt(), ZoneOffset.UTC));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+        for (int i = 0; i < batch.size(); i++) {
+            TranscriptLine line = batch.get(i);
+            Long sessionId = sessionIds.get(line.sessionKey());
+            ChatMessage message = ChatMessage.builder()
+                    .id(ids[i])
+                    .session(entityManager.getReference(ChatSession.class, sessionId))
+                    .sender(line.sender())
+                    .content(line.content())
+                    .context(line.context())
+                    .createdAt(line.createdAt())
+                    .build();
+            eventPublisher.publishEvent(new ChatMessageCreatedEvent(sessionId, message));
+        }
+    }
+
+    /**
+     * Reserves message IDs from chat_messages_seq the same way Hibernate's pooled optimizer
+     * does, so imported rows never collide with IDs handed out by the application.
+     */
+    private long[] allocateIds(int count) {
+        long[] ids = new long[count];
+        int next = 0;
+        while (next < count) {
+            int blocks = (count - next + ChatMessage.ID_ALLOCATION_SIZE - 1) / ChatMessage.ID_ALLOCATION_SIZE;
+            for (Long hi : jdbcTemplate.queryForList(ALLOCATE_IDS, Long.class, blocks)) {
+                for (long id = Math.max(1, hi - ChatMessage.ID_ALLOCATION_SIZE + 1); id <= hi && next < count; id++) {
+                    ids[next++] = id;
+                }
+            }
+        }
+        return ids;
+    }
+
+    private TranscriptLine readLine(JsonParser parser, long record, String defaultUserId) throws IOException {
+        String sessionKey = null;
+        String userId = defaultUserId;
+        String sessionName = null;
+        String sender = null;
+        String content = null;
+        String context = null;
+        String createdAt = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "sessionId" -> sessionKey = text(parser, record, field);
+                case "userId" -> {
+                    String text = text(parser, record, field);
+                    userId = text != null ? text : userId;
+                }
+                case "sessionName" -> sessionName = text(parser, record, field);
+                case "sender" -> sender = text(parser, record, field);
+                case "content" -> content = text(parser, record, field);
+                case "context" -> context = value.isStructStart()
+                        ? parser.readValueAsTree().toString()
+                        : text(parser, record, field);
+                case "createdAt" -> createdAt = text(parser, record, field);
+                default -> parser.skipChildren();
+            }
+        }
+        require(sessionKey, record, "sessionId");
+        require(userId, record, "userId");
+        require(sender, record, "sender");
+        require(content, record, "content");
+        return new TranscriptLine(sessionKey, userId, sessionName, sender, content, context,
+                parseInstant(createdAt, record).truncatedTo(ChronoUnit.MICROS));
+    }
+
+    private static String text(JsonParser parser, long record, String field) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new InvalidRequestException("Record " + record + ": '" + field + "' must be a scalar value");
+        }
+        return parser.getText();
+    }
+
+    private static void require(String value, long record, String field) {
+        if (value == null || value.isBlank()) {
+            throw new InvalidRequestException("Record " + record + ": '" + field + "' is required");
+        }
+    }
+
+    private static Instant parseInstant(String value, long record) {
+        if (value == null) {
+            return Instant.now();
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException ex) {
+            throw new InvalidRequestException("Record " + record + ": 'createdAt' is not an ISO-8601 instant", ex);
+        }
+    }
+}
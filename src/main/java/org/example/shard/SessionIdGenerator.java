@@ -0,0 +1,39 @@
+package org.example.shard;
+
+import org.example.model.ChatSession;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Assigns session IDs that carry the bucket of the session's user (see {@link ShardKeys}).
+ * The high bits come from chat_session_seq of the shard the session is written to.
+ */
+public class SessionIdGenerator implements IdentifierGenerator {
+    private static final String NEXT_VALUE = "SELECT nextval('chat_session_seq')";
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        int bucket = ShardKeys.bucketOfUser(((ChatSession) object).getUserId());
+        JdbcCoordinator jdbc = session.getJdbcCoordinator();
+        PreparedStatement statement = jdbc.getStatementPreparer().prepareStatement(NEXT_VALUE);
+        try {
+            ResultSet rs = jdbc.getResultSetReturn().extract(statement, NEXT_VALUE);
+            try {
+                rs.next();
+                return ShardKeys.sessionId(rs.getLong(1), bucket);
+            } finally {
+                jdbc.getLogicalConnection().getResourceRegistry().release(rs, statement);
+            }
+        } catch (SQLException ex) {
+            throw session.getJdbcServices().getSqlExceptionHelper().convert(ex, "Could not allocate a session ID", NEXT_VALUE);
+        } finally {
+            jdbc.getLogicalConnection().getResourceRegistry().release(statement);
+            jdbc.afterStatementExecution();
+        }
+    }
+}
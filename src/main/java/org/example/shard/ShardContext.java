@@ -0,0 +1,49 @@
+package org.example.shard;
+
+/**
+ * The shard that database work on the current thread goes to.
+ * Set through {@link ShardRouter}; without a scope, work goes to shard 0. The application's
+ * DataSource connects lazily, so a scope opened at the start of a transactional method still
+ * decides where that transaction runs, as long as it is opened before the first statement.
+ * One transaction always stays on one shard.
+ */
+public final class ShardContext {
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * A shard selection, restoring the previous one when closed.
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Returns the shard selected for the current thread.
+     * @return the shard index, 0 if none is selected
+     */
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard != null ? shard : 0;
+    }
+
+    /**
+     * Selects a shard for the current thread until the returned scope is closed.
+     * @param shard the shard index
+     * @return the scope to close, typically in a try-with-resources block
+     */
+    static Scope use(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Layout of shard keys.
+ * Users hash to one of {@link #BUCKETS} buckets, and every session ID carries the bucket of the
+ * user it was created for in its low {@link #BUCKET_BITS} bits, so the shard of a session (and of
+ * its messages) follows from its ID alone. Buckets are assigned to shards by the 'shard_buckets'
+ * table (see {@link ShardRouter}); moving a bucket moves all of its sessions.
+ * IDs are unique across shards: each shard draws session and message IDs from its own range.
+ */
+public final class ShardKeys {
+    /**
+     * Number of low session ID bits holding the bucket.
+     */
+    public static final int BUCKET_BITS = 10;
+    /**
+     * Number of buckets, and so the upper bound on the number of shards that can hold data.
+     */
+    public static final int BUCKETS = 1 << BUCKET_BITS;
+    /**
+     * Maximum number of shards that can be configured.
+     */
+    public static final int MAX_SHARDS = 2048;
+
+    private static final int SESSION_SEQUENCE_SHIFT = 42;
+    private static final int MESSAGE_ID_SHIFT = 52;
+
+    private ShardKeys() {
+    }
+
+    /**
+     * Returns the bucket of a user's sessions.
+     * @param userId the user ID, may be null
+     * @return the bucket, stable across releases and JVMs
+     */
+    public static int bucketOfUser(String userId) {
+        if (userId == null) {
+            return 0;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(userId.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() & (BUCKETS - 1));
+    }
+
+    /**
+     * Returns the bucket encoded in a session ID.
+     * @param sessionId the session ID
+     * @return the bucket
+     */
+    public static int bucketOfSession(long sessionId) {
+        return (int) (sessionId & (BUCKETS - 1));
+    }
+
+    /**
+     * Composes a session ID.
+     * @param sequence the next value of chat_session_seq
+     * @param bucket the bucket of the session's user
+     * @return the session ID
+     */
+    public static long sessionId(long sequence, int bucket) {
+        return sequence << BUCKET_BITS | bucket;
+    }
+
+    /**
+     * Returns the first chat_session_seq value of a shard's range.
+     * @param shard the shard index
+     * @return the lowest sequence value the shard may hand out
+     */
+    public static long sessionSequenceStart(int shard) {
+        return (long) shard << SESSION_SEQUENCE_SHIFT;
+    }
+
+    /**
+     * Returns the first message ID of a shard's range.
+     * @param shard the shard index
+     * @return the lowest message ID the shard may hand out
+     */
+    public static long messageIdStart(int shard) {
+        return (long) shard << MESSAGE_ID_SHIFT;
+    }
+}
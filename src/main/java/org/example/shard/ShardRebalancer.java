@@ -0,0 +1,311 @@
+package org.example.shard;
+
+import org.example.storage.MessageContextStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Moves buckets between shards while the application keeps serving them.
+ * A move copies the bucket's sessions and messages to the target shard, then freezes the bucket
+ * (writes are rejected, reads continue from the source), copies what changed meanwhile, and
+ * points the bucket at the target, marking it as draining from the source. After another pause, so
+ * that every replica has picked up the new map, the source copy is deleted in chunks and the mark
+ * is cleared. Each step is idempotent and the bucket's state in the map says which step it reached:
+ * a move interrupted while copying is redone (which also frees buckets left frozen), and one
+ * interrupted while deleting resumes the deletion, so no rows are left behind on the source.
+ * Only one rebalance runs at a time, coordinated through an advisory lock on shard 0.
+ */
+@Component
+@ConditionalOnExpression("'${sharding.urls:}' != ''")
+public class ShardRebalancer {
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final long LOCK_KEY = 0x636861745f736864L;
+    private static final String LOAD_BUCKETS = "SELECT bucket, shard, moving_to, draining_from FROM shard_buckets " +
+            "ORDER BY bucket";
+    private static final String IN_BUCKET = " FROM chat_sessions WHERE (id & " + (ShardKeys.BUCKETS - 1) + ") = ?";
+    private static final String SELECT_SESSIONS = "SELECT id, user_id, name, is_favorite, created_at, updated_at, " +
+            "deleted_at" + IN_BUCKET;
+    private static final String SELECT_SESSION_IDS = "SELECT id" + IN_BUCKET;
+    private static final String UPSERT_SESSION = "INSERT INTO chat_sessions " +
+            "(id, user_id, name, is_favorite, created_at, updated_at, deleted_at) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (id) DO UPDATE SET user_id = EXCLUDED.user_id, name = EXCLUDED.name, " +
+            "is_favorite = EXCLUDED.is_favorite, updated_at = EXCLUDED.updated_at, deleted_at = EXCLUDED.deleted_at";
+    private static final String SELECT_MESSAGES = "SELECT id, session_id, sender, content, context, context_hash, " +
+            "created_at FROM chat_messages WHERE session_id = ?";
+    private static final String INSERT_MESSAGE = "INSERT INTO chat_messages " +
+            "(id, session_id, sender, content, context, context_hash, created_at) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT DO NOTHING";
+    private static final String DELETE_MESSAGE_CHUNK = "DELETE FROM chat_messages WHERE (id, created_at) IN " +
+            "(SELECT id, created_at FROM chat_messages WHERE session_id = ? LIMIT ?)";
+
+    /**
+     * Pause after changing a bucket's state, long enough for every replica to reload the map
+     * (see 'sharding.refresh-interval') and finish writes that started before.
+     */
+    @Value("${sharding.rebalance.settle:15s}")
+    private Duration settle;
+    /**
+     * How far before the start of a copy the catch-up copy looks for new messages, covering
+     * messages stamped before they were committed (e.g. by async ingest).
+     */
+    @Value("${sharding.rebalance.margin:1m}")
+    private Duration margin;
+    /**
+     * Number of rows copied or deleted per statement.
+     */
+    @Value("${sharding.rebalance.chunk-size:1000}")
+    private int chunkSize;
+    /**
+     * Maximum number of buckets moved per run.
+     */
+    @Value("${sharding.rebalance.max-buckets:1024}")
+    private int maxBuckets;
+
+    @Autowired
+    private ShardRoutingDataSource shards;
+
+    @Autowired
+    private MessageContextStore messageContextStore;
+
+    /**
+     * A message row being copied, with its context in stored form.
+     */
+    private record MessageRow(long id, long sessionId, String sender, String content, byte[] context,
+                              byte[] contextHash, OffsetDateTime createdAt) {
+    }
+
+    /**
+     * A planned bucket move.
+     * @param draining whether the bucket already points at the target and only the source copy is left to delete
+     */
+    record Move(int bucket, int from, int to, boolean draining) {
+    }
+
+    /**
+     * Finishes interrupted moves, then moves buckets until every shard holds an even share of
+     * them or 'max-buckets' buckets were moved.
+     * @return the number of buckets moved
+     * @throws IllegalStateException if another rebalance is running
+     */
+    public int rebalance() {
+        JdbcTemplate directory = new JdbcTemplate(shards.shard(0));
+        Integer moved = directory.execute((Connection connection) -> {
+            if (!tryLock(connection)) {
+                throw new IllegalStateException("Another shard rebalance is running");
+            }
+            try {
+                int count = 0;
+                for (Move move : plan(directory)) {
+                    if (count == maxBuckets) {
+                        break;
+                    }
+                    moveBucket(directory, move);
+                    count++;
+                }
+                return count;
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+                }
+            }
+        });
+        logger.info("Shard rebalance finished; {} buckets moved", moved);
+        return moved;
+    }
+
+    /**
+     * Plans interrupted moves first, then moves from the shards holding the most buckets to
+     * those holding the fewest.
+     */
+    private List<Move> plan(JdbcTemplate directory) {
+        int shardCount = shards.shardCount();
+        int[] owner = new int[ShardKeys.BUCKETS];
+        int[] counts = new int[shardCount];
+        List<Move> moves = new ArrayList<>();
+        directory.query(LOAD_BUCKETS, rs -> {
+            int bucket = rs.getInt("bucket");
+            owner[bucket] = rs.getInt("shard");
+            int movingTo = rs.getInt("moving_to");
+            if (!rs.wasNull()) {
+                moves.add(new Move(bucket, owner[bucket], movingTo, false));
+                owner[bucket] = movingTo;
+            }
+            int drainingFrom = rs.getInt("draining_from");
+            if (!rs.wasNull()) {
+                moves.add(new Move(bucket, drainingFrom, owner[bucket], true));
+            }
+            counts[owner[bucket]]++;
+        });
+        for (int bucket = 0; bucket < owner.length; bucket++) {
+            int from = owner[bucket];
+            if (counts[from] <= fairShare(from, shardCount)) {
+                continue;
+            }
+            for (int to = 0; to < shardCount; to++) {
+                if (counts[to] < fairShare(to, shardCount)) {
+                    moves.add(new Move(bucket, from, to, false));
+                    counts[from]--;
+                    counts[to]++;
+                    break;
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Number of buckets a shard should hold; the remainder goes to the lowest shards.
+     */
+    static int fairShare(int shard, int shardCount) {
+        return ShardKeys.BUCKETS / shardCount + (shard < ShardKeys.BUCKETS % shardCount ? 1 : 0);
+    }
+
+    private void moveBucket(JdbcTemplate directory, Move move) {
+        logger.info("Moving bucket {} from shard {} to shard {}", move.bucket(), move.from(), move.to());
+        JdbcTemplate source = new JdbcTemplate(shards.shard(move.from()));
+        if (!move.draining()) {
+            copyBucket(directory, source, new JdbcTemplate(shards.shard(move.to())), move);
+        }
+        sleep(settle);
+
+        List<Long> sessionIds = source.queryForList(SELECT_SESSION_IDS, Long.class, move.bucket());
+        for (long sessionId : sessionIds) {
+            int deleted;
+            do {
+                deleted = source.update(DELETE_MESSAGE_CHUNK, sessionId, chunkSize);
+            } while (deleted == chunkSize);
+            source.update("DELETE FROM chat_sessions WHERE id = ?", sessionId);
+        }
+        directory.update("UPDATE shard_buckets SET state = 'active', draining_from = NULL, updated_at = now() " +
+                "WHERE bucket = ?", move.bucket());
+        logger.info("Moved bucket {} to shard {}: {} sessions removed from shard {}", move.bucket(), move.to(),
+                sessionIds.size(), move.from());
+    }
+
+    /**
+     * Copies a bucket to the target shard, freezes it for the catch-up copy and switches it over,
+     * leaving it draining from the source.
+     */
+    private void copyBucket(JdbcTemplate directory, JdbcTemplate source, JdbcTemplate target, Move move) {
+        directory.update("UPDATE shard_buckets SET moving_to = ?, updated_at = now() WHERE bucket = ?",
+                move.to(), move.bucket());
+
+        Instant copyStarted = Instant.now();
+        long messages = 0;
+        List<Long> sessionIds = copySessions(source, target, move.bucket());
+        for (long sessionId : sessionIds) {
+            messages += copyMessages(source, target, sessionId, null);
+        }
+
+        directory.update("UPDATE shard_buckets SET state = 'frozen', updated_at = now() WHERE bucket = ?", move.bucket());
+        sleep(settle);
+        sessionIds = copySessions(source, target, move.bucket());
+        OffsetDateTime since = OffsetDateTime.ofInstant(copyStarted.minus(margin), ZoneOffset.UTC);
+        for (long sessionId : sessionIds) {
+            messages += copyMessages(source, target, sessionId, since);
+        }
+        directory.update("UPDATE shard_buckets SET shard = ?, state = 'draining', moving_to = NULL, " +
+                "draining_from = ?, updated_at = now() WHERE bucket = ?", move.to(), move.from(), move.bucket());
+        logger.info("Switched bucket {} to shard {}: {} sessions, {} messages copied", move.bucket(), move.to(),
+                sessionIds.size(), messages);
+    }
+
+    /**
+     * Upserts every session of a bucket into the target shard.
+     * @return the IDs of the copied sessions
+     */
+    private List<Long> copySessions(JdbcTemplate source, JdbcTemplate target, int bucket) {
+        List<Object[]> rows = source.query(SELECT_SESSIONS, (rs, rowNum) -> new Object[]{
+                rs.getLong("id"),
+                rs.getString("user_id"),
+                rs.getString("name"),
+                rs.getObject("is_favorite"),
+                rs.getObject("created_at", OffsetDateTime.class),
+                rs.getObject("updated_at", OffsetDateTime.class),
+                rs.getObject("deleted_at", OffsetDateTime.class)}, bucket);
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            target.batchUpdate(UPSERT_SESSION, rows.subList(from, Math.min(rows.size(), from + chunkSize)));
+        }
+        rows.forEach(row -> ids.add((Long) row[0]));
+        return ids;
+    }
+
+    /**
+     * Copies a session's messages in keyset order, skipping those already on the target.
+     * @param since only copy messages created at or after this time; null copies all
+     * @return the number of messages read from the source
+     */
+    private long copyMessages(JdbcTemplate source, JdbcTemplate target, long sessionId, OffsetDateTime since) {
+        long copied = 0;
+        MessageRow last = null;
+        while (true) {
+            List<Object> params = new ArrayList<>(List.of(sessionId));
+            StringBuilder sql = new StringBuilder(SELECT_MESSAGES);
+            if (since != null) {
+                sql.append(" AND created_at >= ?");
+                params.add(since);
+            }
+            if (last != null) {
+                sql.append(" AND (created_at, id) > (?, ?)");
+                params.add(last.createdAt());
+                params.add(last.id());
+            }
+            sql.append(" ORDER BY created_at, id LIMIT ?");
+            params.add(chunkSize);
+            List<MessageRow> page = source.query(sql.toString(), (rs, rowNum) -> readMessage(rs), params.toArray());
+            if (page.isEmpty()) {
+                return copied;
+            }
+            messageContextStore.copy(source, target,
+                    page.stream().map(MessageRow::contextHash).filter(Objects::nonNull).toList());
+            target.batchUpdate(INSERT_MESSAGE, page.stream().map(row -> new Object[]{row.id(), row.sessionId(),
+                    row.sender(), row.content(), row.context(), row.contextHash(), row.createdAt()}).toList());
+            copied += page.size();
+            if (page.size() < chunkSize) {
+                return copied;
+            }
+            last = page.get(page.size() - 1);
+        }
+    }
+
+    private static MessageRow readMessage(ResultSet rs) throws SQLException {
+        return new MessageRow(rs.getLong("id"), rs.getLong("session_id"), rs.getString("sender"),
+                rs.getString("content"), rs.getBytes("context"), rs.getBytes("context_hash"),
+                rs.getObject("created_at", OffsetDateTime.class));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while moving a bucket; rerun to finish the move", ex);
+        }
+    }
+
+    private static boolean tryLock(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_try_advisory_lock(" + LOCK_KEY + ")")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package org.example.shard;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Decides which shard session and message work goes to.
+ * With sharding enabled ('sharding.urls', see ShardingConfig), a session lives on the shard its
+ * bucket is assigned to in the 'shard_buckets' table of shard 0; the map is cached and reloaded
+ * every 'refresh-interval'. Buckets frozen by {@link ShardRebalancer} accept reads but reject
+ * writes with {@link ShardUnavailableException} until their move completes.
+ * Without sharding there is a single shard and every scope is a no-op.
+ */
+@Component
+public class ShardRouter {
+    private static final Logger logger = LoggerFactory.getLogger(ShardRouter.class);
+
+    private static final ShardContext.Scope UNSHARDED = () -> {
+    };
+    private static final String LOAD_BUCKETS = "SELECT bucket, shard, state FROM shard_buckets";
+
+    /**
+     * How often the bucket map is reloaded from shard 0.
+     */
+    @Value("${sharding.refresh-interval:5s}")
+    private Duration refreshInterval;
+
+    @Autowired(required = false)
+    private ShardRoutingDataSource shardRoutingDataSource;
+
+    private JdbcTemplate directory;
+    private volatile BucketMap buckets;
+    private ScheduledExecutorService refresher;
+
+    /**
+     * Snapshot of the bucket map.
+     * @param shards the shard of each bucket
+     * @param frozen whether each bucket is frozen for a move
+     */
+    record BucketMap(int[] shards, boolean[] frozen) {
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isSharded()) {
+            return;
+        }
+        directory = new JdbcTemplate(shardRoutingDataSource.shard(0));
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-map-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (DataAccessException | IllegalStateException ex) {
+                logger.warn("Failed to reload the shard map; keeping the previous one", ex);
+            }
+        }, refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Whether more than the regular database is in use.
+     * @return true if sharding is enabled
+     */
+    public boolean isSharded() {
+        return shardRoutingDataSource != null;
+    }
+
+    /**
+     * Returns every shard index, for work that has to visit all of them.
+     * @return the shard indexes in ascending order; just 0 without sharding
+     */
+    public List<Integer> shards() {
+        return IntStream.range(0, isSharded() ? shardRoutingDataSource.shardCount() : 1).boxed().toList();
+    }
+
+    /**
+     * Returns the shard holding a session and its messages.
+     * @param sessionId the session ID
+     * @return the shard index
+     */
+    public int shardOfSession(long sessionId) {
+        return isSharded() ? map().shards()[ShardKeys.bucketOfSession(sessionId)] : 0;
+    }
+
+    /**
+     * Returns the shard new sessions of a user are created on.
+     * @param userId the user ID, may be null
+     * @return the shard index
+     */
+    public int shardOfUser(String userId) {
+        return isSharded() ? map().shards()[ShardKeys.bucketOfUser(userId)] : 0;
+    }
+
+    /**
+     * Selects a shard for the current thread.
+     * @param shard the shard index
+     * @return the scope to close when done
+     */
+    public ShardContext.Scope shard(int shard) {
+        return isSharded() ? ShardContext.use(shard) : UNSHARDED;
+    }
+
+    /**
+     * Selects the shard of a session for reading.
+     * @param sessionId the session ID
+     * @return the scope to close when done
+     */
+    public ShardContext.Scope readSession(long sessionId) {
+        return shard(shardOfSession(sessionId));
+    }
+
+    /**
+     * Selects the shard of a session for writing.
+     * @param sessionId the session ID
+     * @return the scope to close when done
+     * @throws ShardUnavailableException if the session's bucket is being moved
+     */
+    public ShardContext.Scope writeSession(long sessionId) {
+        checkWritable(sessionId);
+        return shard(shardOfSession(sessionId));
+    }
+
+    /**
+     * Selects the shard new sessions of a user are written to.
+     * @param userId the user ID, may be null
+     * @return the scope to close when done
+     * @throws ShardUnavailableException if the user's bucket is being moved
+     */
+    public ShardContext.Scope writeUser(String userId) {
+        checkBucketWritable(ShardKeys.bucketOfUser(userId));
+        return shard(shardOfUser(userId));
+    }
+
+    /**
+     * Fails if a session cannot be written to right now.
+     * @param sessionId the session ID
+     * @throws ShardUnavailableException if the session's bucket is being moved
+     */
+    public void checkWritable(long sessionId) {
+        checkBucketWritable(ShardKeys.bucketOfSession(sessionId));
+    }
+
+    /**
+     * Whether a shard is where a session currently lives and may be written, e.g. by background
+     * clean-up. Copies left behind by or made for a bucket move do not qualify.
+     * @param shard the shard index
+     * @param sessionId the session ID
+     * @return true if the shard owns the session and its bucket is not frozen
+     */
+    public boolean owns(int shard, long sessionId) {
+        if (!isSharded()) {
+            return true;
+        }
+        int bucket = ShardKeys.bucketOfSession(sessionId);
+        BucketMap map = map();
+        return map.shards()[bucket] == shard && !map.frozen()[bucket];
+    }
+
+    /**
+     * Groups items by the shard of the session they belong to, keeping their order within each group.
+     * @param items the items
+     * @param sessionId extracts the session ID of an item
+     * @return the groups keyed by shard index, in ascending shard order
+     */
+    public <T> Map<Integer, List<T>> groupBySession(Collection<T> items, ToLongFunction<T> sessionId) {
+        Map<Integer, List<T>> groups = new TreeMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(shardOfSession(sessionId.applyAsLong(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * Reloads the bucket map from shard 0.
+     * @throws IllegalStateException if the map is incomplete or names a shard that is not configured
+     */
+    public void refresh() {
+        int[] shards = new int[ShardKeys.BUCKETS];
+        boolean[] frozen = new boolean[ShardKeys.BUCKETS];
+        Arrays.fill(shards, -1);
+        directory.query(LOAD_BUCKETS, rs -> {
+            int bucket = rs.getInt("bucket");
+            shards[bucket] = rs.getInt("shard");
+            frozen[bucket] = "frozen".equals(rs.getString("state"));
+        });
+        for (int bucket = 0; bucket < shards.length; bucket++) {
+            if (shards[bucket] < 0 || shards[bucket] >= shardRoutingDataSource.shardCount()) {
+                throw new IllegalStateException("Bucket " + bucket + " is assigned to shard " + shards[bucket] +
+                        ", but " + shardRoutingDataSource.shardCount() + " shards are configured");
+            }
+        }
+        buckets = new BucketMap(shards, frozen);
+    }
+
+    private void checkBucketWritable(int bucket) {
+        if (isSharded() && map().frozen()[bucket]) {
+            throw new ShardUnavailableException("Session data is being moved; retry shortly");
+        }
+    }
+
+    private BucketMap map() {
+        BucketMap map = buckets;
+        if (map == null) {
+            synchronized (this) {
+                if (buckets == null) {
+                    refresh();
+                }
+                map = buckets;
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.shard;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out connections of the shard selected by {@link ShardContext}.
+ * Shard 0 is the regular application pool; it also holds the bucket map. The pools of the
+ * additional shards are owned by this DataSource and closed when it stops.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    private static final Logger logger = LoggerFactory.getLogger(ShardRoutingDataSource.class);
+
+    private final List<DataSource> shards = new ArrayList<>();
+
+    /**
+     * Creates the router.
+     * @param directory the pool of shard 0
+     * @param additionalShards the pools of shards 1 to N, in order
+     */
+    public ShardRoutingDataSource(DataSource directory, List<DataSource> additionalShards) {
+        shards.add(directory);
+        shards.addAll(additionalShards);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(directory);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+
+    /**
+     * Number of configured shards, including shard 0.
+     * @return the shard count
+     */
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Returns the pool of one shard, bypassing {@link ShardContext}.
+     * @param shard the shard index
+     * @return the shard's pool
+     */
+    public DataSource shard(int shard) {
+        return shards.get(shard);
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (int i = 1; i < shards.size(); i++) {
+            if (shards.get(i) instanceof AutoCloseable pool) {
+                try {
+                    pool.close();
+                } catch (Exception ex) {
+                    logger.warn("Failed to close the pool of shard {}", i, ex);
+                }
+            }
+        }
+    }
+}
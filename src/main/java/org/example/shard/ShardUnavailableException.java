@@ -0,0 +1,11 @@
+package org.example.shard;
+
+/**
+ * Thrown when a write targets a session whose bucket is briefly frozen while it moves to
+ * another shard. Clients should retry shortly.
+ */
+public class ShardUnavailableException extends RuntimeException {
+    public ShardUnavailableException(String message) {
+        super(message);
+    }
+}
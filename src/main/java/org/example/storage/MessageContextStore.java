@@ -0,0 +1,192 @@
+package org.example.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import org.example.model.ChatMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stores message context in compressed form, registered as a JPA listener on {@link ChatMessage}.
+ * Contexts are encoded with {@link PayloadCodec} into the 'context' column. With
+ * 'messages.compression.dedup.enabled', contexts of at least 'dedup.min-bytes' are stored once per
+ * shard in chat_contexts under their SHA-256 hash and messages only reference them, which pays
+ * off for conversations that resend the same context with every message. Stored contexts are
+ * immutable, so they are cached by hash without invalidation.
+ * A stored context is kept while messages reference it and for 'dedup.retention' after it was
+ * last referenced by a new message; {@link org.example.service.SessionPurgeWorker} removes it then.
+ * Writing a message touches its context at most every quarter of the retention, which also locks
+ * it against a concurrent purge.
+ */
+@Component
+public class MessageContextStore {
+    private static final String UPSERT_CONTEXT = "INSERT INTO chat_contexts (hash, body) VALUES (?, ?) " +
+            "ON CONFLICT (hash) DO UPDATE SET last_used_at = now() WHERE chat_contexts.last_used_at < ?";
+    private static final String SELECT_CONTEXT = "SELECT body FROM chat_contexts WHERE hash = ?";
+
+    /**
+     * Minimum UTF-8 size in bytes from which a context is LZ4-compressed.
+     */
+    @Value("${messages.compression.threshold:512}")
+    private int threshold;
+    /**
+     * Whether large contexts are stored once and referenced by hash.
+     */
+    @Value("${messages.compression.dedup.enabled:false}")
+    private boolean dedupEnabled;
+    /**
+     * Minimum UTF-8 size in bytes from which a context is deduplicated.
+     */
+    @Value("${messages.compression.dedup.min-bytes:4096}")
+    private int dedupMinBytes;
+    /**
+     * How long a stored context outlives the last new message referencing it.
+     */
+    @Value("${messages.compression.dedup.retention:1d}")
+    private Duration retention;
+    /**
+     * Approximate memory budget of the cache of stored contexts.
+     */
+    @Value("${messages.compression.dedup.cache-bytes:33554432}")
+    private long cacheBytes;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Cache<String, String> contexts;
+
+    /**
+     * The stored form of a context: a frame for the 'context' column or a hash for 'context_hash'.
+     * @param data the encoded context, or null if it is referenced by hash
+     * @param hash the SHA-256 hash of the deduplicated context, or null if it is stored inline
+     */
+    public record StoredContext(byte[] data, byte[] hash) {
+    }
+
+    @PostConstruct
+    public void init() {
+        contexts = Caffeine.newBuilder()
+                .maximumWeight(cacheBytes)
+                .weigher((String hash, String context) -> 2 * context.length() + 96)
+                .build();
+    }
+
+    /**
+     * Encodes a message's context before it is inserted.
+     * The stored form is recomputed on every attempt, since a retried insert may follow a
+     * rolled-back transaction whose stored context is gone.
+     * @param message the message about to be persisted
+     */
+    @PrePersist
+    public void beforeInsert(ChatMessage message) {
+        StoredContext stored = store(message.getContext());
+        message.setContextData(stored.data());
+        message.setContextHash(stored.hash());
+    }
+
+    /**
+     * Decodes a message's context after it is loaded.
+     * @param message the loaded message
+     */
+    @PostLoad
+    public void afterLoad(ChatMessage message) {
+        message.setContext(load(message.getContextData(), message.getContextHash()));
+    }
+
+    /**
+     * Encodes a context, writing it to chat_contexts of the current shard if it is deduplicated.
+     * Must run in the transaction that inserts the referencing message.
+     * @param context the context, may be null
+     * @return the stored form
+     */
+    public StoredContext store(String context) {
+        if (context == null) {
+            return new StoredContext(null, null);
+        }
+        byte[] utf8 = context.getBytes(StandardCharsets.UTF_8);
+        if (!dedupEnabled || utf8.length < dedupMinBytes) {
+            return new StoredContext(PayloadCodec.encode(utf8, threshold), null);
+        }
+        byte[] hash = sha256(utf8);
+        jdbcTemplate.update(UPSERT_CONTEXT, hash, PayloadCodec.encode(utf8, threshold), touchBefore());
+        contexts.put(HexFormat.of().formatHex(hash), context);
+        return new StoredContext(null, hash);
+    }
+
+    /**
+     * Decodes a stored context, reading it from chat_contexts of the current shard if it is referenced by hash.
+     * @param data the 'context' column
+     * @param hash the 'context_hash' column
+     * @return the context, or null if the message has none
+     * @throws IllegalStateException if a referenced context does not exist
+     */
+    public String load(byte[] data, byte[] hash) {
+        if (hash == null) {
+            return PayloadCodec.decode(data);
+        }
+        return contexts.get(HexFormat.of().formatHex(hash), key -> {
+            List<byte[]> bodies = jdbcTemplate.query(SELECT_CONTEXT, (rs, rowNum) -> rs.getBytes(1), hash);
+            if (bodies.isEmpty()) {
+                throw new IllegalStateException("Stored context " + key + " does not exist");
+            }
+            return PayloadCodec.decode(bodies.get(0));
+        });
+    }
+
+    /**
+     * Copies stored contexts between shards, for messages moved along with their bucket.
+     * @param source the shard the contexts are read from
+     * @param target the shard the contexts are written to
+     * @param hashes hashes of the contexts, duplicates allowed
+     */
+    public void copy(JdbcTemplate source, JdbcTemplate target, Collection<byte[]> hashes) {
+        Set<ByteBuffer> distinct = new LinkedHashSet<>();
+        hashes.forEach(hash -> distinct.add(ByteBuffer.wrap(hash)));
+        Timestamp touchBefore = touchBefore();
+        for (ByteBuffer key : distinct) {
+            byte[] hash = key.array();
+            List<byte[]> bodies = source.query(SELECT_CONTEXT, (rs, rowNum) -> rs.getBytes(1), hash);
+            if (!bodies.isEmpty()) {
+                target.update(UPSERT_CONTEXT, hash, bodies.get(0), touchBefore);
+            }
+        }
+    }
+
+    /**
+     * Stored contexts last referenced before this time may be removed once no message references them.
+     * @return the purge cutoff
+     */
+    public Instant unusedBefore() {
+        return Instant.now().minus(retention);
+    }
+
+    private Timestamp touchBefore() {
+        return Timestamp.from(Instant.now().minus(retention.dividedBy(4)));
+    }
+
+    private static byte[] sha256(byte[] utf8) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(utf8);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.storage;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes text into the stored frame format of large message payloads.
+ * A frame starts with one codec byte: {@link #RAW} is followed by the UTF-8 bytes of the text,
+ * {@link #LZ4} by the 4-byte length of those bytes and an LZ4 block holding them. Text is only
+ * compressed from 'threshold' UTF-8 bytes on, and kept raw when compression does not pay off,
+ * so small payloads cost nothing to read back.
+ */
+public final class PayloadCodec {
+    /**
+     * Codec byte of uncompressed frames.
+     */
+    public static final byte RAW = 0;
+    /**
+     * Codec byte of LZ4-compressed frames.
+     */
+    public static final byte LZ4 = 1;
+
+    private static final int LZ4_HEADER_BYTES = 5;
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4SafeDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().safeDecompressor();
+
+    private PayloadCodec() {
+    }
+
+    /**
+     * Encodes text into a frame.
+     * @param text the text, may be null
+     * @param threshold minimum UTF-8 size in bytes at which compression is attempted
+     * @return the frame, or null for null text
+     */
+    public static byte[] encode(String text, int threshold) {
+        if (text == null) {
+            return null;
+        }
+        return encode(text.getBytes(StandardCharsets.UTF_8), threshold);
+    }
+
+    /**
+     * Encodes UTF-8 bytes into a frame.
+     * @param utf8 the UTF-8 encoded text
+     * @param threshold minimum size in bytes at which compression is attempted
+     * @return the frame
+     */
+    public static byte[] encode(byte[] utf8, int threshold) {
+        if (utf8.length >= threshold) {
+            byte[] frame = new byte[LZ4_HEADER_BYTES + COMPRESSOR.maxCompressedLength(utf8.length)];
+            int compressed = COMPRESSOR.compress(utf8, 0, utf8.length, frame, LZ4_HEADER_BYTES);
+            if (LZ4_HEADER_BYTES + compressed < utf8.length + 1) {
+                ByteBuffer.wrap(frame).put(LZ4).putInt(utf8.length);
+                byte[] trimmed = new byte[LZ4_HEADER_BYTES + compressed];
+                System.arraycopy(frame, 0, trimmed, 0, trimmed.length);
+                return trimmed;
+            }
+        }
+        byte[] frame = new byte[utf8.length + 1];
+        frame[0] = RAW;
+        System.arraycopy(utf8, 0, frame, 1, utf8.length);
+        return frame;
+    }
+
+    /**
+     * Decodes a frame back into text.
+     * @param frame the frame, may be null
+     * @return the text, or null for a null frame
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static String decode(byte[] frame) {
+        if (frame == null) {
+            return null;
+        }
+        if (frame.length == 0) {
+            throw new IllegalArgumentException("Empty payload frame");
+        }
+        if (frame[0] == RAW) {
+            return new String(frame, 1, frame.length - 1, StandardCharsets.UTF_8);
+        }
+        if (frame[0] != LZ4 || frame.length < LZ4_HEADER_BYTES) {
+            throw new IllegalArgumentException("Unknown payload codec " + frame[0]);
+        }
+        int length = ByteBuffer.wrap(frame, 1, 4).getInt();
+        if (length < 0) {
+            throw new IllegalArgumentException("Corrupt LZ4 payload frame");
+        }
+        byte[] utf8 = new byte[length];
+        int decompressed;
+        try {
+            decompressed = DECOMPRESSOR.decompress(frame, LZ4_HEADER_BYTES, frame.length - LZ4_HEADER_BYTES, utf8, 0, length);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Corrupt LZ4 payload frame", ex);
+        }
+        if (decompressed != length) {
+            throw new IllegalArgumentException("Corrupt LZ4 payload frame");
+        }
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.stream;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Delivers notifications to listeners in this process only; suitable for a single replica and tests.
+ */
+@Component
+@ConditionalOnProperty(name = "messages.stream.broker", havingValue = "memory", matchIfMissing = true)
+public class InMemoryMessageBroker implements MessageBroker {
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
+    @Override
+    public void publish(MessageNotification notification) {
+        for (Listener listener : listeners) {
+            listener.onMessage(notification);
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.stream;
+
+/**
+ * Fans out message notifications to the stream hubs of all replicas.
+ * Selected with 'messages.stream.broker': 'memory' (default) delivers within this process only,
+ * 'postgres' goes across replicas through Postgres LISTEN/NOTIFY.
+ */
+public interface MessageBroker {
+    /**
+     * Receives notifications published by any replica.
+     */
+    interface Listener {
+        /**
+         * Called for every published notification, on a broker thread.
+         * @param notification the notification
+         */
+        void onMessage(MessageNotification notification);
+
+        /**
+         * Called when notifications may have been lost, e.g. after the broker reconnected.
+         */
+        default void onGap() {
+        }
+    }
+
+    /**
+     * Whether notifications reach listeners in this process only. Publishers may then skip
+     * notifications nobody here listens for, and carry the encoded message along.
+     * @return true if the broker does not cross replicas
+     */
+    default boolean isLocal() {
+        return false;
+    }
+
+    /**
+     * Publishes a notification to the listeners of every replica; never blocks on the network.
+     * @param notification the notification
+     */
+    void publish(MessageNotification notification);
+
+    /**
+     * Registers a listener for notifications from all replicas.
+     * @param listener the listener
+     */
+    void subscribe(Listener listener);
+}
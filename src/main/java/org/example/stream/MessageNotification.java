@@ -0,0 +1,14 @@
+package org.example.stream;
+
+import java.time.Instant;
+
+/**
+ * A committed chat message, as fanned out to stream subscribers on every replica.
+ * @param sessionId the ID of the session the message belongs to
+ * @param userId the owner of the session, or null if unknown
+ * @param messageId the message ID
+ * @param createdAt the message creation timestamp
+ * @param json the message's JSON wire form, or null if receivers must load it
+ */
+public record MessageNotification(Long sessionId, String userId, Long messageId, Instant createdAt, byte[] json) {
+}
@@ -0,0 +1,460 @@
+package org.example.stream;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.dto.MessageCursor;
+import org.example.event.ChatMessageCreatedEvent;
+import org.example.mapper.ChatMessageJsonWriter;
+import org.example.model.ChatMessage;
+import org.example.repository.ChatMessageRepository;
+import org.example.service.ChatSessionService;
+import org.example.shard.ShardContext;
+import org.example.shard.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes newly committed messages to server-sent event subscribers of a session or of a user.
+ * Every commit is published through the {@link MessageBroker}, so subscribers on any replica see it;
+ * each message is encoded once per replica and the same bytes are written to all its subscribers.
+ * With the in-process broker, commits nobody subscribed to cost nothing beyond a map lookup.
+ * Idle subscriptions hold no thread: each has a small bounded buffer drained by a shared pool of
+ * delivery threads. A subscriber whose buffer overflows is disconnected and resumes by reconnecting
+ * with the standard Last-Event-ID header, which carries the keyset cursor of the last delivered
+ * message; messages after it are replayed from the database before live delivery continues.
+ */
+@Component
+public class MessageStreamHub implements MessageBroker.Listener {
+    private static final Logger logger = LoggerFactory.getLogger(MessageStreamHub.class);
+
+    private static final int CATCH_UP_PAGE = 100;
+    private static final int RECENT_IDS = 256;
+
+    /**
+     * Maximum number of open streams on this replica.
+     */
+    @Value("${messages.stream.max-connections:20000}")
+    private int maxConnections;
+    /**
+     * Messages buffered per subscriber before it is disconnected as too slow.
+     */
+    @Value("${messages.stream.buffer-size:256}")
+    private int bufferSize;
+    /**
+     * How long a stream stays open before the client is asked to reconnect.
+     */
+    @Value("${messages.stream.timeout:30m}")
+    private Duration timeout;
+    /**
+     * Interval of keep-alive comments on idle streams.
+     */
+    @Value("${messages.stream.heartbeat:30s}")
+    private Duration heartbeat;
+    /**
+     * Number of platform delivery threads, when not running on virtual threads.
+     */
+    @Value("${messages.stream.delivery-threads:4}")
+    private int deliveryThreads;
+
+    @Autowired
+    private MessageBroker messageBroker;
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private ChatMessageJsonWriter chatMessageJsonWriter;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Long, Set<Subscription>> bySession = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscription>> byUser = new ConcurrentHashMap<>();
+    private final AtomicInteger open = new AtomicInteger();
+    private Executor delivery;
+    private ScheduledExecutorService heartbeats;
+
+    @PostConstruct
+    public void start() {
+        delivery = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("message-stream-")
+                : Executors.newFixedThreadPool(deliveryThreads, runnable -> {
+                    Thread thread = new Thread(runnable, "message-stream");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleWithFixedDelay(this::sendHeartbeats, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+        messageBroker.subscribe(this);
+        Gauge.builder("chat.streams.open", open, AtomicInteger::get)
+                .description("Open message streams")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeats.shutdownNow();
+        if (delivery instanceof ExecutorService pool) {
+            pool.shutdownNow();
+        }
+        bySession.values().forEach(subscriptions -> subscriptions.forEach(Subscription::close));
+        byUser.values().forEach(subscriptions -> subscriptions.forEach(Subscription::close));
+    }
+
+    /**
+     * Opens a stream of the new messages of one session.
+     * @param sessionId the session ID
+     * @param lastEventId optional Last-Event-ID to resume after
+     * @return the emitter, or empty if this replica has no room for another stream
+     */
+    public Optional<SseEmitter> subscribeSession(Long sessionId, String lastEventId) {
+        MessageCursor resumeAfter = lastEventId != null ? MessageCursor.decode(lastEventId) : null;
+        return open(new Subscription(sessionId, null), bySession, sessionId, resumeAfter);
+    }
+
+    /**
+     * Opens a stream of the new messages of all live sessions of a user.
+     * @param userId the user ID
+     * @param lastEventId optional Last-Event-ID to resume after
+     * @return the emitter, or empty if this replica has no room for another stream
+     */
+    public Optional<SseEmitter> subscribeUser(String userId, String lastEventId) {
+        MessageCursor resumeAfter = lastEventId != null ? MessageCursor.decode(lastEventId) : null;
+        return open(new Subscription(null, userId), byUser, userId, resumeAfter);
+    }
+
+    /**
+     * Publishes a committed message to the subscribers of all replicas. A broker crossing replicas
+     * only carries the message ID, and the replicas with subscribers load the message; the
+     * in-process broker gets the encoded message, and only if this replica has a subscriber for it.
+     * @param event the message creation event
+     */
+    @TransactionalEventListener
+    public void onMessageCreated(ChatMessageCreatedEvent event) {
+        ChatMessage message = event.message();
+        byte[] json = null;
+        if (messageBroker.isLocal()) {
+            if (byUser.isEmpty() && isEmpty(bySession.get(event.sessionId()))) {
+                return;
+            }
+            json = chatMessageJsonWriter.encode(message).json();
+        }
+        String userId = chatSessionService.findLiveUserId(event.sessionId()).orElse(null);
+        messageBroker.publish(new MessageNotification(event.sessionId(), userId, message.getId(),
+                message.getCreatedAt(), json));
+    }
+
+    @Override
+    public void onMessage(MessageNotification notification) {
+        Set<Subscription> sessionSubscribers = bySession.get(notification.sessionId());
+        Set<Subscription> userSubscribers = notification.userId() != null ? byUser.get(notification.userId()) : null;
+        if (isEmpty(sessionSubscribers) && isEmpty(userSubscribers)) {
+            return;
+        }
+        byte[] json = notification.json();
+        if (json == null) {
+            Optional<ChatMessage> message;
+            try (ShardContext.Scope shard = shardRouter.readSession(notification.sessionId())) {
+                message = chatMessageRepository.findById(notification.messageId());
+            }
+            if (message.isEmpty()) {
+                return;
+            }
+            json = chatMessageJsonWriter.encode(message.get()).json();
+        }
+        Event event = Event.of(new MessageCursor(notification.createdAt(), notification.messageId()),
+                withSessionId(notification.sessionId(), json));
+        if (sessionSubscribers != null) {
+            sessionSubscribers.forEach(subscription -> subscription.offer(event));
+        }
+        if (userSubscribers != null) {
+            userSubscribers.forEach(subscription -> subscription.offer(event));
+        }
+    }
+
+    @Override
+    public void onGap() {
+        bySession.values().forEach(subscriptions -> subscriptions.forEach(Subscription::resync));
+        byUser.values().forEach(subscriptions -> subscriptions.forEach(Subscription::resync));
+    }
+
+    private List<ChatMessage> findSessionPageAfter(Long sessionId, MessageCursor cursor) {
+        try (ShardContext.Scope shard = shardRouter.readSession(sessionId)) {
+            return chatMessageRepository.findPageAfter(sessionId, cursor.createdAt(), cursor.id(), CATCH_UP_PAGE);
+        }
+    }
+
+    /**
+     * Reads the next page of a user's messages from every shard and merges them in keyset order.
+     */
+    private List<ChatMessage> findUserPageAfter(String userId, MessageCursor cursor) {
+        List<ChatMessage> merged = new ArrayList<>();
+        for (int shardIndex : shardRouter.shards()) {
+            try (ShardContext.Scope shard = shardRouter.shard(shardIndex)) {
+                merged.addAll(chatMessageRepository.findUserPageAfter(userId, cursor.createdAt(), cursor.id(), CATCH_UP_PAGE));
+            }
+        }
+        merged.sort(Comparator.comparing(ChatMessage::getCreatedAt).thenComparing(ChatMessage::getId));
+        return merged.size() > CATCH_UP_PAGE ? merged.subList(0, CATCH_UP_PAGE) : merged;
+    }
+
+    private <K> Optional<SseEmitter> open(Subscription subscription, Map<K, Set<Subscription>> index, K key,
+                                          MessageCursor resumeAfter) {
+        if (open.incrementAndGet() > maxConnections) {
+            open.decrementAndGet();
+            return Optional.empty();
+        }
+        SseEmitter emitter = subscription.emitter;
+        Runnable unregister = () -> {
+            if (subscription.closed.compareAndSet(false, true)) {
+                open.decrementAndGet();
+                index.computeIfPresent(key, (k, set) -> {
+                    set.remove(subscription);
+                    return set.isEmpty() ? null : set;
+                });
+            }
+        };
+        emitter.onCompletion(unregister);
+        emitter.onTimeout(unregister);
+        emitter.onError(error -> unregister.run());
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+        if (resumeAfter != null) {
+            subscription.catchUpFrom(resumeAfter);
+        }
+        return Optional.of(emitter);
+    }
+
+    private void sendHeartbeats() {
+        bySession.values().forEach(subscriptions -> subscriptions.forEach(Subscription::heartbeat));
+        byUser.values().forEach(subscriptions -> subscriptions.forEach(Subscription::heartbeat));
+    }
+
+    private static boolean isEmpty(Set<Subscription> subscriptions) {
+        return subscriptions == null || subscriptions.isEmpty();
+    }
+
+    /**
+     * Prefixes an encoded message object with its session ID: {"sessionId":1,"id":..}.
+     */
+    private static byte[] withSessionId(Long sessionId, byte[] json) {
+        byte[] prefix = ("{\"sessionId\":" + sessionId + ",").getBytes(StandardCharsets.US_ASCII);
+        byte[] data = new byte[prefix.length + json.length - 1];
+        System.arraycopy(prefix, 0, data, 0, prefix.length);
+        System.arraycopy(json, 1, data, prefix.length, json.length - 1);
+        return data;
+    }
+
+    /**
+     * One message ready to be written to subscribers, with its cursor as the SSE event ID.
+     */
+    private record Event(MessageCursor cursor, String id, byte[] data) {
+        static Event of(MessageCursor cursor, byte[] data) {
+            return new Event(cursor, cursor.encode(), data);
+        }
+    }
+
+    private static final Event HEARTBEAT = new Event(null, null, null);
+
+    /**
+     * An open stream with its bounded buffer. Writes to the emitter happen on one delivery
+     * thread at a time, in buffer order.
+     */
+    private final class Subscription {
+        private final Long sessionId;
+        private final String userId;
+        private final SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        private final ArrayDeque<Event> buffer = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        /**
+         * IDs of recently delivered messages, to skip live copies of messages already replayed.
+         */
+        private final Map<Long, Boolean> delivered = new LinkedHashMap<>(RECENT_IDS, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > RECENT_IDS;
+            }
+        };
+        private MessageCursor lastDelivered;
+        private MessageCursor catchUpFrom;
+
+        Subscription(Long sessionId, String userId) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+        }
+
+        void offer(Event event) {
+            synchronized (this) {
+                if (buffer.size() >= bufferSize) {
+                    logger.debug("Closing slow stream subscriber of {}", sessionId != null ? sessionId : userId);
+                    buffer.clear();
+                    emitter.complete();
+                    return;
+                }
+                buffer.add(event);
+            }
+            schedule();
+        }
+
+        void heartbeat() {
+            synchronized (this) {
+                if (!buffer.isEmpty() || catchUpFrom != null) {
+                    return;
+                }
+                buffer.add(HEARTBEAT);
+            }
+            schedule();
+        }
+
+        void catchUpFrom(MessageCursor cursor) {
+            synchronized (this) {
+                catchUpFrom = cursor;
+            }
+            schedule();
+        }
+
+        /**
+         * Replays from the last delivered message, after notifications may have been missed.
+         */
+        void resync() {
+            synchronized (this) {
+                if (lastDelivered == null) {
+                    return;
+                }
+                catchUpFrom = lastDelivered;
+            }
+            schedule();
+        }
+
+        void close() {
+            emitter.complete();
+        }
+
+        private void schedule() {
+            if (!closed.get() && draining.compareAndSet(false, true)) {
+                try {
+                    delivery.execute(this::drain);
+                } catch (RuntimeException ex) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!closed.get()) {
+                    MessageCursor from;
+                    Event event = null;
+                    synchronized (this) {
+                        from = catchUpFrom;
+                        catchUpFrom = null;
+                        if (from == null) {
+                            event = buffer.poll();
+                        }
+                    }
+                    if (from != null) {
+                        replay(from);
+                        continue;
+                    }
+                    if (event == null) {
+                        break;
+                    }
+                    send(event);
+                }
+            } catch (IOException | RuntimeException ex) {
+                logger.debug("Stream subscriber went away", ex);
+                emitter.completeWithError(ex);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            boolean pending;
+            synchronized (this) {
+                pending = !buffer.isEmpty() || catchUpFrom != null;
+            }
+            if (pending) {
+                schedule();
+            }
+        }
+
+        private void replay(MessageCursor from) throws IOException {
+            MessageCursor cursor = from;
+            while (!closed.get()) {
+                List<ChatMessage> page = sessionId != null
+                        ? findSessionPageAfter(sessionId, cursor)
+                        : findUserPageAfter(userId, cursor);
+                for (ChatMessage message : page) {
+                    cursor = MessageCursor.of(message);
+                    send(Event.of(cursor, withSessionId(message.getSession().getId(),
+                            chatMessageJsonWriter.encode(message).json())));
+                }
+                if (page.size() < CATCH_UP_PAGE) {
+                    return;
+                }
+            }
+        }
+
+        private void send(Event event) throws IOException {
+            if (event == HEARTBEAT) {
+                emitter.send(SseEmitter.event().comment(""));
+                return;
+            }
+            synchronized (this) {
+                if (delivered.put(event.cursor().id(), Boolean.TRUE) != null) {
+                    return;
+                }
+            }
+            emitter.send(SseEmitter.event()
+                    .id(event.id())
+                    .name("message")
+                    .data(event.data(), MediaType.APPLICATION_JSON));
+            synchronized (this) {
+                lastDelivered = event.cursor();
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package org.example.stream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans out notifications across replicas with Postgres LISTEN/NOTIFY.
+ * Published notifications are queued and sent by one thread, many per round trip. They carry
+ * message IDs only, well within Postgres' 8000-byte payload limit; replicas with subscribers load
+ * and encode the message themselves, so publishers encode nothing.
+ * Every replica, including the sender, receives them on a dedicated listening connection taken
+ * from the pool. When that connection is lost, listeners are told about the gap once it is
+ * re-established, so they can catch up from the database.
+ */
+@Component
+@ConditionalOnProperty(name = "messages.stream.broker", havingValue = "postgres")
+public class PostgresMessageBroker implements MessageBroker {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresMessageBroker.class);
+
+    private static final int MAX_BATCH = 500;
+
+    /**
+     * Notification channel shared by all replicas.
+     */
+    @Value("${messages.stream.postgres.channel:chat_messages}")
+    private String channel;
+    /**
+     * Number of notifications that may wait to be sent before new ones are dropped.
+     */
+    @Value("${messages.stream.postgres.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private BlockingQueue<String> outbox;
+    private Thread sender;
+    private Thread receiver;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalStateException("messages.stream.postgres.channel must be a lower-case SQL identifier");
+        }
+        outbox = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        sender = new Thread(this::send, "stream-notify-sender");
+        sender.setDaemon(true);
+        sender.start();
+        receiver = new Thread(this::receive, "stream-notify-listener");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        sender.interrupt();
+        receiver.interrupt();
+    }
+
+    @Override
+    public void publish(MessageNotification notification) {
+        String payload = encode(notification);
+        if (!outbox.offer(payload) && dropped.incrementAndGet() % 1000 == 1) {
+            logger.warn("Stream notification queue is full; {} notifications dropped so far", dropped.get());
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    private void send() {
+        List<String> batch = new ArrayList<>(MAX_BATCH);
+        while (running) {
+            try {
+                String first = outbox.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                outbox.drainTo(batch, MAX_BATCH - 1);
+                sendBatch(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (DataAccessException ex) {
+                logger.warn("Failed to send {} stream notifications", batch.size(), ex);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void sendBatch(List<String> payloads) {
+        jdbcTemplate.execute((Connection connection) -> {
+            Array array = connection.createArrayOf("text", payloads.toArray());
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT pg_notify(?, p) FROM unnest(?) AS p")) {
+                statement.setString(1, channel);
+                statement.setArray(2, array);
+                statement.execute();
+            } finally {
+                array.free();
+            }
+            return null;
+        });
+    }
+
+    private void receive() {
+        boolean connectedBefore = false;
+        long backoffMillis = 500;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                if (connectedBefore) {
+                    logger.info("Stream notifications restored");
+                    listeners.forEach(Listener::onGap);
+                }
+                connectedBefore = true;
+                backoffMillis = 500;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try {
+                    while (running) {
+                        PGNotification[] notifications = pgConnection.getNotifications(1000);
+                        if (notifications == null) {
+                            continue;
+                        }
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                } finally {
+                    unlisten(connection);
+                }
+            } catch (SQLException ex) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Lost the stream notification connection; reconnecting in {} ms", backoffMillis, ex);
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoffMillis = Math.min(30_000, backoffMillis * 2);
+            }
+        }
+    }
+
+    /**
+     * Stops listening before the connection goes back to the pool.
+     */
+    private static void unlisten(Connection connection) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("UNLISTEN *");
+        } catch (SQLException ex) {
+            logger.debug("Could not UNLISTEN on a failed connection", ex);
+        }
+    }
+
+    private void dispatch(String payload) {
+        MessageNotification notification;
+        try {
+            notification = decode(payload);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Ignoring malformed stream notification", ex);
+            return;
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.onMessage(notification);
+            } catch (RuntimeException ex) {
+                logger.error("Stream listener failed", ex);
+            }
+        }
+    }
+
+    private String encode(MessageNotification notification) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        try (JsonGenerator generator = jsonFactory.createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeNumberField("s", notification.sessionId());
+            generator.writeStringField("u", notification.userId());
+            generator.writeNumberField("i", notification.messageId());
+            generator.writeNumberField("t", ChronoUnit.MICROS.between(Instant.EPOCH, notification.createdAt()));
+            generator.writeEndObject();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    private MessageNotification decode(String payload) throws IOException {
+        JsonNode node = objectMapper.readTree(payload);
+        return new MessageNotification(
+                node.get("s").asLong(),
+                node.hasNonNull("u") ? node.get("u").asText() : null,
+                node.get("i").asLong(),
+                Instant.EPOCH.plus(node.get("t").asLong(), ChronoUnit.MICROS),
+                null);
+    }
+}
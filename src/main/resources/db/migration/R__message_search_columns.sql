@@ -0,0 +1,17 @@
+-- Full-text search column and index used by PostgresMessageSearchEngine, kept only while it is the
+-- configured engine. The engine is passed in as the search-engine placeholder (see
+-- spring.flyway.placeholders in application.properties), and Flyway re-runs this script whenever it
+-- changes. With 'lucene' the generated column and its GIN index are dropped, so inserts stop paying
+-- for them; switching back to 'postgres' rebuilds both, which rewrites chat_messages once.
+
+DO $$
+BEGIN
+    IF '${search-engine}' = 'postgres' THEN
+        ALTER TABLE chat_messages ADD COLUMN IF NOT EXISTS content_tsv tsvector
+            GENERATED ALWAYS AS (to_tsvector('english', coalesce(content, ''))) STORED;
+        CREATE INDEX IF NOT EXISTS idx_chat_messages_session_content_tsv
+            ON chat_messages USING GIN (session_id, content_tsv);
+    ELSE
+        ALTER TABLE chat_messages DROP COLUMN IF EXISTS content_tsv;
+    END IF;
+END $$;
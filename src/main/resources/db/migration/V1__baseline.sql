@@ -0,0 +1,71 @@
+-- Schema as previously created by Hibernate (ddl-auto), schema.sql and the cluster rate limiter.
+-- Idempotent, so it also applies cleanly to databases created before migrations were
+-- introduced (spring.flyway.baseline-version=0 makes Flyway run it there too).
+
+CREATE TABLE IF NOT EXISTS chat_sessions (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    user_id     VARCHAR(255),
+    name        VARCHAR(255),
+    is_favorite BOOLEAN,
+    created_at  TIMESTAMP(6) WITH TIME ZONE,
+    updated_at  TIMESTAMP(6) WITH TIME ZONE,
+    deleted_at  TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id)
+);
+
+CREATE SEQUENCE IF NOT EXISTS chat_messages_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS chat_messages (
+    id         BIGINT NOT NULL,
+    session_id BIGINT REFERENCES chat_sessions (id),
+    sender     VARCHAR(255),
+    content    VARCHAR(255),
+    context    VARCHAR(255),
+    created_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id)
+);
+
+-- Move the sequence past IDs assigned before it existed (a no-op on new databases).
+SELECT setval('chat_messages_seq', GREATEST(
+    (SELECT COALESCE(MAX(id), 1) FROM chat_messages),
+    (SELECT last_value FROM chat_messages_seq)));
+
+CREATE INDEX IF NOT EXISTS idx_chat_messages_session_created_id
+    ON chat_messages (session_id, created_at, id);
+
+-- Full-text search over message content (see PostgresMessageSearchEngine).
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+ALTER TABLE chat_messages ADD COLUMN IF NOT EXISTS content_tsv tsvector
+    GENERATED ALWAYS AS (to_tsvector('english', coalesce(content, ''))) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_chat_messages_session_content_tsv
+    ON chat_messages USING GIN (session_id, content_tsv);
+
+-- Transcript import progress (see TranscriptImportService).
+CREATE TABLE IF NOT EXISTS chat_import_checkpoints (
+    import_id         VARCHAR(255) NOT NULL,
+    records_committed BIGINT NOT NULL,
+    sessions_created  BIGINT NOT NULL,
+    updated_at        TIMESTAMP(6) WITH TIME ZONE,
+    completed_at      TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (import_id)
+);
+
+CREATE TABLE IF NOT EXISTS chat_import_sessions (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    import_id  VARCHAR(255) NOT NULL,
+    source_key VARCHAR(255) NOT NULL,
+    session_id BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_chat_import_sessions_import_key UNIQUE (import_id, source_key)
+);
+
+-- Shared window counters of the cluster rate limiter (see PostgresLeasedRateLimiter).
+-- UNLOGGED: cheap to write, and losing them on a crash only resets the current windows.
+CREATE UNLOGGED TABLE IF NOT EXISTS rate_limit_buckets (
+    bucket_key   VARCHAR(64) NOT NULL,
+    window_start BIGINT NOT NULL,
+    used         BIGINT NOT NULL,
+    PRIMARY KEY (bucket_key, window_start)
+);
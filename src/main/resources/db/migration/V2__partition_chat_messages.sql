@@ -0,0 +1,64 @@
+-- Range-partition chat_messages by created_at (see ChatMessagePartitionManager).
+-- The existing table becomes the chat_messages_history partition, holding everything before
+-- the current month (UTC); monthly partitions are created from there on. Rows of the current
+-- month (and any later ones) are moved into their monthly partitions; older rows are not copied,
+-- but the history table's primary key is rebuilt and attaching it scans it once, so run this
+-- in a maintenance window on a large database.
+
+ALTER TABLE chat_messages RENAME TO chat_messages_history;
+ALTER INDEX idx_chat_messages_session_created_id RENAME TO chat_messages_history_session_created_id_idx;
+ALTER INDEX idx_chat_messages_session_content_tsv RENAME TO chat_messages_history_session_content_tsv_idx;
+
+-- The partition key must be part of the primary key.
+UPDATE chat_messages_history SET created_at = now() WHERE created_at IS NULL;
+ALTER TABLE chat_messages_history ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE chat_messages_history DROP CONSTRAINT chat_messages_pkey;
+ALTER TABLE chat_messages_history ADD CONSTRAINT chat_messages_history_pkey PRIMARY KEY (id, created_at);
+
+-- The foreign key is redeclared on the parent and inherited on attach.
+DO $$
+DECLARE
+    fk RECORD;
+BEGIN
+    FOR fk IN SELECT conname FROM pg_constraint
+              WHERE conrelid = 'chat_messages_history'::regclass AND contype = 'f' LOOP
+        EXECUTE format('ALTER TABLE chat_messages_history DROP CONSTRAINT %I', fk.conname);
+    END LOOP;
+END $$;
+
+CREATE TABLE chat_messages (LIKE chat_messages_history INCLUDING DEFAULTS INCLUDING GENERATED)
+    PARTITION BY RANGE (created_at);
+ALTER TABLE chat_messages ADD CONSTRAINT chat_messages_pkey PRIMARY KEY (id, created_at);
+ALTER TABLE chat_messages ADD CONSTRAINT fk_chat_messages_session
+    FOREIGN KEY (session_id) REFERENCES chat_sessions (id);
+CREATE INDEX idx_chat_messages_session_created_id ON chat_messages (session_id, created_at, id);
+CREATE INDEX idx_chat_messages_session_content_tsv ON chat_messages USING GIN (session_id, content_tsv);
+
+-- Monthly partitions, named like ChatMessagePartitionManager names them, from the current month
+-- up to the newest row; rows in that range move there so the history partition's bound holds.
+-- Month arithmetic is done in UTC, independent of the session time zone.
+DO $$
+DECLARE
+    cutoff TIMESTAMP := date_trunc('month', now() AT TIME ZONE 'UTC');
+    last_month TIMESTAMP;
+    partition_month TIMESTAMP;
+BEGIN
+    SELECT date_trunc('month', max(created_at) AT TIME ZONE 'UTC') INTO last_month FROM chat_messages_history;
+    partition_month := cutoff;
+    WHILE partition_month <= greatest(last_month, cutoff) LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF chat_messages FOR VALUES FROM (%L) TO (%L)',
+                       'chat_messages_p' || to_char(partition_month, 'YYYYMM'),
+                       partition_month AT TIME ZONE 'UTC', (partition_month + interval '1 month') AT TIME ZONE 'UTC');
+        partition_month := partition_month + interval '1 month';
+    END LOOP;
+
+    WITH moved AS (
+        DELETE FROM chat_messages_history WHERE created_at >= cutoff AT TIME ZONE 'UTC'
+        RETURNING id, session_id, sender, content, context, created_at
+    )
+    INSERT INTO chat_messages (id, session_id, sender, content, context, created_at)
+    SELECT id, session_id, sender, content, context, created_at FROM moved;
+
+    EXECUTE format('ALTER TABLE chat_messages ATTACH PARTITION chat_messages_history FOR VALUES FROM (MINVALUE) TO (%L)',
+                   cutoff AT TIME ZONE 'UTC');
+END $$;
@@ -0,0 +1,2 @@
+-- Lets SessionPurgeWorker find sessions past their grace period without scanning live ones.
+CREATE INDEX IF NOT EXISTS idx_chat_sessions_deleted_at ON chat_sessions (deleted_at) WHERE deleted_at IS NOT NULL;
@@ -0,0 +1,21 @@
+-- Session IDs carry the shard bucket of their user in the low 10 bits (see ShardKeys); this
+-- sequence supplies the high bits. It starts past every existing ID, so IDs assigned by the
+-- identity column before never collide with new ones.
+CREATE SEQUENCE IF NOT EXISTS chat_session_seq;
+
+SELECT setval('chat_session_seq',
+    GREATEST(((SELECT COALESCE(MAX(id), 0) FROM chat_sessions) >> 10) + 1,
+             (SELECT last_value FROM chat_session_seq)), false);
+
+-- Bucket-to-shard map. Only the copy on shard 0 is used, and only with sharding enabled (see ShardRouter).
+-- A bucket being moved (see ShardRebalancer) records its target in moving_to until it is switched
+-- over, then its old shard in draining_from until the old copy is deleted.
+CREATE TABLE IF NOT EXISTS shard_buckets (
+    bucket        INTEGER NOT NULL,
+    shard         INTEGER NOT NULL,
+    state         VARCHAR(16) NOT NULL DEFAULT 'active',
+    moving_to     INTEGER,
+    draining_from INTEGER,
+    updated_at    TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now(),
+    PRIMARY KEY (bucket)
+);
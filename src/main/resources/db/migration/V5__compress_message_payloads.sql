@@ -0,0 +1,47 @@
+-- Large message payloads are stored compressed.
+-- Content becomes unbounded text that Postgres compresses itself (TOAST, with LZ4 where the server
+-- supports it), so full-text search keeps working on it. Context is encoded by the application
+-- (see PayloadCodec) into bytea and optionally deduplicated into chat_contexts (see
+-- MessageContextStore); existing values are converted to raw frames. This rewrites chat_messages,
+-- so run it in a maintenance window on a large database.
+
+CREATE TABLE IF NOT EXISTS chat_contexts (
+    hash         BYTEA NOT NULL,
+    body         BYTEA NOT NULL,
+    last_used_at TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now(),
+    PRIMARY KEY (hash)
+);
+
+-- A column used by a generated column cannot change type; the search column is rebuilt below,
+-- only where R__message_search_columns.sql keeps it.
+ALTER TABLE chat_messages DROP COLUMN IF EXISTS content_tsv;
+
+ALTER TABLE chat_messages
+    ALTER COLUMN content TYPE TEXT,
+    ALTER COLUMN context TYPE BYTEA USING CASE WHEN context IS NULL THEN NULL
+                                               ELSE '\x00'::bytea || convert_to(context, 'UTF8') END,
+    ADD COLUMN context_hash BYTEA;
+
+DO $$
+BEGIN
+    IF '${search-engine}' = 'postgres' THEN
+        ALTER TABLE chat_messages ADD COLUMN content_tsv tsvector
+            GENERATED ALWAYS AS (to_tsvector('english', coalesce(content, ''))) STORED;
+        CREATE INDEX idx_chat_messages_session_content_tsv ON chat_messages USING GIN (session_id, content_tsv);
+    END IF;
+END $$;
+
+ALTER TABLE chat_messages ADD CONSTRAINT fk_chat_messages_context
+    FOREIGN KEY (context_hash) REFERENCES chat_contexts (hash);
+CREATE INDEX idx_chat_messages_context_hash ON chat_messages (context_hash) WHERE context_hash IS NOT NULL;
+
+-- Context frames are already compressed; keep Postgres from trying again. Partitions created
+-- later inherit both column settings.
+ALTER TABLE chat_messages ALTER COLUMN context SET STORAGE EXTERNAL;
+
+DO $$
+BEGIN
+    EXECUTE 'ALTER TABLE chat_messages ALTER COLUMN content SET COMPRESSION lz4';
+EXCEPTION WHEN feature_not_supported OR syntax_error THEN
+    RAISE NOTICE 'LZ4 is not available on this server; content keeps the default TOAST compression';
+END $$;
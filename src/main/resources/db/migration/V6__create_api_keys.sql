@@ -0,0 +1,18 @@
+-- Per-tenant API keys (see ApiKeyStore). Only the SHA-256 hash of a key is stored. A key with
+-- user_ids may only act for those users; rate_limit replaces 'rate.limit' for requests made with it.
+-- Revoked keys are kept for auditing. With sharding, keys live on shard 0.
+
+CREATE TABLE IF NOT EXISTS api_keys (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    key_hash   BYTEA NOT NULL,
+    tenant     VARCHAR(255) NOT NULL,
+    user_ids   TEXT[],
+    rate_limit BIGINT,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now(),
+    revoked_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_api_keys_key_hash UNIQUE (key_hash),
+    CONSTRAINT ck_api_keys_rate_limit CHECK (rate_limit > 0)
+);
+
+CREATE INDEX IF NOT EXISTS idx_api_keys_tenant ON api_keys (tenant);
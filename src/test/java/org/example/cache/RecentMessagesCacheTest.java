@@ -0,0 +1,114 @@
+package org.example.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.dto.EncodedMessage;
+import org.example.event.ChatMessageCreatedEvent;
+import org.example.event.ChatSessionDeletedEvent;
+import org.example.model.ChatMessage;
+import org.example.model.ChatSession;
+import org.example.mapper.ChatMessageJsonWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecentMessagesCacheTest {
+    private static final Long SESSION_ID = 1L;
+
+    private final RecentMessagesCache cache = new RecentMessagesCache();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "capacity", 3);
+        ReflectionTestUtils.setField(cache, "maxBytes", 1L << 20);
+        ReflectionTestUtils.setField(cache, "maxAge", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(cache, "chatMessageJsonWriter", new ChatMessageJsonWriter());
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        cache.init();
+    }
+
+    @Test
+    void cachesLoadedTailAndAppliesLaterAppends() {
+        assertEquals(List.of(1L, 2L), ids(cache.latest(SESSION_ID, 3, loader(message(2), message(1)))));
+        assertEquals(List.of(1L, 2L), ids(cache.latest(SESSION_ID, 3, loader())));
+        assertEquals(1, loads.get());
+
+        cache.onMessageCreated(new ChatMessageCreatedEvent(SESSION_ID, message(3)));
+        cache.onMessageCreated(new ChatMessageCreatedEvent(SESSION_ID, message(4)));
+        RecentMessagesCache.Slice slice = cache.latest(SESSION_ID, 3, loader()).orElseThrow();
+        assertEquals(List.of(2L, 3L, 4L), slice.messages().stream().map(EncodedMessage::id).toList());
+        assertTrue(slice.hasOlder());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void loadRacedByAppendIsServedButNotCached() {
+        List<Long> served = ids(cache.latest(SESSION_ID, 3, () -> {
+            loads.incrementAndGet();
+            // The append commits after the load read its snapshot, so the snapshot misses it.
+            cache.onMessageCreated(new ChatMessageCreatedEvent(SESSION_ID, message(3)));
+            return List.of(message(2), message(1));
+        }));
+        assertEquals(List.of(1L, 2L), served);
+
+        assertEquals(List.of(1L, 2L, 3L), ids(cache.latest(SESSION_ID, 3, loader(message(3), message(2), message(1)))));
+        assertEquals(2, loads.get());
+        cache.latest(SESSION_ID, 3, loader());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void appendBeforeLoadDoesNotPreventCaching() {
+        cache.onMessageCreated(new ChatMessageCreatedEvent(SESSION_ID, message(1)));
+
+        cache.latest(SESSION_ID, 3, loader(message(1)));
+        cache.latest(SESSION_ID, 3, loader());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void deletedSessionIsLoadedAgain() {
+        cache.latest(SESSION_ID, 3, loader(message(1)));
+        cache.onSessionDeleted(new ChatSessionDeletedEvent(SESSION_ID));
+
+        assertEquals(List.of(), ids(cache.latest(SESSION_ID, 3, loader())));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void limitAboveCapacityBypassesCache() {
+        assertTrue(cache.latest(SESSION_ID, 4, loader(message(1))).isEmpty());
+        assertEquals(0, loads.get());
+    }
+
+    private Supplier<List<ChatMessage>> loader(ChatMessage... newestFirst) {
+        return () -> {
+            loads.incrementAndGet();
+            return List.of(newestFirst);
+        };
+    }
+
+    private static ChatMessage message(long id) {
+        return ChatMessage.builder()
+                .id(id)
+                .session(ChatSession.builder().id(SESSION_ID).build())
+                .sender("user")
+                .content("message " + id)
+                .createdAt(Instant.ofEpochSecond(1_700_000_000L + id))
+                .build();
+    }
+
+    private static List<Long> ids(Optional<RecentMessagesCache.Slice> slice) {
+        return slice.orElseThrow().messages().stream().map(EncodedMessage::id).toList();
+    }
+}
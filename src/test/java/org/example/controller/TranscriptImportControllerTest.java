@@ -0,0 +1,84 @@
+package org.example.controller;
+
+import org.example.security.ApiKey;
+import org.example.security.ApiKeyAuthentication;
+import org.example.security.ApiKeyResolver;
+import org.example.security.ApiKeyScope;
+import org.example.service.TranscriptImportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TranscriptImportControllerTest {
+    private static final String RECORD = "{\"sessionId\":\"s\",\"userId\":\"bob\",\"sender\":\"user\",\"content\":\"hi\"}\n";
+
+    private final TranscriptImportService transcriptImportService = mock(TranscriptImportService.class);
+    private final TranscriptImportController controller = new TranscriptImportController();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(controller, "transcriptImportService", transcriptImportService);
+        ReflectionTestUtils.setField(controller, "apiKeyScope", new ApiKeyScope());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static MockHttpServletRequest ndjson() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/sessions/import");
+        request.setContent(RECORD.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    @Test
+    void scopedKeyCannotImport() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+                new ApiKeyAuthentication(new ApiKey(7, "acme", Set.of("alice"), null)));
+        assertThrows(AccessDeniedException.class, () -> controller.importTranscripts("i1", "alice", ndjson()));
+        verifyNoInteractions(transcriptImportService);
+    }
+
+    @Test
+    void unrestrictedKeyImports() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new ApiKeyAuthentication(ApiKeyResolver.CONFIGURED_KEY));
+        controller.importTranscripts("i1", null, ndjson());
+        verify(transcriptImportService).importTranscripts(eq("i1"), isNull(), any());
+    }
+
+    @Test
+    void gzipBodyIsDecompressed() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new ApiKeyAuthentication(ApiKeyResolver.CONFIGURED_KEY));
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(RECORD.getBytes(StandardCharsets.UTF_8));
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/sessions/import");
+        request.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        request.setContent(compressed.toByteArray());
+        when(transcriptImportService.importTranscripts(anyString(), any(), any())).thenAnswer(invocation -> {
+            try (InputStream in = invocation.getArgument(2)) {
+                assertEquals(RECORD, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+
+        controller.importTranscripts(null, "bob", request);
+        verify(transcriptImportService).importTranscripts(notNull(), eq("bob"), any());
+    }
+}
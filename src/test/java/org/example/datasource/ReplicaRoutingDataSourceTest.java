@@ -0,0 +1,73 @@
+package org.example.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private final ReplicaRoutingDataSource router;
+
+    ReplicaRoutingDataSourceTest() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica);
+        router = new ReplicaRoutingDataSource(primary, replicas, Duration.ofSeconds(1), 1024);
+    }
+
+    @AfterEach
+    void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void usesHealthyReplicaAndFallsBackToPrimary() throws SQLException {
+        assertSame(primaryConnection, router.getConnection());
+        router.update(0, true, ReadConsistency.parseLsn("0/100"));
+        assertSame(replicaConnection, router.getConnection());
+        router.update(0, false, ReadConsistency.parseLsn("0/100"));
+        assertSame(primaryConnection, router.getConnection());
+    }
+
+    @Test
+    void honoursConsistencyToken() throws SQLException {
+        router.update(0, true, ReadConsistency.parseLsn("0/100"));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(ReadConsistency.TOKEN_HEADER, "0/200");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        assertSame(primaryConnection, router.getConnection());
+
+        router.update(0, true, ReadConsistency.parseLsn("0/200"));
+        assertSame(replicaConnection, router.getConnection());
+    }
+
+    @Test
+    void explicitCredentialsGoToPrimary() throws SQLException {
+        when(primary.getConnection("reporting", "secret")).thenReturn(primaryConnection);
+        router.update(0, true, ReadConsistency.parseLsn("0/100"));
+        assertSame(primaryConnection, router.getConnection("reporting", "secret"));
+        verify(replica, never()).getConnection(anyString(), anyString());
+    }
+
+    @Test
+    void parsesWalPositions() {
+        assertEquals(0x16_B374D848L, ReadConsistency.parseLsn("16/B374D848"));
+        assertThrows(IllegalArgumentException.class, () -> ReadConsistency.parseLsn("16B374D848"));
+    }
+}
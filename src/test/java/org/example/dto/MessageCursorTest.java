@@ -0,0 +1,23 @@
+package org.example.dto;
+
+import org.example.service.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageCursorTest {
+    @Test
+    void encodeDecodeRoundTrip() {
+        MessageCursor cursor = new MessageCursor(Instant.parse("2024-05-01T10:15:30.123456Z"), 42L);
+        MessageCursor decoded = MessageCursor.decode(cursor.encode());
+        assertEquals(cursor, decoded);
+    }
+
+    @Test
+    void decodeRejectsMalformedToken() {
+        assertThrows(InvalidRequestException.class, () -> MessageCursor.decode("not a cursor"));
+        assertThrows(InvalidRequestException.class, () -> MessageCursor.decode("AAAA"));
+    }
+}
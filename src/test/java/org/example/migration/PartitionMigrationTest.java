@@ -0,0 +1,98 @@
+package org.example.migration;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs V2 against a V1 table that already holds current-month rows. Needs the local
+ * PostgreSQL server (see application-local.properties) and is skipped without it.
+ */
+class PartitionMigrationTest {
+    private static final String SERVER_URL = "jdbc:postgresql://localhost:5432/";
+    private static final String OPTIONS = "?options=-c%20TimeZone=Asia/Kolkata";
+    private static final String USER = "postgres";
+    private static final String PASSWORD = "postgres";
+
+    private final String database = "partition_migration_test_" + System.nanoTime();
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        Connection admin;
+        try {
+            admin = DriverManager.getConnection(SERVER_URL + "postgres", USER, PASSWORD);
+        } catch (SQLException e) {
+            assumeTrue(false, "PostgreSQL is not reachable: " + e.getMessage());
+            return;
+        }
+        try (admin; Statement statement = admin.createStatement()) {
+            statement.execute("CREATE DATABASE " + database);
+        }
+    }
+
+    @AfterEach
+    void dropDatabase() throws SQLException {
+        try (Connection admin = DriverManager.getConnection(SERVER_URL + "postgres", USER, PASSWORD);
+             Statement statement = admin.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + database + " WITH (FORCE)");
+        } catch (SQLException ignored) {
+            // Database was never created.
+        }
+    }
+
+    @Test
+    void currentMonthRowsMoveIntoMonthlyPartition() throws SQLException {
+        String url = SERVER_URL + database + OPTIONS;
+        migrate(url, "1");
+
+        OffsetDateTime monthStart = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        try (Connection connection = DriverManager.getConnection(url, USER, PASSWORD);
+             Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO chat_sessions (id, user_id, name) VALUES (1, 'u', 's')");
+            statement.execute("INSERT INTO chat_messages (id, session_id, sender, content, created_at) VALUES "
+                    + "(1, 1, 'user', 'last month', '" + monthStart.minusDays(3) + "'), "
+                    + "(2, 1, 'user', 'this month', '" + monthStart.plusMinutes(1) + "'), "
+                    + "(3, 1, 'user', 'no timestamp', NULL)");
+        }
+
+        migrate(url, "2");
+
+        String currentPartition = "chat_messages_p" + monthStart.format(DateTimeFormatter.ofPattern("yyyyMM"));
+        try (Connection connection = DriverManager.getConnection(url, USER, PASSWORD);
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(
+                     "SELECT id, tableoid::regclass::text FROM chat_messages ORDER BY id")) {
+            assertTrue(rows.next());
+            assertEquals("chat_messages_history", rows.getString(2));
+            assertTrue(rows.next());
+            assertEquals(currentPartition, rows.getString(2));
+            assertTrue(rows.next());
+            assertEquals(currentPartition, rows.getString(2));
+            assertFalse(rows.next());
+        }
+    }
+
+    private void migrate(String url, String target) {
+        Flyway.configure()
+                .dataSource(url, USER, PASSWORD)
+                .target(target)
+                .placeholders(Map.of("search-engine", "postgres"))
+                .load()
+                .migrate();
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GcraRateLimiterTest {
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final GcraRateLimiter limiter = new GcraRateLimiter(3, Duration.ofSeconds(60), 100, now::get);
+
+    @Test
+    void allowsBurstUpToLimitThenDenies() {
+        assertEquals(2, limiter.tryAcquire("a").remaining());
+        assertEquals(1, limiter.tryAcquire("a").remaining());
+        assertEquals(0, limiter.tryAcquire("a").remaining());
+
+        RateLimitDecision denied = limiter.tryAcquire("a");
+        assertFalse(denied.allowed());
+        assertEquals(20, denied.retryAfterSeconds());
+        assertEquals(60, denied.resetSeconds());
+        assertTrue(limiter.tryAcquire("b").allowed());
+    }
+
+    @Test
+    void refillsOneRequestPerEmissionInterval() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("a");
+        }
+        now.addAndGet(Duration.ofSeconds(20).toNanos());
+        RateLimitDecision decision = limiter.tryAcquire("a");
+        assertTrue(decision.allowed());
+        assertEquals(0, decision.remaining());
+        assertFalse(limiter.tryAcquire("a").allowed());
+    }
+
+    @Test
+    void keyWithOwnLimitSharesPeriod() {
+        for (int i = 0; i < 6; i++) {
+            assertTrue(limiter.tryAcquire("a", 6).allowed());
+        }
+        RateLimitDecision denied = limiter.tryAcquire("a", 6);
+        assertFalse(denied.allowed());
+        assertEquals(6, denied.limit());
+        assertEquals(10, denied.retryAfterSeconds());
+    }
+}
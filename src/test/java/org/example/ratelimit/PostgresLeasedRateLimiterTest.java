@@ -0,0 +1,107 @@
+package org.example.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostgresLeasedRateLimiterTest {
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final FakeBuckets buckets = new FakeBuckets();
+
+    private PostgresLeasedRateLimiter replica(long limit, long leaseSize) {
+        return new PostgresLeasedRateLimiter(buckets, limit, Duration.ofMinutes(1), leaseSize, 100, now::get);
+    }
+
+    @Test
+    void leasesInChunksUntilSharedBudgetIsUsed() {
+        PostgresLeasedRateLimiter limiter = replica(10, 3);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire("a").allowed(), "request " + i);
+        }
+        assertEquals(4, buckets.leases);
+
+        assertFalse(limiter.tryAcquire("a").allowed());
+        assertFalse(limiter.tryAcquire("a").allowed());
+        assertEquals(5, buckets.leases);
+        assertTrue(limiter.tryAcquire("b").allowed());
+    }
+
+    @Test
+    void replicasShareOneBudget() {
+        PostgresLeasedRateLimiter first = replica(10, 5);
+        PostgresLeasedRateLimiter second = replica(10, 5);
+        int allowed = 0;
+        for (int i = 0; i < 10; i++) {
+            allowed += first.tryAcquire("a").allowed() ? 1 : 0;
+            allowed += second.tryAcquire("a").allowed() ? 1 : 0;
+        }
+        assertEquals(10, allowed);
+    }
+
+    @Test
+    void nextWindowStartsWithFullBudget() {
+        PostgresLeasedRateLimiter limiter = replica(2, 2);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("a");
+        assertFalse(limiter.tryAcquire("a").allowed());
+
+        now.addAndGet(Duration.ofMinutes(1).toMillis());
+        assertTrue(limiter.tryAcquire("a").allowed());
+        assertEquals(2, buckets.purges);
+    }
+
+    @Test
+    void fallsBackWithoutRetryingDatabaseUntilIntervalPasses() {
+        PostgresLeasedRateLimiter limiter = replica(1, 1);
+        buckets.down = true;
+        assertTrue(limiter.tryAcquire("a").allowed());
+        assertFalse(limiter.tryAcquire("a").allowed());
+        assertTrue(limiter.tryAcquire("b").allowed());
+        assertEquals(1, buckets.attempts);
+
+        buckets.down = false;
+        now.addAndGet(Duration.ofSeconds(10).toMillis());
+        assertTrue(limiter.tryAcquire("c").allowed());
+        assertEquals(2, buckets.attempts);
+        assertEquals(1, buckets.leases);
+        assertFalse(limiter.tryAcquire("c").allowed());
+        assertEquals(3, buckets.attempts);
+    }
+
+    /**
+     * In-memory stand-in for the rate_limit_buckets table.
+     */
+    private static final class FakeBuckets extends JdbcTemplate {
+        private final Map<List<Object>, Long> used = new HashMap<>();
+        private boolean down;
+        private int attempts;
+        private int leases;
+        private int purges;
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            attempts++;
+            if (down) {
+                throw new DataAccessResourceFailureException("database down");
+            }
+            leases++;
+            return requiredType.cast(used.merge(List.of(args[0], args[1]), (Long) args[2], Long::sum));
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            purges++;
+            long before = (Long) args[0];
+            used.keySet().removeIf(key -> (Long) key.get(1) < before);
+            return 0;
+        }
+    }
+}
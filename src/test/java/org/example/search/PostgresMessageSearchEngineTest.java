@@ -0,0 +1,20 @@
+package org.example.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostgresMessageSearchEngineTest {
+
+    @Test
+    void snippetIsEscapedExceptForMatchMarks() {
+        String headline = "<script>alert('x')</script> \u0002token\u0003 & more";
+        assertEquals("&lt;script&gt;alert(&#39;x&#39;)&lt;/script&gt; <mark>token</mark> &amp; more",
+                PostgresMessageSearchEngine.toHtml(headline));
+    }
+
+    @Test
+    void fragmentDelimiterIsKept() {
+        assertEquals("a … <mark>b</mark>", PostgresMessageSearchEngine.toHtml("a … \u0002b\u0003"));
+    }
+}
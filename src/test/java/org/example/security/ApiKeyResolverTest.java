@@ -0,0 +1,62 @@
+package org.example.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiKeyResolverTest {
+
+    private static ApiKeyResolver resolver(String configuredKey) {
+        ApiKeyResolver resolver = new ApiKeyResolver();
+        ReflectionTestUtils.setField(resolver, "apiKey", configuredKey);
+        resolver.init();
+        return resolver;
+    }
+
+    private static Optional<ApiKey> resolve(ApiKeyResolver resolver, String header) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (header != null) {
+            request.addHeader("X-API-KEY", header);
+        }
+        return resolver.resolve(request);
+    }
+
+    @Test
+    void acceptsOnlyTheExactConfiguredKey() {
+        ApiKeyResolver resolver = resolver("secret-key");
+        assertEquals(Optional.of(ApiKeyResolver.CONFIGURED_KEY), resolve(resolver, "secret-key"));
+        assertEquals(Optional.empty(), resolve(resolver, "secret-kez"));
+        assertEquals(Optional.empty(), resolve(resolver, "SECRET-KEY"));
+        assertEquals(Optional.empty(), resolve(resolver, null));
+    }
+
+    @Test
+    void rejectsKeysOfOtherLength() {
+        ApiKeyResolver resolver = resolver("secret-key");
+        assertEquals(Optional.empty(), resolve(resolver, "secret-ke"));
+        assertEquals(Optional.empty(), resolve(resolver, "secret-key\0"));
+        assertEquals(Optional.empty(), resolve(resolver, "secret-key-and-more"));
+        assertEquals(Optional.empty(), resolve(resolver, ""));
+    }
+
+    @Test
+    void emptyConfiguredKeyMatchesNothing() {
+        ApiKeyResolver resolver = resolver("");
+        assertFalse(resolver.authenticationRequired());
+        assertEquals(Optional.empty(), resolve(resolver, ""));
+    }
+
+    @Test
+    void resolvedKeyIsKeptOnTheRequest() {
+        ApiKeyResolver resolver = resolver("secret-key");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-API-KEY", "secret-key");
+        resolver.resolve(request);
+        assertSame(ApiKeyResolver.CONFIGURED_KEY, request.getAttribute(ApiKeyResolver.ATTRIBUTE));
+        assertEquals(Optional.of(ApiKeyResolver.CONFIGURED_KEY), resolver.resolveCached(request));
+    }
+}
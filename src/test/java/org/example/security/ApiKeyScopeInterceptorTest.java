@@ -0,0 +1,93 @@
+package org.example.security;
+
+import org.example.service.ChatSessionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ApiKeyScopeInterceptorTest {
+    private final ChatSessionService chatSessionService = mock(ChatSessionService.class);
+    private final ApiKeyScopeInterceptor interceptor = new ApiKeyScopeInterceptor();
+
+    @BeforeEach
+    void setUp() {
+        ApiKeyScope scope = new ApiKeyScope();
+        ReflectionTestUtils.setField(scope, "chatSessionService", chatSessionService);
+        ReflectionTestUtils.setField(interceptor, "apiKeyScope", scope);
+        when(chatSessionService.findLiveUserId(1L)).thenReturn(Optional.of("alice"));
+        when(chatSessionService.findLiveUserId(2L)).thenReturn(Optional.of("bob"));
+        authenticate(new ApiKey(7, "acme", Set.of("alice"), null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static void authenticate(ApiKey key) {
+        SecurityContextHolder.getContext().setAuthentication(new ApiKeyAuthentication(key));
+    }
+
+    private boolean preHandle(MockHttpServletRequest request) {
+        return interceptor.preHandle(request, new MockHttpServletResponse(), new Object());
+    }
+
+    private static MockHttpServletRequest sessionRequest(String sessionId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/sessions/" + sessionId + "/messages");
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("sessionId", sessionId));
+        return request;
+    }
+
+    @Test
+    void rejectsForeignUserIdParameter() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/sessions");
+        request.setParameter("userId", "bob");
+        assertThrows(AccessDeniedException.class, () -> preHandle(request));
+
+        request.setParameter("userId", "alice");
+        assertTrue(preHandle(request));
+    }
+
+    @Test
+    void rejectsForeignUserIdHeader() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/sessions");
+        request.setParameter("userId", "alice");
+        request.addHeader("X-User-Id", "bob");
+        assertThrows(AccessDeniedException.class, () -> preHandle(request));
+    }
+
+    @Test
+    void rejectsForeignSession() {
+        assertThrows(AccessDeniedException.class, () -> preHandle(sessionRequest("2")));
+        assertTrue(preHandle(sessionRequest("1")));
+    }
+
+    @Test
+    void rejectsForeignSessionById() {
+        MockHttpServletRequest request = new MockHttpServletRequest("DELETE", "/sessions/2");
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("id", "2"));
+        assertThrows(AccessDeniedException.class, () -> preHandle(request));
+    }
+
+    @Test
+    void unrestrictedKeyPassesWithoutLookup() {
+        authenticate(ApiKeyResolver.CONFIGURED_KEY);
+        MockHttpServletRequest request = sessionRequest("2");
+        request.setParameter("userId", "bob");
+        assertTrue(preHandle(request));
+        verify(chatSessionService, never()).findLiveUserId(anyLong());
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiKeyStoreTest {
+    private static final ApiKey ACME = new ApiKey(7, "acme", Set.of("alice"), 50L);
+
+    private final AtomicLong now = new AtomicLong();
+    private final FakeApiKeys database = new FakeApiKeys();
+    private final ApiKeyStore store = new ApiKeyStore(now::get);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(store, "refresh", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(store, "expire", Duration.ofHours(1));
+        ReflectionTestUtils.setField(store, "negativeTtl", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(store, "maxSize", 100L);
+        ReflectionTestUtils.setField(store, "negativeMaxSize", 100L);
+        ReflectionTestUtils.setField(store, "jdbcTemplate", database);
+        ReflectionTestUtils.setField(store, "meterRegistry", new SimpleMeterRegistry());
+        store.init();
+        database.add("csk_acme", ACME);
+    }
+
+    @Test
+    void findsKeyByHashAndServesItFromMemory() {
+        assertEquals(Optional.empty(), store.findCached("csk_acme"));
+        assertEquals(Optional.of(ACME), store.find("csk_acme"));
+        assertEquals(Optional.of(ACME), store.find("csk_acme"));
+        assertEquals(Optional.of(ACME), store.findCached("csk_acme"));
+        assertEquals(1, database.lookups);
+    }
+
+    @Test
+    void unknownKeyIsRememberedUntilNegativeTtlPasses() {
+        assertEquals(Optional.empty(), store.find("csk_new"));
+        database.add("csk_new", ACME);
+        assertEquals(Optional.empty(), store.find("csk_new"));
+        assertEquals(1, database.lookups);
+
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertEquals(Optional.of(ACME), store.find("csk_new"));
+        assertEquals(2, database.lookups);
+    }
+
+    @Test
+    void invalidKeysDoNotEvictValidOnes() {
+        store.find("csk_acme");
+        for (int i = 0; i < 1_000; i++) {
+            store.find("csk_random" + i);
+        }
+        assertEquals(Optional.of(ACME), store.findCached("csk_acme"));
+    }
+
+    @Test
+    void revokeInvalidatesCachedKey() {
+        assertTrue(store.find("csk_acme").isPresent());
+        assertTrue(store.revoke(7));
+        assertEquals(Optional.empty(), store.findCached("csk_acme"));
+        assertEquals(Optional.empty(), store.find("csk_acme"));
+        assertFalse(store.revoke(7));
+    }
+
+    /**
+     * In-memory stand-in for the api_keys table.
+     */
+    private static final class FakeApiKeys extends JdbcTemplate {
+        private final Map<ByteBuffer, ApiKey> active = new HashMap<>();
+        private final Map<Long, byte[]> hashes = new HashMap<>();
+        private int lookups;
+
+        void add(String key, ApiKey apiKey) {
+            byte[] hash = ApiKeyStore.hash(key);
+            active.put(ByteBuffer.wrap(hash), apiKey);
+            hashes.put(apiKey.id(), hash);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            if (sql.startsWith("SELECT key_hash")) {
+                byte[] hash = hashes.get((Long) args[0]);
+                return hash == null ? List.of() : List.of((T) hash);
+            }
+            lookups++;
+            ApiKey key = active.get(ByteBuffer.wrap((byte[]) args[0]));
+            return key == null ? List.of() : List.of((T) key);
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            long id = (Long) args[0];
+            return active.values().removeIf(key -> key.id() == id) ? 1 : 0;
+        }
+    }
+}
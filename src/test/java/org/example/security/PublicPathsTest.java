@@ -0,0 +1,30 @@
+package org.example.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublicPathsTest {
+    private final PublicPaths publicPaths = new PublicPaths();
+
+    @Test
+    void matchesPublicPatterns() {
+        assertTrue(publicPaths.matches("/health"));
+        assertTrue(publicPaths.matches("/v3/api-docs"));
+        assertTrue(publicPaths.matches("/swagger-ui/index.html"));
+        assertFalse(publicPaths.matches("/health/details"));
+        assertFalse(publicPaths.matches("/sessions/42/messages"));
+        assertFalse(publicPaths.matches("/actuator/prometheus"));
+    }
+
+    @Test
+    void resultIsKeptOnRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/health");
+        assertTrue(publicPaths.isPublic(request));
+        assertEquals(Boolean.TRUE, request.getAttribute(PublicPaths.ATTRIBUTE));
+
+        request.setRequestURI("/sessions/42/messages");
+        assertTrue(publicPaths.isPublic(request));
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.model.ChatMessage;
+import org.example.model.ChatSession;
+import org.example.repository.ChatMessageRepository;
+import org.example.shard.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MessageIngestPipelineTest {
+    private final ChatMessageRepository repository = mock(ChatMessageRepository.class);
+    private final AtomicLong ids = new AtomicLong();
+    private final MessageIngestPipeline pipeline = new MessageIngestPipeline();
+
+    MessageIngestPipelineTest() {
+        ReflectionTestUtils.setField(pipeline, "mode", "async");
+        ReflectionTestUtils.setField(pipeline, "ack", "commit");
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(pipeline, "writerCount", 2);
+        ReflectionTestUtils.setField(pipeline, "batchSize", 50);
+        ReflectionTestUtils.setField(pipeline, "commitTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(pipeline, "shutdownTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(pipeline, "chatMessageRepository", repository);
+        ReflectionTestUtils.setField(pipeline, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(pipeline, "eventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(pipeline, "environment", new MockEnvironment());
+        ReflectionTestUtils.setField(pipeline, "shardRouter", new ShardRouter());
+        ReflectionTestUtils.setField(pipeline, "meterRegistry", new SimpleMeterRegistry());
+        when(repository.save(any())).thenAnswer(invocation -> persist(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    void stopPipeline() {
+        pipeline.stop();
+    }
+
+    @Test
+    void failedGroupCommitRetriesEachMessage() {
+        when(repository.saveAll(any())).thenThrow(new DataIntegrityViolationException("bad row in group"));
+        doThrow(new DataIntegrityViolationException("bad row"))
+                .when(repository).save(argThat(message -> "bad".equals(message.getContent())));
+        pipeline.start();
+
+        MessageIngestPipeline.PendingMessage first = pipeline.enqueue(message(1, "first"));
+        MessageIngestPipeline.PendingMessage bad = pipeline.enqueue(message(1, "bad"));
+        MessageIngestPipeline.PendingMessage last = pipeline.enqueue(message(1, "last"));
+
+        assertEquals("first", pipeline.awaitCommit(first).orElseThrow().getContent());
+        assertThrows(DataIntegrityViolationException.class, () -> pipeline.awaitCommit(bad));
+        ChatMessage committed = pipeline.awaitCommit(last).orElseThrow();
+        assertEquals("last", committed.getContent());
+        assertNotNull(committed.getId());
+    }
+
+    @Test
+    void slowCommitTimesOutButStillCommits() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            release.await();
+            List<ChatMessage> saved = new ArrayList<>();
+            invocation.<Iterable<ChatMessage>>getArgument(0).forEach(message -> saved.add(persist(message)));
+            return saved;
+        });
+        ReflectionTestUtils.setField(pipeline, "commitTimeout", Duration.ofMillis(50));
+        pipeline.start();
+
+        MessageIngestPipeline.PendingMessage pending = pipeline.enqueue(message(1, "slow"));
+        assertTrue(pipeline.awaitCommit(pending).isEmpty());
+        assertFalse(pending.committed().isDone());
+
+        release.countDown();
+        assertEquals("slow", pending.committed().get(5, TimeUnit.SECONDS).getContent());
+    }
+
+    @Test
+    void stopCommitsEveryAcceptedAppendAndRejectsLaterOnes() throws Exception {
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            List<ChatMessage> saved = new ArrayList<>();
+            invocation.<Iterable<ChatMessage>>getArgument(0).forEach(message -> saved.add(persist(message)));
+            return saved;
+        });
+        pipeline.start();
+
+        List<MessageIngestPipeline.PendingMessage> accepted = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            long sessionId = i;
+            Thread producer = new Thread(() -> {
+                started.countDown();
+                try {
+                    while (true) {
+                        accepted.add(pipeline.enqueue(message(sessionId, "m")));
+                    }
+                } catch (IngestRejectedException ex) {
+                    // Pipeline stopped or queue full.
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        started.await();
+        pipeline.stop();
+        for (Thread producer : producers) {
+            producer.join(5000);
+        }
+
+        assertFalse(accepted.isEmpty());
+        for (MessageIngestPipeline.PendingMessage pending : accepted) {
+            assertTrue(pending.committed().isDone(), "message #" + pending.sequence());
+        }
+        IngestRejectedException rejected = assertThrows(IngestRejectedException.class,
+                () -> pipeline.enqueue(message(1, "late")));
+        assertEquals("Message ingest is not accepting appends", rejected.getMessage());
+    }
+
+    private ChatMessage persist(ChatMessage message) {
+        message.setId(ids.incrementAndGet());
+        return message;
+    }
+
+    private static ChatMessage message(long sessionId, String content) {
+        return ChatMessage.builder()
+                .session(ChatSession.builder().id(sessionId).build())
+                .sender("user")
+                .content(content)
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.shard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardKeysTest {
+    @Test
+    void sessionIdCarriesBucketOfUser() {
+        int bucket = ShardKeys.bucketOfUser("user-42");
+        long id = ShardKeys.sessionId(ShardKeys.sessionSequenceStart(3) + 17, bucket);
+        assertEquals(bucket, ShardKeys.bucketOfSession(id));
+        assertEquals(bucket, ShardKeys.bucketOfUser("user-42"));
+        assertTrue(id > 0);
+    }
+
+    @Test
+    void idRangesOfLastShardStayPositive() {
+        int last = ShardKeys.MAX_SHARDS - 1;
+        assertTrue(ShardKeys.sessionId(ShardKeys.sessionSequenceStart(last), ShardKeys.BUCKETS - 1) > 0);
+        assertTrue(ShardKeys.messageIdStart(last) > ShardKeys.messageIdStart(last - 1));
+    }
+
+    @Test
+    void fairSharesCoverAllBuckets() {
+        int total = 0;
+        for (int shard = 0; shard < 3; shard++) {
+            total += ShardRebalancer.fairShare(shard, 3);
+        }
+        assertEquals(ShardKeys.BUCKETS, total);
+        assertEquals(342, ShardRebalancer.fairShare(0, 3));
+        assertEquals(341, ShardRebalancer.fairShare(2, 3));
+    }
+}
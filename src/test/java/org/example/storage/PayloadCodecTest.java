@@ -0,0 +1,37 @@
+package org.example.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadCodecTest {
+    @Test
+    void smallTextStaysRaw() {
+        byte[] frame = PayloadCodec.encode("héllo", 512);
+        assertEquals(PayloadCodec.RAW, frame[0]);
+        assertEquals("héllo", PayloadCodec.decode(frame));
+    }
+
+    @Test
+    void largeTextIsCompressed() {
+        String text = "{\"role\":\"user\",\"content\":\"summarize the session\"}".repeat(200);
+        byte[] frame = PayloadCodec.encode(text, 512);
+        assertEquals(PayloadCodec.LZ4, frame[0]);
+        assertTrue(frame.length < text.length() / 4);
+        assertEquals(text, PayloadCodec.decode(frame));
+    }
+
+    @Test
+    void nullAndEmptyRoundTrip() {
+        assertNull(PayloadCodec.encode((String) null, 0));
+        assertNull(PayloadCodec.decode(null));
+        assertEquals("", PayloadCodec.decode(PayloadCodec.encode("", 0)));
+    }
+
+    @Test
+    void decodeRejectsMalformedFrame() {
+        assertThrows(IllegalArgumentException.class, () -> PayloadCodec.decode(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> PayloadCodec.decode(new byte[]{7, 1, 2}));
+        assertThrows(IllegalArgumentException.class, () -> PayloadCodec.decode(new byte[]{PayloadCodec.LZ4, 0, 0, 0, 9, 1}));
+    }
+}